@@ -0,0 +1,163 @@
+/*
+ * CubeEngine Plugin Generator - Generates necessary plugin glue code for CubeEngine modules.
+ * Copyright © 2018 CubeEngine (development@cubeengine.org)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.cubeengine.processor.benchmark;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.TreeMap;
+
+import javax.tools.FileObject;
+import javax.tools.ForwardingJavaFileManager;
+import javax.tools.JavaFileManager;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.StandardJavaFileManager;
+
+/**
+ * Keeps everything javac and the annotation processors write in memory, so benchmarks do not measure the disk.
+ */
+public class InMemoryFileManager extends ForwardingJavaFileManager<StandardJavaFileManager>
+{
+    private final Map<String, MemoryFile> outputs = new TreeMap<>();
+
+    public InMemoryFileManager(StandardJavaFileManager fileManager)
+    {
+        super(fileManager);
+    }
+
+    /**
+     * @return all written files by their location relative path
+     */
+    public Map<String, MemoryFile> outputs()
+    {
+        return outputs;
+    }
+
+    @Override
+    public boolean hasLocation(Location location)
+    {
+        return location.isOutputLocation() || super.hasLocation(location);
+    }
+
+    @Override
+    public JavaFileObject getJavaFileForOutput(Location location, String className, JavaFileObject.Kind kind, FileObject sibling)
+    {
+        return output(location, className.replace('.', '/') + kind.extension, kind);
+    }
+
+    @Override
+    public FileObject getFileForOutput(Location location, String packageName, String relativeName, FileObject sibling)
+    {
+        String path = packageName.isEmpty() ? relativeName : packageName.replace('.', '/') + "/" + relativeName;
+        return output(location, path, JavaFileObject.Kind.OTHER);
+    }
+
+    @Override
+    public boolean isSameFile(FileObject a, FileObject b)
+    {
+        if (a instanceof MemoryFile || b instanceof MemoryFile)
+        {
+            return a.toUri().equals(b.toUri());
+        }
+        return super.isSameFile(a, b);
+    }
+
+    @Override
+    public String inferBinaryName(Location location, JavaFileObject file)
+    {
+        if (file instanceof MemoryFile memoryFile)
+        {
+            String path = memoryFile.path;
+            return path.substring(0, path.length() - memoryFile.getKind().extension.length()).replace('/', '.');
+        }
+        return super.inferBinaryName(location, file);
+    }
+
+    private MemoryFile output(Location location, String path, JavaFileObject.Kind kind)
+    {
+        return outputs.computeIfAbsent(location.getName() + "/" + path, key -> new MemoryFile(key, path, kind));
+    }
+
+    /**
+     * A file that only exists in memory once it was written.
+     */
+    public static final class MemoryFile extends SimpleJavaFileObject
+    {
+        private final String path;
+        private byte[] content;
+        private long lastModified = 0;
+
+        private MemoryFile(String key, String path, Kind kind)
+        {
+            super(URI.create("memory:///" + key), kind);
+            this.path = path;
+        }
+
+        public int size()
+        {
+            return content == null ? 0 : content.length;
+        }
+
+        @Override
+        public InputStream openInputStream() throws IOException
+        {
+            if (content == null)
+            {
+                throw new FileNotFoundException(path);
+            }
+            return new ByteArrayInputStream(content);
+        }
+
+        @Override
+        public OutputStream openOutputStream()
+        {
+            return new ByteArrayOutputStream()
+            {
+                @Override
+                public void close()
+                {
+                    content = toByteArray();
+                    lastModified = System.currentTimeMillis();
+                }
+            };
+        }
+
+        @Override
+        public CharSequence getCharContent(boolean ignoreEncodingErrors) throws IOException
+        {
+            if (content == null)
+            {
+                throw new FileNotFoundException(path);
+            }
+            return new String(content, StandardCharsets.UTF_8);
+        }
+
+        @Override
+        public long getLastModified()
+        {
+            return lastModified;
+        }
+    }
+}
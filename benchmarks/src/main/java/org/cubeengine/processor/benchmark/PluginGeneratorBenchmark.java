@@ -0,0 +1,122 @@
+/*
+ * CubeEngine Plugin Generator - Generates necessary plugin glue code for CubeEngine modules.
+ * Copyright © 2018 CubeEngine (development@cubeengine.org)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.cubeengine.processor.benchmark;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+import javax.tools.Diagnostic;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+
+import org.cubeengine.processor.PluginGenerator;
+import org.cubeengine.processor.corpus.SyntheticCorpus;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Runs the {@link PluginGenerator} through an in-memory javac with {@code -proc:only} over a {@link SyntheticCorpus}.
+ * <p>
+ * The generated sources are compiled once during setup against the stubs of the plugin-gen tests, a corpus the
+ * generator fails on or generates broken sources for fails the benchmark instead of measuring the error path.
+ * <p>
+ * Run with {@code java -jar target/benchmarks.jar -prof gc -rf json -rff results.json} to get throughput and
+ * allocation rates as JSON that can be compared between commits.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class PluginGeneratorBenchmark
+{
+    private static final long SEED = 42;
+    private static final List<String> OPTIONS = List.of("-Acubeengine.module.version=1.0.0", "-Acubeengine.module.libcube.version=1.0.0");
+
+    @Param({"1", "100", "10000"})
+    public int modules;
+
+    @Param({"4"})
+    public int fanOut;
+
+    private JavaCompiler compiler;
+    private StandardJavaFileManager standardFileManager;
+    private List<JavaFileObject> sources;
+
+    @Setup
+    public void setup()
+    {
+        compiler = ToolProvider.getSystemJavaCompiler();
+        standardFileManager = compiler.getStandardFileManager(null, Locale.ROOT, null);
+        sources = new SyntheticCorpus(SEED, modules, Math.max(1, modules / 10), fanOut, 0.25, true).sources();
+        compile(List.of());
+    }
+
+    @TearDown
+    public void tearDown() throws IOException
+    {
+        standardFileManager.close();
+    }
+
+    @Benchmark
+    public int generate()
+    {
+        return compile(List.of("-proc:only"));
+    }
+
+    /**
+     * @return the number of written files
+     */
+    private int compile(List<String> extraOptions)
+    {
+        InMemoryFileManager fileManager = new InMemoryFileManager(standardFileManager);
+        List<String> options = new ArrayList<>(extraOptions);
+        options.addAll(OPTIONS);
+        List<String> errors = new ArrayList<>();
+        JavaCompiler.CompilationTask task = compiler.getTask(null, fileManager, diagnostic -> {
+            // notes for every module and output cache miss are ignored
+            if (diagnostic.getKind() == Diagnostic.Kind.ERROR)
+            {
+                errors.add(diagnostic.getSource() == null ? diagnostic.getMessage(Locale.ROOT)
+                                                          : diagnostic.getSource().getName() + ":" + diagnostic.getLineNumber() + ": " + diagnostic.getMessage(Locale.ROOT));
+            }
+        }, options, null, sources);
+        task.setProcessors(List.of(new PluginGenerator()));
+        if (!task.call() || !errors.isEmpty())
+        {
+            throw new IllegalStateException("The compilation of the corpus failed: " + errors);
+        }
+        return fileManager.outputs().size();
+    }
+}
@@ -0,0 +1,252 @@
+/*
+ * CubeEngine Plugin Generator - Generates necessary plugin glue code for CubeEngine modules.
+ * Copyright © 2018 CubeEngine (development@cubeengine.org)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.cubeengine.processor;
+
+import java.io.FilterOutputStream;
+import java.io.FilterWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Collects nanosecond timings of the processing phases and statistics about every written file.
+ * <p>
+ * The report is written as JSON when the {@code cubeengine.processor.report} option is set, so the time spent in the
+ * processor can be tracked in CI.
+ */
+final class BuildReport
+{
+    private final long created = System.nanoTime();
+    private final Map<String, Phase> phases = new LinkedHashMap<>();
+    private final List<ModuleTiming> modules = new ArrayList<>();
+    private final List<FileStats> files = new ArrayList<>();
+
+    /**
+     * Adds the time since {@code startNanos} to the given phase.
+     */
+    void phase(String name, long startNanos)
+    {
+        phases.computeIfAbsent(name, n -> new Phase()).add(System.nanoTime() - startNanos);
+    }
+
+    /**
+     * Records the time it took to generate the given plugin.
+     */
+    void module(PluginModel plugin, long startNanos)
+    {
+        modules.add(new ModuleTiming(plugin.id(), plugin.element().getQualifiedName().toString(), System.nanoTime() - startNanos));
+    }
+
+    /**
+     * Wraps a writer of a generated file, the written bytes and the time until the writer is closed are recorded.
+     */
+    Writer track(String path, Writer writer)
+    {
+        return new CountingWriter(path, writer);
+    }
+
+    /**
+     * Wraps the stream of a generated binary file, see {@link #track(String, Writer)}.
+     */
+    OutputStream track(String path, OutputStream out)
+    {
+        return new CountingOutputStream(path, out);
+    }
+
+    void write(JsonWriter json) throws IOException
+    {
+        long totalBytes = 0;
+        for (FileStats file : files)
+        {
+            totalBytes += file.bytes;
+        }
+
+        json.beginObject();
+        json.name("processor").value(PluginGenerator.class.getName());
+        json.name("totalNanos").value(System.nanoTime() - created);
+        json.name("phases").beginObject();
+        for (Map.Entry<String, Phase> entry : phases.entrySet())
+        {
+            json.name(entry.getKey()).beginObject()
+                .name("count").value(entry.getValue().count)
+                .name("nanos").value(entry.getValue().nanos)
+                .endObject();
+        }
+        json.endObject();
+        json.name("modules").beginArray();
+        for (ModuleTiming module : modules)
+        {
+            json.beginObject()
+                .name("id").value(module.id)
+                .name("class").value(module.className)
+                .name("nanos").value(module.nanos)
+                .endObject();
+        }
+        json.endArray();
+        json.name("fileCount").value(files.size());
+        json.name("bytesWritten").value(totalBytes);
+        json.name("files").beginArray();
+        for (FileStats file : files)
+        {
+            json.beginObject()
+                .name("path").value(file.path)
+                .name("bytes").value(file.bytes)
+                .name("nanos").value(file.nanos)
+                .endObject();
+        }
+        json.endArray();
+        json.endObject();
+    }
+
+    private static final class Phase
+    {
+        private long count;
+        private long nanos;
+
+        private void add(long nanos)
+        {
+            this.count++;
+            this.nanos += nanos;
+        }
+    }
+
+    private record ModuleTiming(String id, String className, long nanos)
+    {
+    }
+
+    private record FileStats(String path, long bytes, long nanos)
+    {
+    }
+
+    /**
+     * Counts the UTF-8 encoded size of everything written through it.
+     */
+    private final class CountingWriter extends FilterWriter
+    {
+        private final String path;
+        private final long opened = System.nanoTime();
+        private long bytes = 0;
+        private boolean closed = false;
+
+        private CountingWriter(String path, Writer out)
+        {
+            super(out);
+            this.path = path;
+        }
+
+        @Override
+        public void write(int c) throws IOException
+        {
+            out.write(c);
+            bytes += utf8Length((char) c);
+        }
+
+        @Override
+        public void write(char[] cbuf, int off, int len) throws IOException
+        {
+            out.write(cbuf, off, len);
+            for (int i = off; i < off + len; i++)
+            {
+                bytes += utf8Length(cbuf[i]);
+            }
+        }
+
+        @Override
+        public void write(String str, int off, int len) throws IOException
+        {
+            out.write(str, off, len);
+            for (int i = off; i < off + len; i++)
+            {
+                bytes += utf8Length(str.charAt(i));
+            }
+        }
+
+        @Override
+        public void close() throws IOException
+        {
+            super.close();
+            if (!closed)
+            {
+                closed = true;
+                files.add(new FileStats(path, bytes, System.nanoTime() - opened));
+            }
+        }
+
+        /**
+         * Surrogates count 2 bytes each, so a surrogate pair adds up to the 4 bytes of its code point.
+         */
+        private static int utf8Length(char c)
+        {
+            if (c < 0x80)
+            {
+                return 1;
+            }
+            if (c < 0x800 || Character.isSurrogate(c))
+            {
+                return 2;
+            }
+            return 3;
+        }
+    }
+
+    /**
+     * Counts the bytes written through it.
+     */
+    private final class CountingOutputStream extends FilterOutputStream
+    {
+        private final String path;
+        private final long opened = System.nanoTime();
+        private long bytes = 0;
+        private boolean closed = false;
+
+        private CountingOutputStream(String path, OutputStream out)
+        {
+            super(out);
+            this.path = path;
+        }
+
+        @Override
+        public void write(int b) throws IOException
+        {
+            out.write(b);
+            bytes++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException
+        {
+            out.write(b, off, len);
+            bytes += len;
+        }
+
+        @Override
+        public void close() throws IOException
+        {
+            super.close();
+            if (!closed)
+            {
+                closed = true;
+                files.add(new FileStats(path, bytes, System.nanoTime() - opened));
+            }
+        }
+    }
+}
@@ -0,0 +1,121 @@
+/*
+ * CubeEngine Plugin Generator - Generates necessary plugin glue code for CubeEngine modules.
+ * Copyright © 2018 CubeEngine (development@cubeengine.org)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.cubeengine.processor;
+
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.ArrayType;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.lang.model.util.Elements;
+
+/**
+ * The AppCDS class lists written to {@code META-INF/cubeengine/cds.classlist} when the
+ * {@code cubeengine.processor.cds} option is set, one section per plugin starting with a {@code # <id>} line.
+ * <p>
+ * The classes are loaded by Sponge's plugin class loader, which a static archive dumped from a class list does not
+ * cover. The generated plugins instead load their section with the {@code CdsTraining} support class during a
+ * training run with {@code -XX:ArchiveClassesAtExit}, so the dynamic archive also contains the classes the training
+ * run never used.
+ */
+public final class CdsClassList
+{
+    static final String FILE = "META-INF/cubeengine/cds.classlist";
+
+    private CdsClassList()
+    {
+    }
+
+    /**
+     * Collects the given classes and the types reachable from their constructors, injected members and listener
+     * methods. Classes with an {@code @Inject} constructor are followed transitively.
+     *
+     * @return the class names in the internal form of the class list
+     */
+    static Set<String> reachable(Collection<TypeElement> roots, Elements elements)
+    {
+        Set<TypeElement> seen = new LinkedHashSet<>();
+        Deque<TypeElement> queue = new ArrayDeque<>(roots);
+        while (!queue.isEmpty())
+        {
+            TypeElement type = queue.poll();
+            // dependencies not created by injection are listed but not expanded
+            if (!seen.add(type) || (!roots.contains(type) && ElementFilter.constructorsIn(type.getEnclosedElements()).stream().noneMatch(InjectionPoints::isInject)))
+            {
+                continue;
+            }
+            for (Element member : type.getEnclosedElements())
+            {
+                boolean inject = InjectionPoints.isInject(member);
+                if (member.getKind() == ElementKind.CONSTRUCTOR || (member.getKind() == ElementKind.METHOD && (inject || ListenerClass.isListener(member))))
+                {
+                    for (VariableElement parameter : ((ExecutableElement) member).getParameters())
+                    {
+                        enqueue(parameter.asType(), queue, seen);
+                    }
+                }
+                else if (member.getKind() == ElementKind.FIELD && inject)
+                {
+                    enqueue(member.asType(), queue, seen);
+                }
+            }
+        }
+        Set<String> classes = new LinkedHashSet<>();
+        for (TypeElement type : seen)
+        {
+            classes.add(internalName(type, elements));
+        }
+        return classes;
+    }
+
+    private static void enqueue(TypeMirror type, Deque<TypeElement> queue, Set<TypeElement> seen)
+    {
+        if (type.getKind() == TypeKind.ARRAY)
+        {
+            enqueue(((ArrayType) type).getComponentType(), queue, seen);
+        }
+        else if (type.getKind() == TypeKind.DECLARED)
+        {
+            TypeElement element = (TypeElement) ((DeclaredType) type).asElement();
+            if (!seen.contains(element))
+            {
+                queue.add(element);
+            }
+            for (TypeMirror argument : ((DeclaredType) type).getTypeArguments())
+            {
+                enqueue(argument, queue, seen);
+            }
+        }
+    }
+
+    static String internalName(TypeElement type, Elements elements)
+    {
+        return elements.getBinaryName(type).toString().replace('.', '/');
+    }
+}
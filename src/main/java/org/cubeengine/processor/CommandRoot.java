@@ -0,0 +1,153 @@
+/*
+ * CubeEngine Plugin Generator - Generates necessary plugin glue code for CubeEngine modules.
+ * Copyright © 2018 CubeEngine (development@cubeengine.org)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.cubeengine.processor;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.AnnotationValue;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.util.ElementFilter;
+
+/**
+ * A top level command of a module, registered by libcube for the {@code @ModuleCommand} fields of the module class.
+ * <p>
+ * A command class annotated with {@code @Command} is one command with subcommands, otherwise each of its
+ * {@code @Command} methods is a top level command.
+ *
+ * @param name the name of the command
+ * @param aliases the other names of the command
+ * @param subcommands the names of the subcommands by their names and aliases
+ */
+record CommandRoot(String name, List<String> aliases, Map<String, String> subcommands)
+{
+    static final String MODULE_COMMAND = "org.cubeengine.libcube.service.command.annotation.ModuleCommand";
+    static final String COMMAND = "org.cubeengine.libcube.service.command.annotation.Command";
+
+    /**
+     * @param moduleId the plugin id without the {@link ModuleOptions#PLUGIN_ID_PREFIX}
+     * @param path the names from the top level command down, separated by dots
+     * @return the permission node checked by the command, the same as the one of libcube
+     */
+    static String permission(String moduleId, String path)
+    {
+        return "cubeengine." + moduleId + ".command." + path;
+    }
+
+    static List<CommandRoot> scan(TypeElement module)
+    {
+        List<CommandRoot> roots = new ArrayList<>();
+        for (Element field : ElementFilter.fieldsIn(module.getEnclosedElements()))
+        {
+            if (annotation(field, MODULE_COMMAND) == null || field.asType().getKind() != TypeKind.DECLARED)
+            {
+                continue;
+            }
+            TypeElement type = (TypeElement) ((DeclaredType) field.asType()).asElement();
+            AnnotationMirror command = annotation(type, COMMAND);
+            if (command != null)
+            {
+                CommandRoot root = of(command, defaultName(type));
+                for (ExecutableElement method : ElementFilter.methodsIn(type.getEnclosedElements()))
+                {
+                    AnnotationMirror subcommand = annotation(method, COMMAND);
+                    if (subcommand != null)
+                    {
+                        CommandRoot child = of(subcommand, method.getSimpleName().toString());
+                        root.subcommands().put(child.name(), child.name());
+                        child.aliases().forEach(alias -> root.subcommands().putIfAbsent(alias, child.name()));
+                    }
+                }
+                roots.add(root);
+                continue;
+            }
+            for (ExecutableElement method : ElementFilter.methodsIn(type.getEnclosedElements()))
+            {
+                command = annotation(method, COMMAND);
+                if (command != null)
+                {
+                    roots.add(of(command, method.getSimpleName().toString()));
+                }
+            }
+        }
+        return roots;
+    }
+
+    /**
+     * The simple name of the class without a {@code Command} or {@code Commands} suffix in lower case.
+     */
+    static String defaultName(TypeElement type)
+    {
+        String name = type.getSimpleName().toString();
+        for (String suffix : List.of("Commands", "Command"))
+        {
+            if (name.endsWith(suffix) && name.length() > suffix.length())
+            {
+                name = name.substring(0, name.length() - suffix.length());
+                break;
+            }
+        }
+        return name.toLowerCase();
+    }
+
+    static CommandRoot of(AnnotationMirror command, String defaultName)
+    {
+        String name = defaultName;
+        List<String> aliases = new ArrayList<>();
+        for (var entry : command.getElementValues().entrySet())
+        {
+            AnnotationValue value = entry.getValue();
+            switch (entry.getKey().getSimpleName().toString())
+            {
+                case "name" -> {
+                    if (!((String) value.getValue()).isEmpty())
+                    {
+                        name = (String) value.getValue();
+                    }
+                }
+                case "alias" -> {
+                    for (Object alias : (List<?>) value.getValue())
+                    {
+                        aliases.add((String) ((AnnotationValue) alias).getValue());
+                    }
+                }
+                default -> { }
+            }
+        }
+        return new CommandRoot(name, aliases, new LinkedHashMap<>());
+    }
+
+    static AnnotationMirror annotation(Element element, String annotationType)
+    {
+        for (AnnotationMirror annotation : element.getAnnotationMirrors())
+        {
+            if (InjectionPoints.name(annotation).equals(annotationType))
+            {
+                return annotation;
+            }
+        }
+        return null;
+    }
+}
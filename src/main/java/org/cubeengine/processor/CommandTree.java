@@ -0,0 +1,480 @@
+/*
+ * CubeEngine Plugin Generator - Generates necessary plugin glue code for CubeEngine modules.
+ * Copyright © 2018 CubeEngine (development@cubeengine.org)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.cubeengine.processor;
+
+import static org.cubeengine.processor.CommandRoot.COMMAND;
+import static org.cubeengine.processor.CommandRoot.MODULE_COMMAND;
+import static org.cubeengine.processor.CommandRoot.annotation;
+import static org.cubeengine.processor.PluginGenerator.javaLiteral;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.annotation.processing.Messager;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.PrimitiveType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.lang.model.util.Elements;
+import javax.lang.model.util.Types;
+import javax.tools.Diagnostic.Kind;
+
+/**
+ * The commands of a {@link Module} as a {@code Command.Parameterized} tree built from plain Java, instead of the
+ * tree libcube builds by reflection over the {@code @ModuleCommand} fields of the module.
+ * <p>
+ * Every parameter is a constant {@code Parameter.Value} using one of the parsers of Sponge, the executors call the
+ * command methods directly. Enum parameters complete through a {@code CompletionTrie} of their constants.
+ * <p>
+ * Commands are only generated if all of them are supported: command methods take the {@code CommandCause} or
+ * {@code CommandContext} followed by parameters of the supported types, optionally annotated with {@code @Option}.
+ * Anything else, e.g. flags, custom parsers or other libcube annotations like {@code @Restricted}, is left to
+ * libcube.
+ * <p>
+ * The permission of a command is {@code cubeengine.<module>.command.<path>}, its path being the names from the top
+ * level command down. Each permission gets a dense id in the {@code PermissionRegistry} of the module, commands check
+ * it through the registry instead of Sponge looking up the node.
+ */
+final class CommandTree
+{
+    private static final String LIBCUBE_PACKAGE = "org.cubeengine.libcube.";
+    private static final String ANNOTATION_PACKAGE = LIBCUBE_PACKAGE + "service.command.annotation";
+    private static final String OPTION = ANNOTATION_PACKAGE + ".Option";
+    private static final String CAUSE = "org.spongepowered.api.command.CommandCause";
+    private static final String CONTEXT = "org.spongepowered.api.command.parameter.CommandContext";
+    private static final String RESULT = "org.spongepowered.api.command.CommandResult";
+    private static final String EXCEPTION = "org.spongepowered.api.command.exception.CommandException";
+    /** the parameter types with a parser of Sponge, enums use {@code Parameter.enumValue} */
+    private static final Map<String, String> PARSERS = Map.of(
+            "java.lang.String", "string()",
+            "java.lang.Integer", "integerNumber()",
+            "java.lang.Long", "longNumber()",
+            "java.lang.Double", "doubleNumber()",
+            "java.lang.Boolean", "bool()",
+            "org.spongepowered.api.entity.living.player.server.ServerPlayer", "player()",
+            "org.spongepowered.api.world.server.ServerWorld", "world()");
+
+    private final Elements elements;
+    private final Types types;
+    private final String packageName;
+    private final String permissionPrefix;
+    /** the declaration of each parameter constant by its name */
+    private final Map<String, String> parameters = new LinkedHashMap<>();
+    /** the prefix of the completion constants of each enum type */
+    private final Map<String, String> completions = new LinkedHashMap<>();
+    private final StringBuilder completionFields = new StringBuilder();
+    private final StringBuilder containers = new StringBuilder();
+    private final List<String> containerChecks = new ArrayList<>();
+    private final StringBuilder registrations = new StringBuilder();
+    /** the permission nodes, their index is their id */
+    private final List<String> permissions = new ArrayList<>();
+    private String problem;
+    private Element problemElement;
+
+    private CommandTree(Elements elements, Types types, String packageName, String permissionPrefix)
+    {
+        this.elements = elements;
+        this.types = types;
+        this.packageName = packageName;
+        this.permissionPrefix = permissionPrefix;
+    }
+
+    /**
+     * @param module the module class
+     * @param moduleId the plugin id without the {@link ModuleOptions#PLUGIN_ID_PREFIX}
+     * @return the command tree or null if the module has no commands or they are left to libcube
+     */
+    static CommandTree scan(TypeElement module, String moduleId, Elements elements, Types types, Messager messager)
+    {
+        CommandTree tree = new CommandTree(elements, types, elements.getPackageOf(module).getQualifiedName().toString(),
+                                           CommandRoot.permission(moduleId, ""));
+        boolean commands = false;
+        for (VariableElement field : ElementFilter.fieldsIn(module.getEnclosedElements()))
+        {
+            if (annotation(field, MODULE_COMMAND) == null)
+            {
+                continue;
+            }
+            commands = true;
+            tree.container(field);
+            if (tree.problem != null)
+            {
+                messager.printMessage(Kind.NOTE, "The commands of " + module.getSimpleName() + " are registered reflectively, " + tree.problem,
+                                      tree.problemElement);
+                return null;
+            }
+        }
+        return commands ? tree : null;
+    }
+
+    /**
+     * @return the completion tries of the enum parameters and the {@code Parameter.Value} constants
+     */
+    String parameters()
+    {
+        StringBuilder fields = new StringBuilder(completionFields);
+        parameters.forEach((name, declaration) -> fields.append("    private static final ").append(declaration.replace("${name}", name)).append(";\n"));
+        return fields.toString();
+    }
+
+    /**
+     * @return the statements reading the command containers from the {@code module} and returning false unless
+     *         libcube injected all of them
+     */
+    String containers()
+    {
+        return containers + "        if (" + String.join(" || ", containerChecks) + ")\n        {\n            return false;\n        }\n";
+    }
+
+    /**
+     * @return the permission nodes of the commands ordered by their id
+     */
+    List<String> permissions()
+    {
+        return permissions;
+    }
+
+    /**
+     * @return the statements registering the top level commands with the {@code event} for the {@code plugin}
+     */
+    String registrations()
+    {
+        return registrations.toString();
+    }
+
+    private void container(VariableElement field)
+    {
+        if (field.getModifiers().contains(Modifier.PRIVATE) || field.getModifiers().contains(Modifier.STATIC))
+        {
+            fail(field, "the @ModuleCommand field must not be private or static");
+            return;
+        }
+        if (field.asType().getKind() != TypeKind.DECLARED)
+        {
+            fail(field, "the @ModuleCommand field must have a class type");
+            return;
+        }
+        TypeElement type = (TypeElement) ((DeclaredType) field.asType()).asElement();
+        if (!accessible(type))
+        {
+            fail(field, type.getQualifiedName() + " is not accessible from " + packageName);
+            return;
+        }
+        if (!supportedAnnotations(type, COMMAND))
+        {
+            return;
+        }
+        String variable = field.getSimpleName().toString();
+        containers.append("        ").append(types.erasure(field.asType())).append(' ').append(variable)
+                  .append(" = module.").append(variable).append(";\n");
+        containerChecks.add(variable + " == null");
+
+        AnnotationMirror group = annotation(type, COMMAND);
+        if (group != null)
+        {
+            CommandRoot root = CommandRoot.of(group, CommandRoot.defaultName(type));
+            StringBuilder builder = new StringBuilder();
+            builder.append("Command.builder()\n");
+            appendDescription(builder, group, "                ");
+            appendPermission(builder, root.name(), "                ");
+            for (ExecutableElement method : ElementFilter.methodsIn(type.getEnclosedElements()))
+            {
+                AnnotationMirror command = annotation(method, COMMAND);
+                if (command != null)
+                {
+                    CommandRoot child = CommandRoot.of(command, method.getSimpleName().toString());
+                    builder.append("                .addChild(")
+                           .append(command(variable, method, command, root.name() + "." + child.name(), "                        "))
+                           .append(", ").append(names(child)).append(")\n");
+                }
+            }
+            builder.append("                .build()");
+            register(builder, root);
+            return;
+        }
+        for (ExecutableElement method : ElementFilter.methodsIn(type.getEnclosedElements()))
+        {
+            AnnotationMirror command = annotation(method, COMMAND);
+            if (command != null)
+            {
+                CommandRoot root = CommandRoot.of(command, method.getSimpleName().toString());
+                register(new StringBuilder(command(variable, method, command, root.name(), "                ")), root);
+            }
+        }
+    }
+
+    private void appendPermission(StringBuilder builder, String path, String indent)
+    {
+        permissions.add(permissionPrefix + path);
+        builder.append(indent).append(".executionRequirements(cause -> PERMISSIONS.test(cause, ")
+               .append(permissions.size() - 1).append("))\n");
+    }
+
+    private void register(StringBuilder command, CommandRoot root)
+    {
+        registrations.append("        event.register(plugin, ").append(command).append(", ").append(names(root)).append(");\n");
+    }
+
+    private static String names(CommandRoot root)
+    {
+        StringBuilder names = new StringBuilder(javaLiteral(root.name()));
+        root.aliases().forEach(alias -> names.append(", ").append(javaLiteral(alias)));
+        return names.toString();
+    }
+
+    /**
+     * @param indent the indentation of the builder calls
+     * @return the expression building the command of the method
+     */
+    private String command(String container, ExecutableElement method, AnnotationMirror command, String path, String indent)
+    {
+        if (method.getModifiers().contains(Modifier.PRIVATE) || method.getModifiers().contains(Modifier.STATIC)
+            || !method.getModifiers().contains(Modifier.PUBLIC) && !elements.getPackageOf(method).getQualifiedName().contentEquals(packageName))
+        {
+            fail(method, "command methods must be accessible instance methods");
+            return "";
+        }
+        if (!supportedAnnotations(method, COMMAND))
+        {
+            return "";
+        }
+        TypeMirror returnType = method.getReturnType();
+        boolean result = isType(returnType, RESULT);
+        if (returnType.getKind() != TypeKind.VOID && !result)
+        {
+            fail(method, "command methods must return void or a CommandResult");
+            return "";
+        }
+        TypeElement exception = elements.getTypeElement(EXCEPTION);
+        for (TypeMirror thrown : method.getThrownTypes())
+        {
+            if ((exception == null || !types.isSubtype(thrown, exception.asType()))
+                && !types.isSubtype(thrown, elements.getTypeElement("java.lang.RuntimeException").asType()))
+            {
+                fail(method, "command methods may only throw a CommandException");
+                return "";
+            }
+        }
+        List<? extends VariableElement> methodParameters = method.getParameters();
+        if (methodParameters.isEmpty() || !isType(methodParameters.get(0).asType(), CAUSE) && !isType(methodParameters.get(0).asType(), CONTEXT))
+        {
+            fail(method, "the first parameter of a command method must be the CommandCause or CommandContext");
+            return "";
+        }
+
+        StringBuilder builder = new StringBuilder("Command.builder()\n");
+        appendDescription(builder, command, indent);
+        appendPermission(builder, path, indent);
+        List<String> arguments = new ArrayList<>();
+        arguments.add(isType(methodParameters.get(0).asType(), CAUSE) ? "context.cause()" : "context");
+        for (VariableElement parameter : methodParameters.subList(1, methodParameters.size()))
+        {
+            String constant = parameter(parameter);
+            if (constant == null)
+            {
+                return "";
+            }
+            builder.append(indent).append(".addParameter(").append(constant).append(")\n");
+            arguments.add(annotation(parameter, OPTION) == null ? "context.requireOne(" + constant + ")" : "context.one(" + constant + ").orElse(null)");
+        }
+        String call = container + "." + method.getSimpleName() + "(" + String.join(", ", arguments) + ")";
+        if (result)
+        {
+            builder.append(indent).append(".executor(context -> ").append(call).append(")\n");
+        }
+        else
+        {
+            builder.append(indent).append(".executor(context -> {\n")
+                   .append(indent).append("    ").append(call).append(";\n")
+                   .append(indent).append("    return CommandResult.success();\n")
+                   .append(indent).append("})\n");
+        }
+        return builder.append(indent).append(".build()").toString();
+    }
+
+    /**
+     * @return the name of the constant for the parameter or null if it is not supported
+     */
+    private String parameter(VariableElement parameter)
+    {
+        if (!supportedAnnotations(parameter, OPTION))
+        {
+            return null;
+        }
+        boolean optional = annotation(parameter, OPTION) != null;
+        TypeMirror type = parameter.asType();
+        if (type.getKind().isPrimitive())
+        {
+            if (optional)
+            {
+                fail(parameter, "optional parameters must not be primitive");
+                return null;
+            }
+            type = types.boxedClass((PrimitiveType) type).asType();
+        }
+        if (type.getKind() != TypeKind.DECLARED)
+        {
+            fail(parameter, "parameters of type " + type + " are not supported");
+            return null;
+        }
+        TypeElement element = (TypeElement) ((DeclaredType) type).asElement();
+        String typeName = element.getQualifiedName().toString();
+        String parser = PARSERS.get(typeName);
+        if (parser == null && element.getKind() == ElementKind.ENUM && accessible(element))
+        {
+            String prefix = completions(element);
+            parser = "enumValue(" + typeName + ".class).completer((context, input) -> " + prefix + "_TRIE.complete(" + prefix + "_COMPLETIONS, input))";
+        }
+        if (parser == null)
+        {
+            fail(parameter, "parameters of type " + typeName + " are not supported");
+            return null;
+        }
+
+        String key = parameter.getSimpleName().toString();
+        String declaration = "Parameter.Value<" + typeName + "> ${name} = Parameter." + parser + ".key(" + javaLiteral(key) + ")"
+                             + (optional ? ".optional()" : "") + ".build()";
+        String base = constantName(key);
+        String name = base;
+        for (int i = 1; parameters.containsKey(name) && !parameters.get(name).equals(declaration); i++)
+        {
+            name = base + "_" + i;
+        }
+        parameters.put(name, declaration);
+        return name;
+    }
+
+    /**
+     * @return the prefix of the constants completing the names of the enum constants
+     */
+    private String completions(TypeElement type)
+    {
+        String existing = completions.get(type.getQualifiedName().toString());
+        if (existing != null)
+        {
+            return existing;
+        }
+        String base = constantName(type.getSimpleName().toString());
+        String prefix = base;
+        for (int i = 1; completions.containsValue(prefix); i++)
+        {
+            prefix = base + "_" + i;
+        }
+        completions.put(type.getQualifiedName().toString(), prefix);
+
+        List<String> names = new ArrayList<>();
+        for (Element constant : type.getEnclosedElements())
+        {
+            if (constant.getKind() == ElementKind.ENUM_CONSTANT)
+            {
+                names.add(constant.getSimpleName().toString());
+            }
+        }
+        completionFields.append("    private static final CompletionTrie ").append(prefix).append("_TRIE = ").append(PrefixTrie.expression(names)).append(";\n")
+                        .append("    private static final List<CommandCompletion> ").append(prefix).append("_COMPLETIONS = ").append(prefix)
+                        .append("_TRIE.words().stream().map(CommandCompletion::of).toList();\n");
+        return prefix;
+    }
+
+    private static String constantName(String key)
+    {
+        StringBuilder name = new StringBuilder();
+        for (int i = 0; i < key.length(); i++)
+        {
+            char c = key.charAt(i);
+            if (Character.isUpperCase(c) && i > 0)
+            {
+                name.append('_');
+            }
+            name.append(Character.toUpperCase(c));
+        }
+        return name.toString();
+    }
+
+    private static void appendDescription(StringBuilder builder, AnnotationMirror command, String indent)
+    {
+        for (var entry : command.getElementValues().entrySet())
+        {
+            if (entry.getKey().getSimpleName().contentEquals("desc") && !((String) entry.getValue().getValue()).isEmpty())
+            {
+                builder.append(indent).append(".shortDescription(Component.text(").append(javaLiteral((String) entry.getValue().getValue())).append("))\n");
+            }
+        }
+    }
+
+    private boolean accessible(TypeElement type)
+    {
+        for (Element current = type; current instanceof TypeElement enclosing; current = current.getEnclosingElement())
+        {
+            Set<Modifier> modifiers = enclosing.getModifiers();
+            if (modifiers.contains(Modifier.PRIVATE)
+                || !modifiers.contains(Modifier.PUBLIC) && !elements.getPackageOf(enclosing).getQualifiedName().contentEquals(packageName))
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Only libcube knows what its other annotations, e.g. {@code @Restricted}, {@code @Alias} or {@code @Using}, mean
+     * for a command, so their commands are left to it.
+     *
+     * @param supported the libcube annotation the element may have
+     * @return false if the element has another libcube annotation
+     */
+    private boolean supportedAnnotations(Element element, String supported)
+    {
+        for (AnnotationMirror annotation : element.getAnnotationMirrors())
+        {
+            String annotationName = InjectionPoints.name(annotation);
+            if (annotationName.startsWith(LIBCUBE_PACKAGE) && !annotationName.equals(supported))
+            {
+                fail(element, "@" + annotation.getAnnotationType().asElement().getSimpleName() + " is not supported");
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean isType(TypeMirror type, String name)
+    {
+        TypeElement element = elements.getTypeElement(name);
+        return element != null && types.isSameType(types.erasure(type), types.erasure(element.asType()));
+    }
+
+    private void fail(Element element, String problem)
+    {
+        if (this.problem == null)
+        {
+            this.problem = problem;
+            this.problemElement = element;
+        }
+    }
+}
@@ -0,0 +1,357 @@
+/*
+ * CubeEngine Plugin Generator - Generates necessary plugin glue code for CubeEngine modules.
+ * Copyright © 2018 CubeEngine (development@cubeengine.org)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.cubeengine.processor;
+
+import static org.cubeengine.processor.InjectionPoints.PROVIDER;
+import static org.cubeengine.processor.InjectionPoints.QUALIFIER;
+import static org.cubeengine.processor.InjectionPoints.SCOPE;
+import static org.cubeengine.processor.InjectionPoints.isInject;
+import static org.cubeengine.processor.InjectionPoints.isMarked;
+import static org.cubeengine.processor.InjectionPoints.name;
+import static org.cubeengine.processor.PluginGenerator.javaLiteral;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import javax.annotation.processing.Messager;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.NestingKind;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.ExecutableType;
+import javax.lang.model.type.PrimitiveType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.lang.model.util.Elements;
+import javax.lang.model.util.Types;
+import javax.tools.Diagnostic.Kind;
+
+/**
+ * The {@code @Inject} graph of a {@link Module} class, resolved at compile time into direct constructor calls and
+ * member assignments for the {@code cubeengine.di=compiletime} backend.
+ * <p>
+ * Concrete classes with an {@code @Inject} constructor are created by the component, {@code @Singleton} classes once
+ * per module. Everything else, e.g. interfaces, qualified or otherwise scoped types, is looked up in the resolver
+ * passed to the component. Like Dagger, private members and checked exceptions are compile errors.
+ */
+final class CompileTimeComponent
+{
+    private static final Set<String> SINGLETON = Set.of("com.google.inject.Singleton", "javax.inject.Singleton", "jakarta.inject.Singleton");
+
+    private final Elements elements;
+    private final Types types;
+    private final Messager messager;
+    private final String packageName;
+    private final Map<String, String> methods = new HashMap<>();
+    /** the classes currently being created, a direct dependency on one of them is a cycle */
+    private Deque<String> path = new ArrayDeque<>();
+    private final StringBuilder fields = new StringBuilder();
+    private final StringBuilder provisions = new StringBuilder();
+    private boolean failed = false;
+
+    private CompileTimeComponent(Elements elements, Types types, Messager messager, String packageName)
+    {
+        this.elements = elements;
+        this.types = types;
+        this.messager = messager;
+        this.packageName = packageName;
+    }
+
+    /**
+     * @return the component or null if the graph cannot be created at compile time, the errors are reported then
+     */
+    static CompileTimeComponent build(TypeElement module, Elements elements, Types types, Messager messager)
+    {
+        CompileTimeComponent component = new CompileTimeComponent(elements, types, messager, elements.getPackageOf(module).getQualifiedName().toString());
+        ExecutableElement constructor = null;
+        for (ExecutableElement candidate : ElementFilter.constructorsIn(module.getEnclosedElements()))
+        {
+            if (isInject(candidate) || (constructor == null && candidate.getParameters().isEmpty()))
+            {
+                constructor = candidate;
+            }
+        }
+        if (constructor == null || constructor.getModifiers().contains(Modifier.PRIVATE) || module.getModifiers().contains(Modifier.ABSTRACT))
+        {
+            component.error(module, "needs a non-private @Inject constructor or constructor without parameters and must not be abstract");
+            return null;
+        }
+        component.provision(module, constructor);
+        return component.failed ? null : component;
+    }
+
+    /**
+     * @return the fields caching the singletons
+     */
+    String fields()
+    {
+        return fields.toString();
+    }
+
+    /**
+     * @return one method per created class, the module is created by {@code provide0()}
+     */
+    String provisions()
+    {
+        return provisions.toString();
+    }
+
+    private String provision(TypeElement type, ExecutableElement constructor)
+    {
+        String key = type.getQualifiedName().toString();
+        String method = methods.get(key);
+        if (method != null)
+        {
+            return method;
+        }
+        method = "provide" + methods.size();
+        methods.put(key, method);
+        path.push(key);
+
+        DeclaredType declared = (DeclaredType) type.asType();
+        checkThrows(constructor);
+        List<String> arguments = arguments(constructor, (ExecutableType) types.asMemberOf(declared, constructor));
+        String create = "new " + key + "(" + String.join(", ", arguments) + ")";
+        List<String> members = members(type, declared);
+        boolean singleton = type.getAnnotationMirrors().stream().anyMatch(annotation -> SINGLETON.contains(name(annotation)));
+
+        StringBuilder body = new StringBuilder();
+        String instance = singleton ? "singleton" + method.substring("provide".length()) : "instance";
+        if (singleton)
+        {
+            fields.append("        private ").append(key).append(' ').append(instance).append(";\n");
+            body.append("            if (").append(instance).append(" != null)\n")
+                .append("            {\n")
+                .append("                return ").append(instance).append(";\n")
+                .append("            }\n")
+                .append("            ").append(instance).append(" = ").append(create).append(";\n");
+        }
+        else if (members.isEmpty())
+        {
+            body.append("            return ").append(create).append(";\n");
+        }
+        else
+        {
+            body.append("            ").append(key).append(" instance = ").append(create).append(";\n");
+        }
+        for (String member : members)
+        {
+            body.append("            ").append(instance).append('.').append(member).append(";\n");
+        }
+        if (singleton || !members.isEmpty())
+        {
+            body.append("            return ").append(instance).append(";\n");
+        }
+
+        provisions.append('\n')
+                  .append("        private ").append(key).append(' ').append(method).append("()\n")
+                  .append("        {\n")
+                  .append(body)
+                  .append("        }\n");
+        path.pop();
+        return method;
+    }
+
+    /**
+     * Superclass members first, fields before methods like Guice.
+     */
+    private List<String> members(TypeElement type, DeclaredType declared)
+    {
+        Deque<TypeElement> hierarchy = new ArrayDeque<>();
+        for (TypeElement current = type; current != null; current = InjectionPoints.superclass(current))
+        {
+            hierarchy.addFirst(current);
+        }
+        List<String> members = new ArrayList<>();
+        for (TypeElement current : hierarchy)
+        {
+            List<String> methodCalls = new ArrayList<>();
+            for (Element member : current.getEnclosedElements())
+            {
+                if (!isInject(member) || member.getModifiers().contains(Modifier.STATIC))
+                {
+                    continue;
+                }
+                if (!isAccessible(member) || member.getModifiers().contains(Modifier.FINAL))
+                {
+                    error(member, "cannot be injected by the compile-time component, it must be accessible from "
+                            + packageName + " and must not be final");
+                    continue;
+                }
+                if (member.getKind() == ElementKind.FIELD)
+                {
+                    members.add(member.getSimpleName() + " = " + expression(member, types.asMemberOf(declared, member)));
+                }
+                else if (member.getKind() == ElementKind.METHOD)
+                {
+                    ExecutableElement method = (ExecutableElement) member;
+                    checkThrows(method);
+                    List<String> arguments = arguments(method, (ExecutableType) types.asMemberOf(declared, method));
+                    methodCalls.add(method.getSimpleName() + "(" + String.join(", ", arguments) + ")");
+                }
+            }
+            members.addAll(methodCalls);
+        }
+        return members;
+    }
+
+    private List<String> arguments(ExecutableElement executable, ExecutableType resolved)
+    {
+        List<String> arguments = new ArrayList<>();
+        for (int i = 0; i < executable.getParameters().size(); i++)
+        {
+            arguments.add(expression(executable.getParameters().get(i), resolved.getParameterTypes().get(i)));
+        }
+        return arguments;
+    }
+
+    /**
+     * @param site the injected parameter or field, its binding annotations qualify the type
+     */
+    private String expression(Element site, TypeMirror type)
+    {
+        String qualifiers = site.getAnnotationMirrors().stream()
+                                .filter(annotation -> isMarked(annotation, QUALIFIER))
+                                .map(AnnotationMirror::toString)
+                                .collect(Collectors.joining(" "));
+        if (type.getKind() == TypeKind.DECLARED)
+        {
+            DeclaredType declared = (DeclaredType) type;
+            TypeElement element = (TypeElement) declared.asElement();
+            if (PROVIDER.contains(element.getQualifiedName().toString()) && declared.getTypeArguments().size() == 1)
+            {
+                return "() -> " + expression(qualifiers, declared.getTypeArguments().get(0), true, site);
+            }
+        }
+        return expression(qualifiers, type, false, site);
+    }
+
+    private String expression(String qualifiers, TypeMirror type, boolean lazy, Element site)
+    {
+        if (type.getKind().isPrimitive())
+        {
+            type = types.boxedClass((PrimitiveType) type).asType();
+        }
+        ExecutableElement constructor = qualifiers.isEmpty() ? injectConstructor(type) : null;
+        if (constructor == null)
+        {
+            return "((" + type + ") resolver.resolve(" + javaLiteral(type.toString()) + ", "
+                    + (qualifiers.isEmpty() ? "null" : javaLiteral(qualifiers)) + "))";
+        }
+        TypeElement element = (TypeElement) types.asElement(type);
+        if (lazy)
+        {
+            // a provider is only called after the current instances are created
+            Deque<String> outer = path;
+            path = new ArrayDeque<>();
+            String method = provision(element, constructor);
+            path = outer;
+            return method + "()";
+        }
+        if (path.contains(element.getQualifiedName().toString()))
+        {
+            error(site, "is part of the dependency cycle " + String.join(" <- ", path) + ", inject a Provider to break it");
+            return "null";
+        }
+        return provision(element, constructor) + "()";
+    }
+
+    /**
+     * @return the {@code @Inject} constructor if the component can create the type itself, null otherwise
+     */
+    private ExecutableElement injectConstructor(TypeMirror type)
+    {
+        if (type.getKind() != TypeKind.DECLARED)
+        {
+            return null;
+        }
+        TypeElement element = (TypeElement) types.asElement(type);
+        if (element.getKind() != ElementKind.CLASS || element.getModifiers().contains(Modifier.ABSTRACT)
+                || !element.getTypeParameters().isEmpty() || !isAccessible(element))
+        {
+            return null;
+        }
+        for (AnnotationMirror annotation : element.getAnnotationMirrors())
+        {
+            if (isMarked(annotation, SCOPE) && !SINGLETON.contains(name(annotation)))
+            {
+                return null;
+            }
+        }
+        for (ExecutableElement constructor : ElementFilter.constructorsIn(element.getEnclosedElements()))
+        {
+            if (isInject(constructor) && isAccessible(constructor))
+            {
+                return constructor;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Whether the generated component in the package of the module can use the element. Members are accessed through
+     * the created class, so only their own modifiers matter. Nested classes have to be static.
+     */
+    private boolean isAccessible(Element element)
+    {
+        Set<Modifier> modifiers = element.getModifiers();
+        if (modifiers.contains(Modifier.PRIVATE))
+        {
+            return false;
+        }
+        if (!modifiers.contains(Modifier.PUBLIC) && !elements.getPackageOf(element).getQualifiedName().contentEquals(packageName))
+        {
+            return false;
+        }
+        if (element instanceof TypeElement type && type.getNestingKind() == NestingKind.MEMBER)
+        {
+            return modifiers.contains(Modifier.STATIC) && isAccessible(type.getEnclosingElement());
+        }
+        return true;
+    }
+
+    private void checkThrows(ExecutableElement executable)
+    {
+        TypeMirror runtime = elements.getTypeElement("java.lang.RuntimeException").asType();
+        TypeMirror error = elements.getTypeElement("java.lang.Error").asType();
+        for (TypeMirror thrown : executable.getThrownTypes())
+        {
+            if (!types.isAssignable(thrown, runtime) && !types.isAssignable(thrown, error))
+            {
+                error(executable, "cannot be called by the compile-time component, it throws the checked exception " + thrown);
+            }
+        }
+    }
+
+    private void error(Element element, String message)
+    {
+        failed = true;
+        messager.printMessage(Kind.ERROR, element + " " + message, element);
+    }
+}
@@ -0,0 +1,294 @@
+/*
+ * CubeEngine Plugin Generator - Generates necessary plugin glue code for CubeEngine modules.
+ * Copyright © 2018 CubeEngine (development@cubeengine.org)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.cubeengine.processor;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.annotation.processing.Messager;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.lang.model.util.Elements;
+import javax.lang.model.util.Types;
+import javax.tools.Diagnostic.Kind;
+
+/**
+ * A {@link Config} class whose fields can be read from and written to the node tree of its YAML file directly.
+ * <p>
+ * Supported are fields of type {@code String}, {@code boolean}, {@code int}, {@code long}, {@code float},
+ * {@code double} and their boxed types, enums, {@code List<String>} and sections, i.e. other {@link Config} classes
+ * with a no-arg constructor. The key of a field is its name in kebab case unless it is annotated with {@code @Name}.
+ * Classes with other fields are left to the reflective serialization of libcube.
+ *
+ * @param type the config class
+ * @param fields the serialized fields in declaration order, superclass fields first
+ */
+record ConfigClass(TypeElement type, List<Field> fields)
+{
+    static final String CONFIG = "org.cubeengine.processor.Config";
+    private static final String NAME = "org.cubeengine.reflect.annotations.Name";
+    private static final String REFLECT_PACKAGE = "org.cubeengine.reflect";
+    /** the only conversion without a key to report an invalid value with */
+    static final String STRING_VALUE = "stringValue";
+    /** the helper of {@code ConfigSerializer} converting a node value, by the type of the field */
+    private static final Map<String, String> CONVERSIONS = Map.ofEntries(
+            Map.entry("java.lang.String", STRING_VALUE),
+            Map.entry("boolean", "booleanValue"),
+            Map.entry("java.lang.Boolean", "booleanValue"),
+            Map.entry("int", "intValue"),
+            Map.entry("java.lang.Integer", "intValue"),
+            Map.entry("long", "longValue"),
+            Map.entry("java.lang.Long", "longValue"),
+            Map.entry("float", "floatValue"),
+            Map.entry("java.lang.Float", "floatValue"),
+            Map.entry("double", "doubleValue"),
+            Map.entry("java.lang.Double", "doubleValue"),
+            Map.entry("java.util.List<java.lang.String>", "stringList"));
+
+    /**
+     * @param name the field name
+     * @param key the key in the config file
+     * @param type the source of the field type
+     * @param conversion the helper converting a node value, null for enums and sections
+     * @param enumType whether the field is an enum
+     * @param serializer the qualified name of the serializer of a section, null for other fields
+     */
+    record Field(String name, String key, String type, String conversion, boolean enumType, String serializer)
+    {
+    }
+
+    /**
+     * @return the config class or null if it has to be serialized reflectively
+     */
+    static ConfigClass scan(TypeElement type, Elements elements, Types types, Messager messager)
+    {
+        return scan(type, elements, types, messager, new HashSet<>());
+    }
+
+    /**
+     * Sections are scanned as well, a section without a generated serializer makes the class reflective too. A section
+     * that is still being scanned, i.e. a cyclic one, is assumed to succeed since a failure fails every class on the
+     * way to it.
+     *
+     * @param messager the messager to explain a reflective class with, null when scanning a section
+     * @param scanning the classes whose scan started
+     */
+    private static ConfigClass scan(TypeElement type, Elements elements, Types types, Messager messager, Set<TypeElement> scanning)
+    {
+        scanning.add(type);
+        String packageName = elements.getPackageOf(type).getQualifiedName().toString();
+        if (type.getModifiers().contains(Modifier.PRIVATE) || type.getNestingKind().isNested() && !type.getModifiers().contains(Modifier.STATIC))
+        {
+            note(messager, type.getQualifiedName() + " is serialized reflectively, it must be a non-private static class", type);
+            return null;
+        }
+        List<TypeElement> hierarchy = new ArrayList<>();
+        for (TypeElement current = type; current != null; current = InjectionPoints.superclass(current))
+        {
+            if (!isReflectBase(current))
+            {
+                hierarchy.add(0, current);
+            }
+        }
+        List<Field> fields = new ArrayList<>();
+        for (TypeElement current : hierarchy)
+        {
+            for (VariableElement field : ElementFilter.fieldsIn(current.getEnclosedElements()))
+            {
+                Set<Modifier> modifiers = field.getModifiers();
+                if (modifiers.contains(Modifier.STATIC) || modifiers.contains(Modifier.TRANSIENT))
+                {
+                    continue;
+                }
+                String problem = modifiers.contains(Modifier.PRIVATE) || modifiers.contains(Modifier.FINAL)
+                                 || !modifiers.contains(Modifier.PUBLIC) && !elements.getPackageOf(field).getQualifiedName().contentEquals(packageName)
+                                 ? "is not assignable" : null;
+                Field serialized = problem == null ? field(field, elements, types, scanning) : null;
+                if (serialized == null)
+                {
+                    note(messager, type.getQualifiedName() + " is serialized reflectively, the field " + field.getSimpleName() + " "
+                                   + (problem == null ? "has an unsupported type or section" : problem), field);
+                    return null;
+                }
+                fields.add(serialized);
+            }
+        }
+        return new ConfigClass(type, fields);
+    }
+
+    /**
+     * The fields of the base classes in {@value #REFLECT_PACKAGE}, e.g. ReflectedYaml, are not serialized.
+     */
+    private static boolean isReflectBase(TypeElement type)
+    {
+        Element element = type;
+        while (!(element instanceof PackageElement))
+        {
+            element = element.getEnclosingElement();
+        }
+        return ((PackageElement) element).getQualifiedName().toString().startsWith(REFLECT_PACKAGE);
+    }
+
+    private static void note(Messager messager, String message, Element element)
+    {
+        if (messager != null)
+        {
+            messager.printMessage(Kind.NOTE, message, element);
+        }
+    }
+
+    private static Field field(VariableElement field, Elements elements, Types types, Set<TypeElement> scanning)
+    {
+        String name = field.getSimpleName().toString();
+        String key = key(field);
+        TypeMirror type = field.asType();
+        String conversion = CONVERSIONS.get(type.toString());
+        if (conversion != null)
+        {
+            return new Field(name, key, type.toString(), conversion, false, null);
+        }
+        if (type.getKind() != TypeKind.DECLARED)
+        {
+            return null;
+        }
+        TypeElement element = (TypeElement) ((DeclaredType) type).asElement();
+        String typeName = types.erasure(type).toString();
+        if (element.getKind() == ElementKind.ENUM)
+        {
+            return new Field(name, key, typeName, null, true, null);
+        }
+        if (CommandRoot.annotation(element, CONFIG) != null && hasDefaultConstructor(element, elements.getPackageOf(field).getQualifiedName().toString(), elements)
+            && (scanning.contains(element) || scan(element, elements, types, null, scanning) != null))
+        {
+            String packageName = elements.getPackageOf(element).getQualifiedName().toString();
+            return new Field(name, key, typeName, null, false, (packageName.isEmpty() ? "" : packageName + ".") + serializerName(element));
+        }
+        return null;
+    }
+
+    private static boolean hasDefaultConstructor(TypeElement type, String packageName, Elements elements)
+    {
+        if (type.getModifiers().contains(Modifier.ABSTRACT))
+        {
+            return false;
+        }
+        for (ExecutableElement constructor : ElementFilter.constructorsIn(type.getEnclosedElements()))
+        {
+            if (constructor.getParameters().isEmpty() && (constructor.getModifiers().contains(Modifier.PUBLIC)
+                || !constructor.getModifiers().contains(Modifier.PRIVATE) && elements.getPackageOf(type).getQualifiedName().contentEquals(packageName)))
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String key(Element field)
+    {
+        AnnotationMirror name = CommandRoot.annotation(field, NAME);
+        if (name != null)
+        {
+            for (var entry : name.getElementValues().entrySet())
+            {
+                if (entry.getKey().getSimpleName().contentEquals("value"))
+                {
+                    return (String) entry.getValue().getValue();
+                }
+            }
+        }
+        StringBuilder key = new StringBuilder();
+        for (char c : field.getSimpleName().toString().toCharArray())
+        {
+            if (Character.isUpperCase(c))
+            {
+                key.append('-').append(Character.toLowerCase(c));
+            }
+            else
+            {
+                key.append(c);
+            }
+        }
+        return key.toString();
+    }
+
+    /**
+     * @return the simple name of the generated serializer, the names of enclosing classes are prepended
+     */
+    static String serializerName(TypeElement type)
+    {
+        StringBuilder name = new StringBuilder("Serializer");
+        for (Element current = type; current instanceof TypeElement enclosing; current = current.getEnclosingElement())
+        {
+            name.insert(0, enclosing.getSimpleName());
+        }
+        return name.toString();
+    }
+
+    /**
+     * The keys and types of the fields including those of sections, changing whenever a config file written for the
+     * previous schema has to be rewritten.
+     */
+    String schemaHash()
+    {
+        List<String> parts = new ArrayList<>();
+        parts.add(type.getQualifiedName().toString());
+        schema(type, parts, new HashSet<>());
+        return OutputCache.hash(parts.toArray(String[]::new)).substring(0, 16);
+    }
+
+    private static void schema(TypeElement type, List<String> parts, Set<TypeElement> visited)
+    {
+        if (!visited.add(type))
+        {
+            return;
+        }
+        for (TypeElement current = type; current != null; current = InjectionPoints.superclass(current))
+        {
+            if (isReflectBase(current))
+            {
+                continue;
+            }
+            for (VariableElement field : ElementFilter.fieldsIn(current.getEnclosedElements()))
+            {
+                if (field.getModifiers().contains(Modifier.STATIC) || field.getModifiers().contains(Modifier.TRANSIENT))
+                {
+                    continue;
+                }
+                parts.add(key(field));
+                parts.add(field.asType().toString());
+                if (field.asType() instanceof DeclaredType declared && CommandRoot.annotation(declared.asElement(), CONFIG) != null)
+                {
+                    schema((TypeElement) declared.asElement(), parts, visited);
+                }
+            }
+        }
+    }
+}
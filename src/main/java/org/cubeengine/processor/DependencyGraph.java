@@ -0,0 +1,410 @@
+/*
+ * CubeEngine Plugin Generator - Generates necessary plugin glue code for CubeEngine modules.
+ * Copyright © 2018 CubeEngine (development@cubeengine.org)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.cubeengine.processor;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+import javax.annotation.processing.Messager;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.AnnotationValue;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.TypeElement;
+import javax.tools.Diagnostic.Kind;
+
+/**
+ * The dependency graph of all plugins in the compilation and the upstream plugins they depend on.
+ * <p>
+ * Dependencies on plugins outside of the compilation are resolved through the given upstream lookup, usually the
+ * dependency indexes of other CubeEngine modules on the classpath. Unknown plugins (e.g. spongeapi) are leaves.
+ */
+final class DependencyGraph
+{
+    private static final int MAX_LISTED_CYCLE_MEMBERS = 10;
+
+    private final List<String> ids = new ArrayList<>();
+    /** null for upstream plugins */
+    private final List<PluginModel> plugins = new ArrayList<>();
+    private final List<int[]> edges = new ArrayList<>();
+    private final Map<String, Integer> index = new HashMap<>();
+    private final List<Problem> problems = new ArrayList<>();
+
+    DependencyGraph(List<PluginModel> compiled, Function<String, List<String>> upstream)
+    {
+        for (PluginModel plugin : compiled)
+        {
+            Integer existing = index.get(plugin.id());
+            if (existing != null)
+            {
+                String message = "Duplicate plugin id " + plugin.id() + " declared by " + plugins.get(existing).element().getQualifiedName()
+                        + " and " + plugin.element().getQualifiedName();
+                problems.add(new Problem(plugins.get(existing), null, message));
+                problems.add(new Problem(plugin, null, message));
+                continue;
+            }
+            addNode(plugin.id(), plugin);
+        }
+
+        List<List<String>> dependencyIds = new ArrayList<>();
+        for (int node = 0; node < ids.size(); node++)
+        {
+            PluginModel plugin = plugins.get(node);
+            List<String> deps = new ArrayList<>();
+            Set<String> seen = new HashSet<>();
+            for (DependencyModel dep : plugin.dependencies())
+            {
+                if (dep.value().equals(plugin.id()))
+                {
+                    problems.add(new Problem(plugin, dep.value(), plugin.id() + " depends on itself"));
+                }
+                else if (!seen.add(dep.value()))
+                {
+                    problems.add(new Problem(plugin, dep.value(), plugin.id() + " declares the dependency " + dep.value() + " more than once"));
+                }
+                else
+                {
+                    deps.add(dep.value());
+                }
+            }
+            dependencyIds.add(deps);
+        }
+
+        // resolve upstream plugins breadth first, every id is looked up once
+        Deque<String> unresolved = new ArrayDeque<>();
+        for (List<String> deps : dependencyIds)
+        {
+            unresolved.addAll(deps);
+        }
+        while (!unresolved.isEmpty())
+        {
+            String id = unresolved.poll();
+            if (index.containsKey(id))
+            {
+                continue;
+            }
+            addNode(id, null);
+            List<String> deps = upstream.apply(id);
+            dependencyIds.add(deps);
+            unresolved.addAll(deps);
+        }
+
+        for (List<String> deps : dependencyIds)
+        {
+            int[] targets = new int[deps.size()];
+            int count = 0;
+            for (String dep : deps)
+            {
+                Integer target = index.get(dep);
+                // self dependencies of upstream plugins are not our business
+                if (target != edges.size())
+                {
+                    targets[count++] = target;
+                }
+            }
+            edges.add(count == targets.length ? targets : Arrays.copyOf(targets, count));
+        }
+
+        findCycles();
+    }
+
+    private void addNode(String id, PluginModel plugin)
+    {
+        index.put(id, ids.size());
+        ids.add(id);
+        plugins.add(plugin);
+    }
+
+    /**
+     * Tarjan's strongly connected components algorithm, iterative to survive deep dependency chains.
+     */
+    private void findCycles()
+    {
+        int size = ids.size();
+        int[] order = new int[size];
+        int[] low = new int[size];
+        boolean[] onStack = new boolean[size];
+        Arrays.fill(order, -1);
+        int[] stack = new int[size];
+        int stackSize = 0;
+        int[] callStack = new int[size];
+        int[] edgePos = new int[size];
+        int counter = 0;
+
+        for (int root = 0; root < size; root++)
+        {
+            if (order[root] != -1)
+            {
+                continue;
+            }
+            int depth = 0;
+            callStack[depth] = root;
+            edgePos[root] = 0;
+            order[root] = low[root] = counter++;
+            stack[stackSize++] = root;
+            onStack[root] = true;
+
+            while (depth >= 0)
+            {
+                int node = callStack[depth];
+                int[] targets = edges.get(node);
+                if (edgePos[node] < targets.length)
+                {
+                    int target = targets[edgePos[node]++];
+                    if (order[target] == -1)
+                    {
+                        order[target] = low[target] = counter++;
+                        stack[stackSize++] = target;
+                        onStack[target] = true;
+                        edgePos[target] = 0;
+                        callStack[++depth] = target;
+                    }
+                    else if (onStack[target])
+                    {
+                        low[node] = Math.min(low[node], order[target]);
+                    }
+                    continue;
+                }
+
+                if (low[node] == order[node])
+                {
+                    List<Integer> component = new ArrayList<>();
+                    int member;
+                    do
+                    {
+                        member = stack[--stackSize];
+                        onStack[member] = false;
+                        component.add(member);
+                    }
+                    while (member != node);
+                    if (component.size() > 1)
+                    {
+                        reportCycle(component);
+                    }
+                }
+                depth--;
+                if (depth >= 0)
+                {
+                    int parent = callStack[depth];
+                    low[parent] = Math.min(low[parent], low[node]);
+                }
+            }
+        }
+    }
+
+    private void reportCycle(List<Integer> component)
+    {
+        Set<Integer> members = new HashSet<>(component);
+        List<String> memberIds = new ArrayList<>();
+        for (int member : component)
+        {
+            memberIds.add(ids.get(member));
+        }
+        memberIds.sort(null);
+        // every edge of the cycle gets its own error, keep the messages short for large cycles
+        String cycle = memberIds.size() <= MAX_LISTED_CYCLE_MEMBERS ? String.join(", ", memberIds)
+                : String.join(", ", memberIds.subList(0, MAX_LISTED_CYCLE_MEMBERS)) + " and " + (memberIds.size() - MAX_LISTED_CYCLE_MEMBERS) + " more";
+        for (int member : component)
+        {
+            PluginModel plugin = plugins.get(member);
+            if (plugin == null)
+            {
+                continue;
+            }
+            for (int target : edges.get(member))
+            {
+                if (members.contains(target))
+                {
+                    problems.add(new Problem(plugin, ids.get(target), "Dependency on " + ids.get(target) + " is part of a dependency cycle: " + cycle));
+                }
+            }
+        }
+    }
+
+    boolean isValid()
+    {
+        return problems.isEmpty();
+    }
+
+    /**
+     * Computes the load order of the plugins in the compilation with Kahn's algorithm.
+     * <p>
+     * Every level only contains plugins whose dependencies are all in earlier levels, so the plugins of one level can
+     * be started in parallel. Upstream plugins count for the depth but are not part of the result.
+     *
+     * @return the plugin ids per level
+     */
+    List<List<String>> levels()
+    {
+        if (!isValid())
+        {
+            throw new IllegalStateException("The dependency graph is invalid");
+        }
+        int size = ids.size();
+        int[] pending = new int[size];
+        int[] dependentCount = new int[size];
+        for (int node = 0; node < size; node++)
+        {
+            pending[node] = edges.get(node).length;
+            for (int target : edges.get(node))
+            {
+                dependentCount[target]++;
+            }
+        }
+        int[][] dependents = new int[size][];
+        for (int node = 0; node < size; node++)
+        {
+            dependents[node] = new int[dependentCount[node]];
+            dependentCount[node] = 0;
+        }
+        for (int node = 0; node < size; node++)
+        {
+            for (int target : edges.get(node))
+            {
+                dependents[target][dependentCount[target]++] = node;
+            }
+        }
+
+        List<List<String>> levels = new ArrayList<>();
+        int[] current = new int[size];
+        int currentSize = 0;
+        for (int node = 0; node < size; node++)
+        {
+            if (pending[node] == 0)
+            {
+                current[currentSize++] = node;
+            }
+        }
+        int[] next = new int[size];
+        while (currentSize != 0)
+        {
+            List<String> level = new ArrayList<>();
+            int nextSize = 0;
+            for (int i = 0; i < currentSize; i++)
+            {
+                int node = current[i];
+                if (plugins.get(node) != null)
+                {
+                    level.add(ids.get(node));
+                }
+                for (int dependent : dependents[node])
+                {
+                    if (--pending[dependent] == 0)
+                    {
+                        next[nextSize++] = dependent;
+                    }
+                }
+            }
+            if (!level.isEmpty())
+            {
+                level.sort(null);
+                levels.add(level);
+            }
+            int[] swap = current;
+            current = next;
+            next = swap;
+            currentSize = nextSize;
+        }
+        return levels;
+    }
+
+    /**
+     * Reports all problems as errors on the offending annotation.
+     *
+     * @return true if the graph is valid
+     */
+    boolean validate(Messager messager)
+    {
+        for (Problem problem : problems)
+        {
+            report(messager, problem);
+        }
+        return problems.isEmpty();
+    }
+
+    private static void report(Messager messager, Problem problem)
+    {
+        TypeElement element = problem.plugin.element();
+        AnnotationMirror annotation = pluginAnnotation(element);
+        if (annotation == null)
+        {
+            messager.printMessage(Kind.ERROR, problem.message, element);
+            return;
+        }
+        if (problem.dependency != null)
+        {
+            for (Map.Entry<? extends ExecutableElement, ? extends AnnotationValue> entry : annotation.getElementValues().entrySet())
+            {
+                if (!entry.getKey().getSimpleName().contentEquals("dependencies") || !(entry.getValue().getValue() instanceof List<?> values))
+                {
+                    continue;
+                }
+                for (Object value : values)
+                {
+                    if (value instanceof AnnotationValue dependencyValue
+                            && dependencyValue.getValue() instanceof AnnotationMirror dependency
+                            && problem.dependency.equals(dependencyId(dependency)))
+                    {
+                        messager.printMessage(Kind.ERROR, problem.message, element, dependency);
+                        return;
+                    }
+                }
+            }
+        }
+        messager.printMessage(Kind.ERROR, problem.message, element, annotation);
+    }
+
+    private static AnnotationMirror pluginAnnotation(TypeElement element)
+    {
+        for (AnnotationMirror mirror : element.getAnnotationMirrors())
+        {
+            String name = ((TypeElement) mirror.getAnnotationType().asElement()).getQualifiedName().toString();
+            if (name.equals(PluginGenerator.PLUGIN_ANNOTATION) || name.equals(PluginGenerator.CORE_ANNOTATION))
+            {
+                return mirror;
+            }
+        }
+        return null;
+    }
+
+    private static String dependencyId(AnnotationMirror dependency)
+    {
+        for (Map.Entry<? extends ExecutableElement, ? extends AnnotationValue> entry : dependency.getElementValues().entrySet())
+        {
+            if (entry.getKey().getSimpleName().contentEquals("value"))
+            {
+                return String.valueOf(entry.getValue().getValue());
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @param dependency the id of the offending dependency or null if the plugin annotation itself is the problem
+     */
+    private record Problem(PluginModel plugin, String dependency, String message)
+    {
+    }
+}
@@ -0,0 +1,33 @@
+/*
+ * CubeEngine Plugin Generator - Generates necessary plugin glue code for CubeEngine modules.
+ * Copyright © 2018 CubeEngine (development@cubeengine.org)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.cubeengine.processor;
+
+/**
+ * A dependency of a generated plugin.
+ *
+ * @param value the plugin id of the dependency
+ * @param version the required version, may be empty
+ * @param optional whether the plugin can be loaded without the dependency
+ */
+record DependencyModel(String value, String version, boolean optional)
+{
+    static DependencyModel of(Dependency dependency)
+    {
+        return new DependencyModel(dependency.value(), dependency.version(), dependency.optional());
+    }
+}
@@ -0,0 +1,337 @@
+/*
+ * CubeEngine Plugin Generator - Generates necessary plugin glue code for CubeEngine modules.
+ * Copyright © 2018 CubeEngine (development@cubeengine.org)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.cubeengine.processor;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import javax.annotation.processing.Messager;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.AnnotationValue;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.NestingKind;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.ExecutableType;
+import javax.lang.model.type.PrimitiveType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.lang.model.util.Elements;
+import javax.lang.model.util.Types;
+import javax.tools.Diagnostic.Kind;
+
+/**
+ * The Guice injection points of a {@link Module} class, found at compile time so an explicit binding with a generated
+ * provider can replace the just-in-time binding.
+ *
+ * @param constructorParameters the parameters of the {@code @Inject} or default constructor
+ * @param fields the injected fields the generated provider assigns directly
+ * @param membersInjection whether the members have to be injected by a {@code MembersInjector}, e.g. because of
+ *                         private fields or injected methods, {@code fields} is empty then
+ * @param scope the scope annotation of the class or null if it is unscoped
+ * @param throwsChecked whether the constructor declares exceptions
+ * @param bound the canonical names of the classes in the package of the module the bindings bind as well, the module
+ *              and these classes depend on them directly or through a {@code Provider}
+ */
+record InjectionPoints(List<Injection> constructorParameters, List<Injection> fields, boolean membersInjection,
+                       String scope, boolean throwsChecked, List<String> bound)
+{
+    static final Set<String> INJECT = Set.of("com.google.inject.Inject", "javax.inject.Inject", "jakarta.inject.Inject");
+    static final Set<String> PROVIDER = Set.of("com.google.inject.Provider", "javax.inject.Provider", "jakarta.inject.Provider");
+    static final Set<String> QUALIFIER = Set.of("com.google.inject.BindingAnnotation", "javax.inject.Qualifier", "jakarta.inject.Qualifier");
+    static final Set<String> SCOPE = Set.of("com.google.inject.ScopeAnnotation", "javax.inject.Scope", "jakarta.inject.Scope");
+
+    /**
+     * A dependency of the module class.
+     *
+     * @param name the parameter or field name
+     * @param type the source of the boxed type
+     * @param qualifiers the source of the binding annotations, may be empty
+     */
+    record Injection(String name, String type, String qualifiers)
+    {
+    }
+
+    /**
+     * @return the injection points or null if Guice cannot create the class, a warning is reported then. The
+     *         dependencies the bindings cannot bind are reported as a note, libcube has to bind them explicitly.
+     */
+    static InjectionPoints scan(TypeElement type, Elements elements, Types types, Messager messager)
+    {
+        if (type.getModifiers().contains(Modifier.ABSTRACT))
+        {
+            messager.printMessage(Kind.WARNING, "No bindings are generated for the abstract module " + type.getQualifiedName(), type);
+            return null;
+        }
+        ExecutableElement constructor = null;
+        for (ExecutableElement candidate : ElementFilter.constructorsIn(type.getEnclosedElements()))
+        {
+            if (isInject(candidate) || (constructor == null && candidate.getParameters().isEmpty()))
+            {
+                constructor = candidate;
+            }
+        }
+        if (constructor == null || constructor.getModifiers().contains(Modifier.PRIVATE))
+        {
+            messager.printMessage(Kind.WARNING, "No bindings are generated for " + type.getQualifiedName()
+                    + ", it has neither an @Inject constructor nor an accessible constructor without parameters", type);
+            return null;
+        }
+
+        List<Injection> parameters = new ArrayList<>();
+        for (VariableElement parameter : constructor.getParameters())
+        {
+            parameters.add(injection(parameter, parameter.asType(), types));
+        }
+
+        String packageName = elements.getPackageOf(type).getQualifiedName().toString();
+        DeclaredType declared = (DeclaredType) type.asType();
+        Deque<TypeElement> hierarchy = new ArrayDeque<>();
+        for (TypeElement current = type; current != null; current = superclass(current))
+        {
+            hierarchy.addFirst(current);
+        }
+        List<Injection> fields = new ArrayList<>();
+        boolean membersInjection = false;
+        for (TypeElement current : hierarchy)
+        {
+            for (Element member : current.getEnclosedElements())
+            {
+                // @Inject constructors, also those of the superclasses, are no members to inject
+                boolean injectable = member.getKind() == ElementKind.FIELD || member.getKind() == ElementKind.METHOD;
+                if (!injectable || !isInject(member) || member.getModifiers().contains(Modifier.STATIC))
+                {
+                    continue;
+                }
+                if (member.getKind() != ElementKind.FIELD || !isAssignable((VariableElement) member, packageName, elements))
+                {
+                    membersInjection = true;
+                    continue;
+                }
+                fields.add(injection(member, types.asMemberOf(declared, member), types));
+            }
+        }
+        if (membersInjection)
+        {
+            fields.clear();
+        }
+
+        String scope = null;
+        for (AnnotationMirror annotation : type.getAnnotationMirrors())
+        {
+            if (isMarked(annotation, SCOPE))
+            {
+                scope = name(annotation);
+            }
+        }
+
+        Set<String> bound = new LinkedHashSet<>();
+        Set<String> unbound = new LinkedHashSet<>();
+        bind(type, constructor, packageName, bound, unbound, types);
+        if (!unbound.isEmpty())
+        {
+            messager.printMessage(Kind.NOTE, "The bindings of " + type.getQualifiedName() + " do not bind "
+                    + String.join(", ", unbound) + ", they have to be bound explicitly by libcube", type);
+        }
+        return new InjectionPoints(parameters, fields, membersInjection, scope, !constructor.getThrownTypes().isEmpty(),
+                                   List.copyOf(bound));
+    }
+
+    /**
+     * Collects the dependencies of the class, the bindable ones recursively.
+     *
+     * @param bound receives the classes in the package of the module Guice can create, they are bound untargeted
+     * @param unbound receives the source of all other dependencies
+     */
+    private static void bind(TypeElement type, ExecutableElement constructor, String packageName, Set<String> bound,
+                             Set<String> unbound, Types types)
+    {
+        DeclaredType declared = (DeclaredType) type.asType();
+        List<Element> sites = new ArrayList<>(constructor.getParameters());
+        List<TypeMirror> siteTypes = new ArrayList<>(((ExecutableType) types.asMemberOf(declared, constructor)).getParameterTypes());
+        for (TypeElement current = type; current != null; current = superclass(current))
+        {
+            for (Element member : current.getEnclosedElements())
+            {
+                if (!isInject(member) || member.getModifiers().contains(Modifier.STATIC))
+                {
+                    continue;
+                }
+                if (member.getKind() == ElementKind.FIELD)
+                {
+                    sites.add(member);
+                    siteTypes.add(types.asMemberOf(declared, member));
+                }
+                else if (member.getKind() == ElementKind.METHOD)
+                {
+                    sites.addAll(((ExecutableElement) member).getParameters());
+                    siteTypes.addAll(((ExecutableType) types.asMemberOf(declared, member)).getParameterTypes());
+                }
+            }
+        }
+
+        for (int i = 0; i < sites.size(); i++)
+        {
+            Element site = sites.get(i);
+            TypeMirror siteType = siteTypes.get(i);
+            if (siteType.getKind() == TypeKind.DECLARED)
+            {
+                DeclaredType provider = (DeclaredType) siteType;
+                if (PROVIDER.contains(((TypeElement) provider.asElement()).getQualifiedName().toString())
+                        && provider.getTypeArguments().size() == 1)
+                {
+                    siteType = provider.getTypeArguments().get(0);
+                }
+            }
+            Injection injection = injection(site, siteType, types);
+            ExecutableElement dependencyConstructor = injection.qualifiers().isEmpty() ? bindableConstructor(siteType, packageName, types) : null;
+            if (dependencyConstructor == null)
+            {
+                unbound.add(injection.qualifiers() + injection.type());
+                continue;
+            }
+            TypeElement dependency = (TypeElement) types.asElement(siteType);
+            if (dependency != type && bound.add(dependency.getQualifiedName().toString()))
+            {
+                bind(dependency, dependencyConstructor, packageName, bound, unbound, types);
+            }
+        }
+    }
+
+    /**
+     * @return the constructor Guice calls for an untargeted binding of a concrete class in the package of the module
+     *         or its subpackages, null if the type is not such a class
+     */
+    private static ExecutableElement bindableConstructor(TypeMirror type, String packageName, Types types)
+    {
+        if (type.getKind() != TypeKind.DECLARED)
+        {
+            return null;
+        }
+        TypeElement element = (TypeElement) types.asElement(type);
+        if (element.getKind() != ElementKind.CLASS || element.getModifiers().contains(Modifier.ABSTRACT)
+                || !element.getTypeParameters().isEmpty()
+                || (element.getNestingKind() != NestingKind.TOP_LEVEL && !element.getModifiers().contains(Modifier.STATIC)))
+        {
+            return null;
+        }
+        String name = element.getQualifiedName().toString();
+        if (!name.startsWith(packageName + "."))
+        {
+            return null;
+        }
+        ExecutableElement constructor = null;
+        for (ExecutableElement candidate : ElementFilter.constructorsIn(element.getEnclosedElements()))
+        {
+            if (isInject(candidate))
+            {
+                return candidate;
+            }
+            if (candidate.getParameters().isEmpty() && !candidate.getModifiers().contains(Modifier.PRIVATE))
+            {
+                constructor = candidate;
+            }
+        }
+        return constructor;
+    }
+
+    static TypeElement superclass(TypeElement type)
+    {
+        TypeMirror superclass = type.getSuperclass();
+        if (superclass.getKind() != TypeKind.DECLARED)
+        {
+            return null;
+        }
+        TypeElement element = (TypeElement) ((DeclaredType) superclass).asElement();
+        return element.getQualifiedName().contentEquals("java.lang.Object") ? null : element;
+    }
+
+    /**
+     * Final, optional and inaccessible fields are left to the {@code MembersInjector}.
+     */
+    private static boolean isAssignable(VariableElement field, String packageName, Elements elements)
+    {
+        Set<Modifier> modifiers = field.getModifiers();
+        if (modifiers.contains(Modifier.FINAL) || modifiers.contains(Modifier.PRIVATE) || isOptional(field))
+        {
+            return false;
+        }
+        return modifiers.contains(Modifier.PUBLIC) || elements.getPackageOf(field).getQualifiedName().contentEquals(packageName);
+    }
+
+    private static Injection injection(Element element, TypeMirror type, Types types)
+    {
+        if (type.getKind().isPrimitive())
+        {
+            type = types.boxedClass((PrimitiveType) type).asType();
+        }
+        String qualifiers = element.getAnnotationMirrors().stream()
+                                   .filter(annotation -> isMarked(annotation, QUALIFIER))
+                                   .map(annotation -> annotation + " ")
+                                   .collect(Collectors.joining());
+        return new Injection(element.getSimpleName().toString(), type.toString(), qualifiers);
+    }
+
+    static boolean isInject(Element element)
+    {
+        return element.getAnnotationMirrors().stream().anyMatch(annotation -> INJECT.contains(name(annotation)));
+    }
+
+    /**
+     * Only {@code com.google.inject.Inject} can be optional.
+     */
+    private static boolean isOptional(Element element)
+    {
+        for (AnnotationMirror annotation : element.getAnnotationMirrors())
+        {
+            if (!INJECT.contains(name(annotation)))
+            {
+                continue;
+            }
+            for (var entry : annotation.getElementValues().entrySet())
+            {
+                AnnotationValue value = entry.getValue();
+                if (entry.getKey().getSimpleName().contentEquals("optional") && Boolean.TRUE.equals(value.getValue()))
+                {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    static boolean isMarked(AnnotationMirror annotation, Set<String> markers)
+    {
+        return annotation.getAnnotationType().asElement().getAnnotationMirrors().stream().anyMatch(meta -> markers.contains(name(meta)));
+    }
+
+    static String name(AnnotationMirror annotation)
+    {
+        return ((TypeElement) annotation.getAnnotationType().asElement()).getQualifiedName().toString();
+    }
+}
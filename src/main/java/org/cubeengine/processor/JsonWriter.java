@@ -0,0 +1,226 @@
+/*
+ * CubeEngine Plugin Generator - Generates necessary plugin glue code for CubeEngine modules.
+ * Copyright © 2018 CubeEngine (development@cubeengine.org)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.cubeengine.processor;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Arrays;
+
+/**
+ * A minimal streaming JSON writer producing pretty printed output with four space indentation.
+ * <p>
+ * Everything is written directly to the underlying {@link Writer}, strings are escaped on the fly.
+ * A line break is written after the top-level value is closed.
+ */
+final class JsonWriter
+{
+    private static final int EMPTY_OBJECT = 0;
+    private static final int OBJECT = 1;
+    private static final int DANGLING_NAME = 2;
+    private static final int EMPTY_ARRAY = 3;
+    private static final int ARRAY = 4;
+
+    private static final String INDENT = "    ";
+
+    private final Writer out;
+    private int[] stack = new int[8];
+    private int depth = 0;
+
+    JsonWriter(Writer out)
+    {
+        this.out = out;
+    }
+
+    JsonWriter beginObject() throws IOException
+    {
+        beforeValue();
+        out.write('{');
+        push(EMPTY_OBJECT);
+        return this;
+    }
+
+    JsonWriter endObject() throws IOException
+    {
+        return close(EMPTY_OBJECT, OBJECT, '}');
+    }
+
+    JsonWriter beginArray() throws IOException
+    {
+        beforeValue();
+        out.write('[');
+        push(EMPTY_ARRAY);
+        return this;
+    }
+
+    JsonWriter endArray() throws IOException
+    {
+        return close(EMPTY_ARRAY, ARRAY, ']');
+    }
+
+    JsonWriter name(String name) throws IOException
+    {
+        int top = peek();
+        if (top != EMPTY_OBJECT && top != OBJECT)
+        {
+            throw new IllegalStateException("Names are only allowed inside of objects");
+        }
+        if (top == OBJECT)
+        {
+            out.write(',');
+        }
+        newline();
+        string(name);
+        out.write(": ");
+        stack[depth - 1] = DANGLING_NAME;
+        return this;
+    }
+
+    JsonWriter value(String value) throws IOException
+    {
+        beforeValue();
+        string(value);
+        return this;
+    }
+
+    JsonWriter value(boolean value) throws IOException
+    {
+        beforeValue();
+        out.write(value ? "true" : "false");
+        return this;
+    }
+
+    JsonWriter value(long value) throws IOException
+    {
+        beforeValue();
+        out.write(Long.toString(value));
+        return this;
+    }
+
+    private void beforeValue() throws IOException
+    {
+        if (depth == 0)
+        {
+            return;
+        }
+        switch (peek())
+        {
+            case DANGLING_NAME -> stack[depth - 1] = OBJECT;
+            case EMPTY_ARRAY, ARRAY -> {
+                if (peek() == ARRAY)
+                {
+                    out.write(',');
+                }
+                newline();
+                stack[depth - 1] = ARRAY;
+            }
+            default -> throw new IllegalStateException("Values inside of objects need a name");
+        }
+    }
+
+    private JsonWriter close(int empty, int nonEmpty, char bracket) throws IOException
+    {
+        int top = peek();
+        if (top != empty && top != nonEmpty)
+        {
+            throw new IllegalStateException("Nesting problem, cannot close " + bracket);
+        }
+        depth--;
+        if (top == nonEmpty)
+        {
+            newline();
+        }
+        out.write(bracket);
+        if (depth == 0)
+        {
+            out.write('\n');
+        }
+        return this;
+    }
+
+    private void push(int state)
+    {
+        if (depth == stack.length)
+        {
+            stack = Arrays.copyOf(stack, depth * 2);
+        }
+        stack[depth++] = state;
+    }
+
+    private int peek()
+    {
+        if (depth == 0)
+        {
+            throw new IllegalStateException("JsonWriter is closed");
+        }
+        return stack[depth - 1];
+    }
+
+    private void newline() throws IOException
+    {
+        out.write('\n');
+        for (int i = 0; i < depth; i++)
+        {
+            out.write(INDENT);
+        }
+    }
+
+    private void string(String value) throws IOException
+    {
+        out.write('"');
+        int last = 0;
+        int length = value.length();
+        for (int i = 0; i < length; i++)
+        {
+            char c = value.charAt(i);
+            String replacement;
+            if (c == '"')
+            {
+                replacement = "\\\"";
+            }
+            else if (c == '\\')
+            {
+                replacement = "\\\\";
+            }
+            else if (c == '\n')
+            {
+                replacement = "\\n";
+            }
+            else if (c == '\r')
+            {
+                replacement = "\\r";
+            }
+            else if (c == '\t')
+            {
+                replacement = "\\t";
+            }
+            else if (c < 0x20 || c == '\u2028' || c == '\u2029')
+            {
+                replacement = String.format("\\u%04x", (int) c);
+            }
+            else
+            {
+                continue;
+            }
+            out.write(value, last, i - last);
+            out.write(replacement);
+            last = i + 1;
+        }
+        out.write(value, last, length - last);
+        out.write('"');
+    }
+}
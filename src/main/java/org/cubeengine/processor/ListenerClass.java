@@ -0,0 +1,195 @@
+/*
+ * CubeEngine Plugin Generator - Generates necessary plugin glue code for CubeEngine modules.
+ * Copyright © 2018 CubeEngine (development@cubeengine.org)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.cubeengine.processor;
+
+import static org.cubeengine.processor.InjectionPoints.name;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.annotation.processing.Messager;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.AnnotationValue;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.NestingKind;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.lang.model.util.Elements;
+import javax.lang.model.util.Types;
+import javax.tools.Diagnostic.Kind;
+
+/**
+ * A listener class of a module whose {@code @Listener} methods can be dispatched without reflection.
+ * <p>
+ * Only classes whose listener methods all take just the event are supported, filter annotations and inherited
+ * listener methods are left to the reflective registration of the event manager.
+ *
+ * @param type the listener class
+ * @param methods the listener methods
+ */
+record ListenerClass(TypeElement type, List<Method> methods)
+{
+    static final String LISTENER = "org.spongepowered.api.event.Listener";
+    private static final String EVENT = "org.spongepowered.api.event.Event";
+    private static final String FILTER_PACKAGE = "org.spongepowered.api.event.filter";
+
+    /**
+     * @param name the method name
+     * @param event the source of the event type
+     * @param generic whether the event type has type arguments and needs a type token
+     * @param order the name of the {@code Order} constant
+     */
+    record Method(String name, String event, boolean generic, String order, boolean beforeModifications)
+    {
+    }
+
+    /**
+     * @param packageName the package of the generated dispatcher
+     * @return the listener class or null if it has to be registered reflectively, a note is reported then
+     */
+    static ListenerClass scan(TypeElement type, String packageName, Elements elements, Types types, Messager messager)
+    {
+        if (!isAccessible(type, packageName, elements))
+        {
+            messager.printMessage(Kind.NOTE, type.getQualifiedName() + " is registered reflectively, it is not accessible from " + packageName, type);
+            return null;
+        }
+        for (TypeElement superclass = InjectionPoints.superclass(type); superclass != null; superclass = InjectionPoints.superclass(superclass))
+        {
+            if (ElementFilter.methodsIn(superclass.getEnclosedElements()).stream().anyMatch(ListenerClass::isListener))
+            {
+                messager.printMessage(Kind.NOTE, type.getQualifiedName() + " is registered reflectively, it inherits listener methods", type);
+                return null;
+            }
+        }
+        TypeElement eventType = elements.getTypeElement(EVENT);
+        if (eventType == null)
+        {
+            return null;
+        }
+        TypeMirror event = eventType.asType();
+        List<Method> methods = new ArrayList<>();
+        for (ExecutableElement method : ElementFilter.methodsIn(type.getEnclosedElements()))
+        {
+            if (!isListener(method))
+            {
+                continue;
+            }
+            String problem = problem(method, packageName, event, elements, types);
+            if (problem != null)
+            {
+                messager.printMessage(Kind.NOTE, type.getQualifiedName() + " is registered reflectively, " + problem, method);
+                return null;
+            }
+            TypeMirror parameter = method.getParameters().get(0).asType();
+            String order = "DEFAULT";
+            boolean beforeModifications = false;
+            for (AnnotationMirror annotation : method.getAnnotationMirrors())
+            {
+                if (!name(annotation).equals(LISTENER))
+                {
+                    continue;
+                }
+                for (var entry : annotation.getElementValues().entrySet())
+                {
+                    AnnotationValue value = entry.getValue();
+                    switch (entry.getKey().getSimpleName().toString())
+                    {
+                        case "order" -> order = ((VariableElement) value.getValue()).getSimpleName().toString();
+                        case "beforeModifications" -> beforeModifications = (Boolean) value.getValue();
+                        default -> { }
+                    }
+                }
+            }
+            boolean generic = !((DeclaredType) parameter).getTypeArguments().isEmpty();
+            methods.add(new Method(method.getSimpleName().toString(), parameter.toString(), generic, order, beforeModifications));
+        }
+        return methods.isEmpty() ? null : new ListenerClass(type, methods);
+    }
+
+    /**
+     * @return why the method cannot be called directly or null
+     */
+    private static String problem(ExecutableElement method, String packageName, TypeMirror event, Elements elements, Types types)
+    {
+        if (method.getModifiers().contains(Modifier.STATIC) || !method.getTypeParameters().isEmpty())
+        {
+            return method.getSimpleName() + " is static or generic";
+        }
+        if (!isAccessible(method, packageName, elements))
+        {
+            return method.getSimpleName() + " is not accessible from " + packageName;
+        }
+        if (method.getParameters().size() != 1 || !method.getParameters().get(0).getAnnotationMirrors().isEmpty())
+        {
+            return method.getSimpleName() + " takes more than the event";
+        }
+        TypeMirror parameter = method.getParameters().get(0).asType();
+        if (parameter.getKind() != TypeKind.DECLARED || !types.isAssignable(types.erasure(parameter), event))
+        {
+            return method.getSimpleName() + " does not take an event";
+        }
+        for (TypeMirror argument : ((DeclaredType) parameter).getTypeArguments())
+        {
+            if (argument.getKind() != TypeKind.DECLARED)
+            {
+                return method.getSimpleName() + " takes an event with wildcard or variable type arguments";
+            }
+        }
+        for (AnnotationMirror annotation : method.getAnnotationMirrors())
+        {
+            if (name(annotation).startsWith(FILTER_PACKAGE + "."))
+            {
+                return method.getSimpleName() + " uses event filters";
+            }
+        }
+        return null;
+    }
+
+    static boolean isListener(Element element)
+    {
+        return element.getAnnotationMirrors().stream().anyMatch(annotation -> name(annotation).equals(LISTENER));
+    }
+
+    private static boolean isAccessible(Element element, String packageName, Elements elements)
+    {
+        if (element.getModifiers().contains(Modifier.PRIVATE))
+        {
+            return false;
+        }
+        if (!element.getModifiers().contains(Modifier.PUBLIC) && !elements.getPackageOf(element).getQualifiedName().contentEquals(packageName))
+        {
+            return false;
+        }
+        if (element instanceof TypeElement type && type.getNestingKind() == NestingKind.MEMBER)
+        {
+            return type.getModifiers().contains(Modifier.STATIC) && isAccessible(type.getEnclosingElement(), packageName, elements);
+        }
+        if (element instanceof ExecutableElement)
+        {
+            return isAccessible(element.getEnclosingElement(), packageName, elements);
+        }
+        return true;
+    }
+}
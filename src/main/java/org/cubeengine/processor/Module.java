@@ -22,8 +22,14 @@ import java.lang.annotation.Retention;
 import java.lang.annotation.RetentionPolicy;
 import java.lang.annotation.Target;
 
-@Retention(RetentionPolicy.SOURCE)
+@Retention(RetentionPolicy.CLASS)
 @Target(ElementType.TYPE)
 public @interface Module {
     Dependency[] dependencies() default {};
+
+    /**
+     * Defers constructing and initializing the module until one of its commands is used or one of the events its
+     * listeners handle is posted, the commands are registered as stubs in the meantime.
+     */
+    boolean lazy() default false;
 }
@@ -0,0 +1,206 @@
+/*
+ * CubeEngine Plugin Generator - Generates necessary plugin glue code for CubeEngine modules.
+ * Copyright © 2018 CubeEngine (development@cubeengine.org)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.cubeengine.processor;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import javax.annotation.processing.Messager;
+import javax.tools.Diagnostic.Kind;
+
+/**
+ * Writes {@code META-INF/cubeengine/modules.idx}, a binary index of the plugins of a compilation that can be memory
+ * mapped and searched at runtime without parsing {@code sponge_plugins.json} or scanning the classpath.
+ * <p>
+ * All numbers are big endian, offsets into the string table are relative to its start and every section is 4 byte
+ * aligned:
+ * <pre>
+ * header (24 bytes)
+ *   int   magic 'CEMI'
+ *   short format version
+ *   short reserved (0)
+ *   int   module count
+ *   int   edge count
+ *   int   string table offset
+ *   int   string table length
+ * module records (20 bytes each, sorted by id so they can be binary searched)
+ *   int   id string
+ *   int   entrypoint string
+ *   int   version string
+ *   int   index of the first edge
+ *   short edge count
+ *   short flags, see {@link #CORE}
+ * edge records (12 bytes each, grouped by module)
+ *   int   plugin id string
+ *   int   version string
+ *   int   flags, see {@link #OPTIONAL}
+ * string table
+ *   unsigned short UTF-8 length followed by the UTF-8 bytes, every distinct string is stored once
+ * </pre>
+ */
+final class ModuleIndex
+{
+    static final String FILE = "META-INF/cubeengine/modules.idx";
+    static final int MAGIC = 0x43454D49;
+    static final short FORMAT_VERSION = 1;
+    static final int HEADER_SIZE = 24;
+    static final int MODULE_RECORD_SIZE = 20;
+    static final int EDGE_RECORD_SIZE = 12;
+    /** module flag of the core plugin */
+    static final short CORE = 1;
+    /** edge flag of an optional dependency */
+    static final int OPTIONAL = 1;
+    /** the maximum edge count of a module and UTF-8 length of a string */
+    static final int MAX_UNSIGNED_SHORT = 0xFFFF;
+
+    private final Map<String, Integer> strings = new HashMap<>();
+    private final ByteArrayOutputStream stringTable = new ByteArrayOutputStream();
+
+    private ModuleIndex()
+    {
+    }
+
+    /**
+     * Reports the plugins exceeding the limits of the format as errors on their annotated class, so they fail the
+     * compilation before the index is written.
+     *
+     * @return true if all plugins fit into the index
+     */
+    static boolean validate(List<PluginModel> plugins, Messager messager)
+    {
+        boolean valid = true;
+        for (PluginModel plugin : plugins)
+        {
+            if (plugin.dependencies().size() > MAX_UNSIGNED_SHORT)
+            {
+                messager.printMessage(Kind.ERROR, plugin.id() + " has " + plugin.dependencies().size() + " dependencies, "
+                        + FILE + " supports at most " + MAX_UNSIGNED_SHORT, plugin.element());
+                valid = false;
+            }
+            List<String> values = new ArrayList<>(List.of(plugin.id(), plugin.entrypoint(), plugin.version()));
+            for (DependencyModel dep : plugin.dependencies())
+            {
+                values.add(dep.value());
+                values.add(dep.version());
+            }
+            for (String value : values)
+            {
+                int length = value.getBytes(StandardCharsets.UTF_8).length;
+                if (length > MAX_UNSIGNED_SHORT)
+                {
+                    messager.printMessage(Kind.ERROR, "The string " + value.substring(0, 32) + "... of " + plugin.id() + " is " + length
+                            + " bytes long, " + FILE + " supports at most " + MAX_UNSIGNED_SHORT, plugin.element());
+                    valid = false;
+                }
+            }
+        }
+        return valid;
+    }
+
+    /**
+     * Writes the index, the plugins have to be {@link #validate(List, Messager) valid}.
+     */
+    static void write(List<PluginModel> plugins, OutputStream out) throws IOException
+    {
+        new ModuleIndex().writeTo(plugins, out);
+    }
+
+    private void writeTo(List<PluginModel> plugins, OutputStream out) throws IOException
+    {
+        List<PluginModel> sorted = new ArrayList<>(plugins);
+        sorted.sort(Comparator.comparing(PluginModel::id));
+        int edgeCount = 0;
+        for (PluginModel plugin : sorted)
+        {
+            edgeCount += plugin.dependencies().size();
+        }
+
+        ByteArrayOutputStream recordBytes = new ByteArrayOutputStream(sorted.size() * MODULE_RECORD_SIZE + edgeCount * EDGE_RECORD_SIZE);
+        DataOutputStream records = new DataOutputStream(recordBytes);
+        int firstEdge = 0;
+        for (PluginModel plugin : sorted)
+        {
+            if (plugin.dependencies().size() > MAX_UNSIGNED_SHORT)
+            {
+                throw new IllegalStateException(plugin.id() + " has too many dependencies for " + FILE);
+            }
+            records.writeInt(string(plugin.id()));
+            records.writeInt(string(plugin.entrypoint()));
+            records.writeInt(string(plugin.version()));
+            records.writeInt(firstEdge);
+            records.writeShort(plugin.dependencies().size());
+            records.writeShort(plugin.core() ? CORE : 0);
+            firstEdge += plugin.dependencies().size();
+        }
+        for (PluginModel plugin : sorted)
+        {
+            for (DependencyModel dep : plugin.dependencies())
+            {
+                records.writeInt(string(dep.value()));
+                records.writeInt(string(dep.version()));
+                records.writeInt(dep.optional() ? OPTIONAL : 0);
+            }
+        }
+        while (stringTable.size() % 4 != 0)
+        {
+            stringTable.write(0);
+        }
+
+        DataOutputStream data = new DataOutputStream(out);
+        data.writeInt(MAGIC);
+        data.writeShort(FORMAT_VERSION);
+        data.writeShort(0);
+        data.writeInt(sorted.size());
+        data.writeInt(edgeCount);
+        data.writeInt(HEADER_SIZE + recordBytes.size());
+        data.writeInt(stringTable.size());
+        recordBytes.writeTo(data);
+        stringTable.writeTo(data);
+        data.flush();
+    }
+
+    /**
+     * @return the offset of the string in the string table, adding it if it is new
+     */
+    private int string(String value)
+    {
+        Integer offset = strings.get(value);
+        if (offset != null)
+        {
+            return offset;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > MAX_UNSIGNED_SHORT)
+        {
+            throw new IllegalStateException("String too long for " + FILE + ": " + value);
+        }
+        offset = stringTable.size();
+        stringTable.write(bytes.length >>> 8);
+        stringTable.write(bytes.length);
+        stringTable.write(bytes, 0, bytes.length);
+        strings.put(value, offset);
+        return offset;
+    }
+}
@@ -0,0 +1,118 @@
+/*
+ * CubeEngine Plugin Generator - Generates necessary plugin glue code for CubeEngine modules.
+ * Copyright © 2018 CubeEngine (development@cubeengine.org)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.cubeengine.processor;
+
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import javax.annotation.processing.Messager;
+import javax.tools.Diagnostic.Kind;
+
+/**
+ * The {@code cubeengine.module.*} processor options, parsed and validated once per compilation.
+ *
+ * @param id the id option without the {@code cubeengine-} prefix or null if not given
+ * @param name the name option or null if not given
+ * @param coreDependency the implicit dependency of every module on the core plugin
+ * @param spongeDependency the implicit dependency of every plugin on the sponge api
+ * @param compileTimeInjection whether the modules get a generated component instead of Guice bindings, see
+ *                             {@link #DEPENDENCY_INJECTION}
+ */
+record ModuleOptions(String version, String sourceVersion, String id, String name, String description, String team, String url,
+                     DependencyModel coreDependency, DependencyModel spongeDependency, boolean compileTimeInjection)
+{
+    static final String PREFIX = "cubeengine.module.";
+    static final String VERSION = PREFIX + "version";
+    static final String SOURCE_VERSION = PREFIX + "sourceversion";
+    static final String ID = PREFIX + "id";
+    static final String NAME = PREFIX + "name";
+    static final String DESCRIPTION = PREFIX + "description";
+    static final String TEAM = PREFIX + "team";
+    static final String URL = PREFIX + "url";
+    static final String LIBCUBE_VERSION = PREFIX + "libcube.version";
+    static final String SPONGE_VERSION = PREFIX + "sponge.version";
+
+    /** the dependency injection backend of the modules, {@code guice} (default) or {@code compiletime} */
+    static final String DEPENDENCY_INJECTION = "cubeengine.di";
+    static final String DI_GUICE = "guice";
+    static final String DI_COMPILE_TIME = "compiletime";
+
+    static final String PLUGIN_ID_PREFIX = "cubeengine-";
+    static final String CORE_ID = PLUGIN_ID_PREFIX + "core";
+    static final String SPONGE_ID = "spongeapi";
+
+    private static final String UNKNOWN = "unknown";
+
+    /** Sponge rejects plugins whose id does not match this */
+    static final Pattern PLUGIN_ID = Pattern.compile("[a-z][a-z0-9-_]{1,63}");
+    /** Unresolved build properties, e.g. when the git properties are missing */
+    private static final Pattern PLACEHOLDER = Pattern.compile("\\$\\{[^}]*}");
+
+    static ModuleOptions parse(Map<String, String> options, Messager messager)
+    {
+        Parser parser = new Parser(options, messager);
+        String id = parser.get(ID, null);
+        if (id != null && !PLUGIN_ID.matcher(PLUGIN_ID_PREFIX + id).matches())
+        {
+            messager.printMessage(Kind.ERROR, "Option %s=%s results in the invalid plugin id %s%s, it must match %s"
+                    .formatted(ID, id, PLUGIN_ID_PREFIX, id, PLUGIN_ID.pattern()));
+        }
+        String di = parser.get(DEPENDENCY_INJECTION, DI_GUICE);
+        if (!di.equals(DI_GUICE) && !di.equals(DI_COMPILE_TIME))
+        {
+            messager.printMessage(Kind.ERROR, "Option %s=%s is unknown, it must be %s or %s"
+                    .formatted(DEPENDENCY_INJECTION, di, DI_GUICE, DI_COMPILE_TIME));
+        }
+        return new ModuleOptions(parser.get(VERSION, UNKNOWN),
+                                 parser.get(SOURCE_VERSION, UNKNOWN),
+                                 id,
+                                 parser.get(NAME, null),
+                                 parser.get(DESCRIPTION, UNKNOWN),
+                                 parser.get(TEAM, UNKNOWN) + " Team",
+                                 parser.get(URL, ""),
+                                 new DependencyModel(CORE_ID, parser.get(LIBCUBE_VERSION, UNKNOWN), false),
+                                 new DependencyModel(SPONGE_ID, parser.get(SPONGE_VERSION, UNKNOWN), false),
+                                 di.equals(DI_COMPILE_TIME));
+    }
+
+    boolean hasPluginIdentity()
+    {
+        return id != null || name != null;
+    }
+
+    private record Parser(Map<String, String> options, Messager messager)
+    {
+        String get(String key, String defaultValue)
+        {
+            String value = options.get(key);
+            if (value == null)
+            {
+                return defaultValue;
+            }
+            Matcher placeholder = PLACEHOLDER.matcher(value);
+            if (placeholder.find())
+            {
+                messager.printMessage(Kind.WARNING, "Option %s=%s contains the unresolved placeholder %s, using %s instead"
+                        .formatted(key, value, placeholder.group(), defaultValue == null ? "the default" : "\"" + defaultValue + "\""));
+                return defaultValue;
+            }
+            return value;
+        }
+    }
+}
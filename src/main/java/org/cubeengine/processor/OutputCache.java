@@ -0,0 +1,140 @@
+/*
+ * CubeEngine Plugin Generator - Generates necessary plugin glue code for CubeEngine modules.
+ * Copyright © 2018 CubeEngine (development@cubeengine.org)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.cubeengine.processor;
+
+import static javax.tools.StandardLocation.CLASS_OUTPUT;
+import static javax.tools.StandardLocation.SOURCE_OUTPUT;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Properties;
+
+import javax.annotation.processing.Filer;
+import javax.annotation.processing.Messager;
+import javax.tools.FileObject;
+
+/**
+ * Remembers a hash of the model each generated resource was rendered from.
+ * <p>
+ * If the model did not change and the resource still exists from a previous compilation it is left untouched, so
+ * its timestamp does not change and downstream tasks (jar packaging, resource copying) can be skipped.
+ * Generated sources are not cached, javac only compiles them when they are created through the {@link Filer}.
+ * <p>
+ * The cache itself is kept in the {@link javax.tools.StandardLocation#SOURCE_OUTPUT} so it does not end up in the jar.
+ */
+final class OutputCache
+{
+    private static final String CACHE_FILE = "plugin-gen.cache";
+
+    private final Filer filer;
+    private final Messager messager;
+    private final Properties hashes = new Properties();
+    private boolean dirty = false;
+
+    OutputCache(Filer filer, Messager messager)
+    {
+        this.filer = filer;
+        this.messager = messager;
+        try (InputStream in = filer.getResource(SOURCE_OUTPUT, "", CACHE_FILE).openInputStream())
+        {
+            hashes.load(in);
+        }
+        catch (IOException | IllegalArgumentException e)
+        {
+            // no (readable) cache from a previous compilation
+        }
+    }
+
+    /**
+     * Checks whether the given resource needs to be (re)written.
+     *
+     * @param packageName the package of the resource relative to the class output
+     * @param fileName the file name of the resource
+     * @param modelHash the hash of the model the resource is rendered from, see {@link #hash(String...)}
+     * @return true if the resource is missing or was rendered from a different model
+     */
+    boolean isStale(String packageName, String fileName, String modelHash)
+    {
+        String path = packageName.isEmpty() ? fileName : packageName + "/" + fileName;
+        if (modelHash.equals(hashes.getProperty(path)) && exists(packageName, fileName))
+        {
+            messager.printNote("Output cache hit: " + path);
+            return false;
+        }
+        messager.printNote("Output cache miss: " + path);
+        hashes.setProperty(path, modelHash);
+        dirty = true;
+        return true;
+    }
+
+    private boolean exists(String packageName, String fileName)
+    {
+        try
+        {
+            FileObject resource = filer.getResource(CLASS_OUTPUT, packageName, fileName);
+            return resource.getLastModified() != 0;
+        }
+        catch (IOException | IllegalArgumentException e)
+        {
+            return false;
+        }
+    }
+
+    /**
+     * Persists the cache if any resource was written.
+     */
+    void save()
+    {
+        if (!dirty)
+        {
+            return;
+        }
+        try (OutputStream out = filer.createResource(SOURCE_OUTPUT, "", CACHE_FILE).openOutputStream())
+        {
+            hashes.store(out, "CubeEngine Plugin Generator output cache");
+            dirty = false;
+        }
+        catch (IOException e)
+        {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    static String hash(String... parts)
+    {
+        try
+        {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            for (String part : parts)
+            {
+                digest.update(part.getBytes(StandardCharsets.UTF_8));
+                digest.update((byte) 0);
+            }
+            return HexFormat.of().formatHex(digest.digest());
+        }
+        catch (NoSuchAlgorithmException e)
+        {
+            throw new IllegalStateException(e);
+        }
+    }
+}
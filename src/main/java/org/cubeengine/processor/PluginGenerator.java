@@ -18,18 +18,30 @@
 package org.cubeengine.processor;
 
 import static javax.tools.StandardLocation.CLASS_OUTPUT;
+import static javax.tools.StandardLocation.CLASS_PATH;
+import static org.cubeengine.processor.ConfigClass.CONFIG;
+import static org.cubeengine.processor.ListenerClass.LISTENER;
+import static org.cubeengine.processor.PluginGenerator.CDS_OPTION;
 import static org.cubeengine.processor.PluginGenerator.CORE_ANNOTATION;
 import static org.cubeengine.processor.PluginGenerator.DEP_ANNOTATION;
 import static org.cubeengine.processor.PluginGenerator.PLUGIN_ANNOTATION;
+import static org.cubeengine.processor.PluginGenerator.REPORT_OPTION;
 
+import java.io.BufferedOutputStream;
 import java.io.BufferedWriter;
 import java.io.IOException;
-import java.lang.annotation.Annotation;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
-import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
-import java.util.stream.Collectors;
 
 import javax.annotation.processing.AbstractProcessor;
 import javax.annotation.processing.Messager;
@@ -40,13 +52,14 @@ import javax.annotation.processing.SupportedOptions;
 import javax.annotation.processing.SupportedSourceVersion;
 import javax.lang.model.SourceVersion;
 import javax.lang.model.element.Element;
-import javax.lang.model.element.Name;
+import javax.lang.model.element.ExecutableElement;
 import javax.lang.model.element.PackageElement;
 import javax.lang.model.element.TypeElement;
+import javax.lang.model.util.ElementFilter;
 import javax.tools.FileObject;
 
-@SupportedOptions({"cubeengine.module.version", "cubeengine.module.sourceversion", "cubeengine.module.id", "cubeengine.module.name", "cubeengine.module.description", "cubeengine.module.team", "cubeengine.module.url", "cubeengine.module.libcube.version", "cubeengine.module.sponge.version"})
-@SupportedAnnotationTypes({ PLUGIN_ANNOTATION, CORE_ANNOTATION, DEP_ANNOTATION })
+@SupportedOptions({"cubeengine.module.version", "cubeengine.module.sourceversion", "cubeengine.module.id", "cubeengine.module.name", "cubeengine.module.description", "cubeengine.module.team", "cubeengine.module.url", "cubeengine.module.libcube.version", "cubeengine.module.sponge.version", "cubeengine.di", REPORT_OPTION, CDS_OPTION})
+@SupportedAnnotationTypes({ PLUGIN_ANNOTATION, CORE_ANNOTATION, DEP_ANNOTATION, LISTENER, CONFIG })
 @SupportedSourceVersion(SourceVersion.RELEASE_21)
 public class PluginGenerator extends AbstractProcessor
 {
@@ -56,251 +69,909 @@ public class PluginGenerator extends AbstractProcessor
     static final String CORE_ANNOTATION = PACKAGE + "Core";
     static final String DEP_ANNOTATION = PACKAGE + "Dependency";
 
+    static final String REPORT_OPTION = "cubeengine.processor.report";
+    /** writes the AppCDS class list of the compilation, see {@link CdsClassList} */
+    static final String CDS_OPTION = "cubeengine.processor.cds";
+    /** loads the classes of the class list of a plugin in a training run for a dynamic archive */
+    private static final String TRAINING_CLASS = "CdsTraining";
+    private static final String DEFAULT_REPORT_FILE = "META-INF/cubeengine/plugin-gen-report.json";
+    /** one file per plugin id listing the ids of its dependencies, used to validate downstream dependency graphs */
+    private static final String DEPENDENCY_INDEX = "META-INF/cubeengine/dependencies/";
+    private static final String LOAD_ORDER_FILE = "META-INF/cubeengine/load-order.json";
+    /** the GraalVM native-image configuration of each plugin id, see {@link ReflectConfig} */
+    private static final String NATIVE_IMAGE_DIR = "META-INF/native-image/org.cubeengine/";
+    private static final String STARTING_EVENT = "org.spongepowered.api.event.lifecycle.StartingEngineEvent";
+    private static final String REGISTER_COMMAND_EVENT = "org.spongepowered.api.event.lifecycle.RegisterCommandEvent";
+
+    /** the package of the runtime support classes generated once next to the {@link Core} plugin */
+    private static final String SUPPORT_PACKAGE = "org.cubeengine.libcube";
+    /**
+     * The sources of the runtime support classes are compiled with this project (see {@code src/main/runtime}) and
+     * bundled below this directory, outside of their package so javac never picks them up from the classpath.
+     */
+    private static final String SUPPORT_RESOURCES = "/META-INF/plugin-gen/" + SUPPORT_PACKAGE.replace('.', '/') + "/";
+    /**
+     * The modules submit their construction and initialization to it together with their compile-time dependencies,
+     * so independent modules can start concurrently and a failing module does not stop the others.
+     */
+    private static final String ORCHESTRATOR_CLASS = "ModuleOrchestrator";
+    /**
+     * The service interface of the descriptors generated for every plugin, listed in {@code META-INF/services} so
+     * tooling can enumerate the installed modules without loading the plugin classes.
+     */
+    private static final String DESCRIPTOR_CLASS = "ModuleDescriptor";
+    private static final String DESCRIPTOR_SUFFIX = "Descriptor";
+    private static final String DESCRIPTOR_SERVICE = "META-INF/services/" + SUPPORT_PACKAGE + "." + DESCRIPTOR_CLASS;
+    private static final Template DESCRIPTOR_IMPLEMENTATION = Template.compile("""
+            package ${package};
+
+            import java.util.List;
+            import org.cubeengine.libcube.ModuleDescriptor;
+
+            public final class ${descriptorName} implements ModuleDescriptor
+            {
+                @Override
+                public String id()
+                {
+                    return ${id};
+                }
+
+                @Override
+                public String name()
+                {
+                    return ${name};
+                }
+
+                @Override
+                public String version()
+                {
+                    return ${version};
+                }
+
+                @Override
+                public String description()
+                {
+                    return ${description};
+                }
+
+                @Override
+                public String pluginClass()
+                {
+                    return ${pluginClass};
+                }
+
+                @Override
+                public String bindingsClass()
+                {
+                    return ${bindingsClass};
+                }
+
+                @Override
+                public String componentClass()
+                {
+                    return ${componentClass};
+                }
+
+                @Override
+                public String listenersClass()
+                {
+                    return ${listenersClass};
+                }
+
+                @Override
+                public boolean core()
+                {
+                    return ${core};
+                }
+
+                @Override
+                public boolean lazy()
+                {
+                    return ${lazy};
+                }
+
+                @Override
+                public List<Dependency> dependencies()
+                {
+                    return List.of(${dependencies});
+                }
+            }
+            """);
+
+    /**
+     * Binds the module class to a provider calling its constructor directly and the classes of the module it depends on,
+     * so the injector can run with {@code requireExplicitBindings()} as long as libcube binds the other dependencies
+     * explicitly, see {@link InjectionPoints#bound()}. The generated plugin passes it to {@code CubeEnginePlugin}.
+     */
+    static final String BINDINGS_SUFFIX = "Bindings";
+    private static final Template BINDINGS_SOURCE = Template.compile("""
+            package ${package};
+
+            import com.google.inject.AbstractModule;
+            import com.google.inject.Inject;
+            ${membersImport}import com.google.inject.Provider;
+            ${provisionImport}
+            public final class ${bindingsName} extends AbstractModule
+            {
+                @Override
+                protected void configure()
+                {
+                    bind(${moduleName}.class).toProvider(ModuleProvider.class)${scope};
+            ${bound}    }
+
+                static final class ModuleProvider implements Provider<${moduleName}>
+                {
+            ${providerFields}        @Inject
+                    ModuleProvider(${providerParameters})
+                    {
+            ${providerAssignments}        }
+
+                    @Override
+                    public ${moduleName} get()
+                    {
+            ${provide}        }
+                }
+            }
+            """);
+
+    private static final String LISTENERS_SUFFIX = "Listeners";
+    /**
+     * Registers the lifecycle listeners of the generated plugin and the listener classes found in the package of a module
+     * through one {@code EventListener} calling the listener methods directly, instead of the per method classes the
+     * event manager generates. The generated plugin registers itself in its constructor.
+     */
+    private static final Template LISTENERS_SOURCE = Template.compile("""
+            package ${package};
+
+            import io.leangen.geantyref.TypeToken;
+            import java.util.List;
+            import org.spongepowered.api.Sponge;
+            import org.spongepowered.api.event.Event;
+            import org.spongepowered.api.event.EventListener;
+            import org.spongepowered.api.event.EventListenerRegistration;
+            import org.spongepowered.api.event.Order;
+            import org.spongepowered.plugin.PluginContainer;
+
+            public final class ${listenersName}
+            {
+                /** the listener classes supported by {@link #register(PluginContainer, Object)} */
+                public static final List<Class<?>> LISTENER_CLASSES = List.of(${listenerClasses});
+
+                private ${listenersName}()
+                {
+                }
+
+                /**
+                 * Registers the listener methods of an instance of one of the {@link #LISTENER_CLASSES}.
+                 *
+                 * @return false if the listener has to be registered reflectively
+                 */
+                public static boolean register(PluginContainer plugin, Object listener)
+                {
+            ${registrations}        return false;
+                }
+
+                private static <E extends Event> void register(PluginContainer plugin, TypeToken<E> event, Order order, boolean beforeModifications, Dispatcher dispatcher)
+                {
+                    Sponge.eventManager().registerListener(EventListenerRegistration.builder(event)
+                            .plugin(plugin)
+                            .order(order)
+                            .beforeModifications(beforeModifications)
+                            .listener(dispatcher)
+                            .build());
+                }
+
+                private record Dispatcher(int method, Object listener) implements EventListener<Event>
+                {
+                    @Override
+                    @SuppressWarnings("unchecked")
+                    public void handle(Event event) throws Exception
+                    {
+                        switch (method)
+                        {
+            ${cases}            }
+                    }
+                }
+            }
+            """);
+
+    private static final String COMPONENT_CLASS = "ModuleComponent";
+    private static final String COMPONENT_SUFFIX = "Component";
+    private static final Template COMPONENT_SOURCE = Template.compile("""
+            package ${package};
+
+            import org.cubeengine.libcube.ModuleComponent;
+
+            public final class ${componentName} implements ModuleComponent<${moduleName}>
+            {
+                @Override
+                public ${moduleName} create(Resolver resolver)
+                {
+            ${create}    }
+
+                @SuppressWarnings("unchecked")
+                private static final class Graph
+                {
+                    private final Resolver resolver;
+            ${singletons}
+                    private Graph(Resolver resolver)
+                    {
+                        this.resolver = resolver;
+                    }
+            ${provisions}    }
+            }
+            """);
+
+    private static final String LAZY_CLASS = "LazyModule";
+
+    private static final String CONFIG_CLASS = "ConfigSerializer";
+    private static final String CONFIG_SERVICE = "META-INF/services/" + SUPPORT_PACKAGE + "." + CONFIG_CLASS;
+    private static final Template CONFIG_SERIALIZER_SOURCE = Template.compile("""
+            package ${package};
+
+            import java.util.LinkedHashMap;
+            import java.util.Map;
+            import org.cubeengine.libcube.ConfigSerializer;
+
+            public final class ${serializerName} implements ConfigSerializer<${configClass}>
+            {
+                public static final String SCHEMA_HASH = "${schemaHash}";
+                public static final ${serializerName} INSTANCE = new ${serializerName}();
+
+                @Override
+                public Class<${configClass}> type()
+                {
+                    return ${configClass}.class;
+                }
+
+                @Override
+                public String schemaHash()
+                {
+                    return SCHEMA_HASH;
+                }
+
+                @Override
+                public boolean read(Map<?, ?> node, ${configClass} config)
+                {
+                    boolean complete = true;
+                    Object value;
+            ${read}        return complete;
+                }
+
+                @Override
+                public Map<String, Object> write(${configClass} config)
+                {
+                    Map<String, Object> node = new LinkedHashMap<>(${capacity});
+            ${write}        return node;
+                }
+            }
+            """);
+
+    private static final String PERMISSIONS_CLASS = "PermissionRegistry";
+    /**
+     * Completes a prefix against a fixed set of words, the arrays are built by the processor, see {@link PrefixTrie}.
+     */
+    private static final String TRIE_CLASS = "CompletionTrie";
+
+    private static final String COMMANDS_SUFFIX = "Commands";
+    /**
+     * Registers the command tree of a module built at compile time, see {@link CommandTree}. The generated bindings or
+     * component pass the module once it is created.
+     */
+    private static final Template COMMANDS_SOURCE = Template.compile("""
+            package ${package};
+
+            import java.util.List;
+            import net.kyori.adventure.text.Component;
+            import org.cubeengine.libcube.CompletionTrie;
+            import org.cubeengine.libcube.PermissionRegistry;
+            import org.spongepowered.api.Sponge;
+            import org.spongepowered.api.command.Command;
+            import org.spongepowered.api.command.CommandCompletion;
+            import org.spongepowered.api.command.CommandResult;
+            import org.spongepowered.api.command.parameter.Parameter;
+            import org.spongepowered.api.event.lifecycle.RegisterCommandEvent;
+            import org.spongepowered.plugin.PluginContainer;
+
+            public final class ${commandsName}
+            {
+                static final PermissionRegistry PERMISSIONS = new PermissionRegistry(${permissions});
+
+            ${parameters}    private static volatile ${moduleName} module;
+
+                private ${commandsName}()
+                {
+                }
+
+                static void created(${moduleName} created)
+                {
+                    module = created;
+                }
+
+                /**
+                 * Registers the command tree of the module.
+                 *
+                 * @return false if the module was not created by the generated code or its command containers are missing,
+                 *         libcube has to register its commands
+                 */
+                static boolean register(RegisterCommandEvent<Command.Parameterized> event)
+                {
+                    ${moduleName} module = ${commandsName}.module;
+                    if (module == null)
+                    {
+                        return false;
+                    }
+            ${containers}        PluginContainer plugin = Sponge.pluginManager().plugin(${id}).orElseThrow();
+            ${registrations}        return true;
+                }
+            }
+            """);
+
+    private static final String COMMAND_REGISTRATION = """
+
+                /**
+                 * Registers the generated command tree, the commands of a module created by libcube are registered by libcube.
+                 */
+                private void registerCommands(RegisterCommandEvent<Command.Parameterized> event)
+                {
+                    if (!%s.register(event))
+                    {
+                        super.onRegisterCommand(event);
+                    }
+                }
+            """;
+
+    private static final String LAZY_LISTENERS = """
+
+                /**
+                 * Registers stubs for the commands of the lazy module, their first use activates it.
+                 */
+                public void registerCommandStubs(final RegisterCommandEvent<Command.Raw> event)
+                {
+                    lazyModule.registerStubs(event);
+                }
+            """;
+
+    private static final String CORE_LISTENERS = """
+
+                /**
+                 * Waits for the modules before plugins depending on them see the {@link StartingEngineEvent}.
+                 */
+                public void awaitModules(StartingEngineEvent<Server> event)
+                {
+                    ModuleOrchestrator.awaitAll();
+                }
+
+                /**
+                 * Inherited permissions may change with the data of any subject.
+                 */
+                public void invalidatePermissions(SubjectDataUpdateEvent event)
+                {
+                    PermissionRegistry.invalidateAll();
+                }
+
+                public void forgetPermissions(ServerSideConnectionEvent.Disconnect event)
+                {
+                    PermissionRegistry.invalidateAll(event.player().identifier());
+                }
+            """;
+
+    private static final String CORE_IMPORTS = """
+            import org.cubeengine.libcube.PermissionRegistry;
+            import org.spongepowered.api.event.network.ServerSideConnectionEvent;
+            import org.spongepowered.api.event.permission.SubjectDataUpdateEvent;
+            import org.apache.logging.log4j.Logger;
+            import com.google.inject.Injector;
+            import org.spongepowered.plugin.PluginContainer;
+            import org.cubeengine.libcube.CorePlugin;
+            import org.spongepowered.api.config.ConfigDir;
+            import java.nio.file.Path;
+            """;
+    private static final String MODULE_IMPORTS = """
+            import org.cubeengine.libcube.LibCube;
+            import java.util.List;
+            import org.spongepowered.plugin.PluginContainer;
+            """;
+
+    private static final Template PLUGIN_SOURCE = Template.compile("""
+            package ${package};
+
+            import com.google.inject.Inject;
+            import com.google.inject.Injector;
+            import org.spongepowered.plugin.builtin.jvm.Plugin;
+            import org.spongepowered.api.event.lifecycle.ConstructPluginEvent;
+            import org.spongepowered.api.event.lifecycle.RegisterCommandEvent;
+            import org.spongepowered.api.event.lifecycle.StartedEngineEvent;
+            import org.spongepowered.api.event.lifecycle.StartingEngineEvent;
+            import org.spongepowered.api.Server;
+            import org.spongepowered.api.command.Command;
+            import org.cubeengine.libcube.CubeEnginePlugin;
+            import org.cubeengine.libcube.ModuleOrchestrator;
+            ${variantImports}import org.spongepowered.api.Sponge;
+            import ${moduleClass};
+
+            @Plugin(${pluginName}.${idConstant})
+            public class ${pluginName} extends ${superClass}
+            {
+                public static final String ${idConstant} = "${id}";
+                public static final String ${versionConstant} = "${version}";
+            ${variantMembers}
+                @Inject
+                public ${pluginName}(${constructorParameters})
+                {
+                     super(${superArguments});${training}
+                    ${listenersName}.register(container, this);
+                }
+
+                public String sourceVersion()
+                {
+                    return "${sourceVersion}";
+                }
+
+                @Override
+                public void onConstruction(ConstructPluginEvent event)
+                {
+                    ${construction}
+                }
+
+                @Override
+                public void onInit(StartingEngineEvent<Server> event)
+                {
+                    ${init}
+                }
+
+                @Override
+                public void onStarted(StartedEngineEvent<Server> event)
+                {
+                    ${await}
+                    ${started}
+                }
+
+                @Override
+                public void onRegisterCommand(final RegisterCommandEvent<Command.Parameterized> event)
+                {
+                    ${await}
+                    ${registerCommand}
+                }
+            ${variantListeners}}
+            """);
+
     private Messager messager;
+    private OutputCache outputCache;
+    private BuildReport report;
+    private ModuleOptions options;
 
     @Override
     public synchronized void init(ProcessingEnvironment processingEnv) {
         super.init(processingEnv);
         messager = processingEnv.getMessager();
+        outputCache = new OutputCache(processingEnv.getFiler(), messager);
+        report = new BuildReport();
+        options = ModuleOptions.parse(processingEnv.getOptions(), messager);
+        // -Acubeengine.processor.cds without a value maps to null
+        cds = processingEnv.getOptions().containsKey(CDS_OPTION) && !"false".equals(processingEnv.getOptions().get(CDS_OPTION));
     }
 
-    private boolean generated = false;
+    /**
+     * All plugins generated in previous rounds, the shared resources are written once processing is over.
+     */
+    private final List<PluginModel> plugins = new ArrayList<>();
+    private final Set<String> processed = new HashSet<>();
+    private int moduleCount = 0;
+    /** the classes with listener methods of all rounds, the generated plugin classes are skipped */
+    private final Map<String, TypeElement> listenerTypes = new LinkedHashMap<>();
+    /** the AppCDS class list per plugin id, empty unless the {@link #CDS_OPTION} is set */
+    private final Map<String, Set<String>> classLists = new LinkedHashMap<>();
+    private boolean cds;
+    /** the generated config serializers of all rounds by their config class */
+    private final Map<TypeElement, String> configSerializers = new LinkedHashMap<>();
+    /** the reflectively accessed members per plugin id */
+    private final Map<String, ReflectConfig> reflectConfigs = new LinkedHashMap<>();
+    /** the plugins in the static load order of the generated core plugin or null if there is no core plugin */
+    private Set<String> coreLoadOrder = null;
 
     @Override
     public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv)
     {
+        long start = System.nanoTime();
         if (roundEnv.processingOver())
         {
+            long validateStart = System.nanoTime();
+            DependencyGraph graph = new DependencyGraph(plugins, this::upstreamDependencies);
+            boolean valid = graph.validate(messager);
+            valid = ModuleIndex.validate(plugins, messager) && valid;
+            report.phase("validateDependencies", validateStart);
+            if (valid)
+            {
+                List<List<String>> loadOrder = graph.levels();
+                checkCoreLoadOrder(loadOrder);
+                checkLazyDependencies();
+                checkConfigPackages();
+                writeResources(plugins, loadOrder);
+            }
+            outputCache.save();
+            report.phase("process", start);
+            writeReport();
             return false;
         }
 
-        if (this.generated) {
-            return false;
-        }
+        collectListeners(roundEnv);
+        generateConfigSerializers(roundEnv);
         generateModulePlugin(roundEnv);
         generateCorePlugin(roundEnv);
-        this.generated = true;
+        report.phase("process", start);
 
         return false;
     }
 
+    private void collectListeners(RoundEnvironment roundEnv)
+    {
+        TypeElement listener = processingEnv.getElementUtils().getTypeElement(LISTENER);
+        if (listener == null)
+        {
+            return;
+        }
+        for (Element method : roundEnv.getElementsAnnotatedWith(listener))
+        {
+            if (method.getEnclosingElement() instanceof TypeElement type)
+            {
+                String name = type.getQualifiedName().toString();
+                if (plugins.stream().noneMatch(plugin -> plugin.entrypoint().equals(name)))
+                {
+                    listenerTypes.putIfAbsent(name, type);
+                }
+            }
+        }
+    }
+
+    private void generateConfigSerializers(RoundEnvironment roundEnv)
+    {
+        long start = System.nanoTime();
+        for (Element el : roundEnv.getElementsAnnotatedWith(Config.class))
+        {
+            if (!(el instanceof TypeElement type) || configSerializers.containsKey(type))
+            {
+                continue;
+            }
+            ConfigClass config = ConfigClass.scan(type, processingEnv.getElementUtils(), processingEnv.getTypeUtils(), messager);
+            if (config != null)
+            {
+                configSerializers.put(type, buildConfigSerializer(config));
+            }
+        }
+        report.phase("generateConfigSerializers", start);
+    }
+
+    /**
+     * @return the binary name of the generated serializer
+     */
+    private String buildConfigSerializer(ConfigClass config)
+    {
+        String packageName = processingEnv.getElementUtils().getPackageOf(config.type()).getQualifiedName().toString();
+        String serializerName = ConfigClass.serializerName(config.type());
+        StringBuilder read = new StringBuilder();
+        StringBuilder write = new StringBuilder();
+        for (ConfigClass.Field field : config.fields())
+        {
+            String key = javaLiteral(field.key());
+            String target = "config." + field.name();
+            read.append("        if ((value = node.get(").append(key).append(")) != null)\n        {\n");
+            if (field.serializer() != null)
+            {
+                read.append("            if (").append(target).append(" == null)\n            {\n")
+                    .append("                ").append(target).append(" = new ").append(field.type()).append("();\n            }\n")
+                    .append("            complete &= ").append(field.serializer()).append(".INSTANCE.read(ConfigSerializer.section(value, ")
+                    .append(key).append("), ").append(target).append(");\n");
+                write.append("        node.put(").append(key).append(", ").append(target).append(" == null ? null : ")
+                     .append(field.serializer()).append(".INSTANCE.write(").append(target).append("));\n");
+            }
+            else if (field.enumType())
+            {
+                read.append("            ").append(target).append(" = ConfigSerializer.enumValue(").append(field.type())
+                    .append(".class, value, ").append(key).append(");\n");
+                write.append("        node.put(").append(key).append(", ").append(target).append(" == null ? null : ")
+                     .append(target).append(".name());\n");
+            }
+            else
+            {
+                read.append("            ").append(target).append(" = ConfigSerializer.").append(field.conversion())
+                    .append(ConfigClass.STRING_VALUE.equals(field.conversion()) ? "(value);\n" : "(value, " + key + ");\n");
+                write.append("        node.put(").append(key).append(", ").append(target).append(");\n");
+            }
+            read.append("        }\n        else if (!node.containsKey(").append(key).append("))\n        {\n            complete = false;\n        }\n");
+        }
+
+        Map<String, Object> values = new HashMap<>();
+        values.put("package", packageName);
+        values.put("serializerName", serializerName);
+        values.put("configClass", config.type().getQualifiedName());
+        values.put("schemaHash", config.schemaHash());
+        values.put("read", read);
+        values.put("write", write);
+        values.put("capacity", String.valueOf((int) (config.fields().size() / 0.75f) + 1));
+
+        try (BufferedWriter writer = newSourceFile(packageName, serializerName, config.type()))
+        {
+            CONFIG_SERIALIZER_SOURCE.render(writer, values);
+        }
+        catch (IOException e)
+        {
+            throw new IllegalStateException(e);
+        }
+        return packageName.isEmpty() ? serializerName : packageName + "." + serializerName;
+    }
+
+    /**
+     * Config classes are expected next to the module using them.
+     */
+    private void checkConfigPackages()
+    {
+        for (TypeElement type : configSerializers.keySet())
+        {
+            String typePackage = processingEnv.getElementUtils().getPackageOf(type).getQualifiedName().toString();
+            if (plugins.stream().map(PluginModel::packageName).noneMatch(packageName -> typePackage.equals(packageName) || typePackage.startsWith(packageName + ".")))
+            {
+                messager.printWarning(type.getQualifiedName() + " is not in the package of a module", type);
+            }
+        }
+    }
+
     private void generateCorePlugin(RoundEnvironment roundEnv)
     {
+        long start = System.nanoTime();
         for (Element el : roundEnv.getElementsAnnotatedWith(Core.class))
         {
+            if (!processed.add(((TypeElement) el).getQualifiedName().toString()))
+            {
+                continue;
+            }
             messager.printNote("Generating core plugin");
-            buildSource((TypeElement) el, new ArrayList<>(), true);
+            long moduleStart = System.nanoTime();
+            PluginModel plugin = buildModel((TypeElement) el, new ArrayList<>(), true, true);
+            plugins.add(plugin);
+            buildSource(plugin, coreLoadOrder());
+            writeSupportSource(ORCHESTRATOR_CLASS, (TypeElement) el);
+            writeSupportSource(DESCRIPTOR_CLASS, (TypeElement) el);
+            writeSupportSource(COMPONENT_CLASS, (TypeElement) el);
+            writeSupportSource(LAZY_CLASS, (TypeElement) el);
+            writeSupportSource(TRIE_CLASS, (TypeElement) el);
+            writeSupportSource(PERMISSIONS_CLASS, (TypeElement) el);
+            writeSupportSource(CONFIG_CLASS, (TypeElement) el);
+            writeSupportSource(TRAINING_CLASS, (TypeElement) el);
+            report.module(plugin, moduleStart);
         }
+        report.phase("generateCorePlugin", start);
     }
 
     public void generateModulePlugin(RoundEnvironment roundEnv)
     {
-        final Set<? extends Element> moduleSet = roundEnv.getElementsAnnotatedWith(Module.class);
+        long start = System.nanoTime();
+        final List<TypeElement> moduleSet = new ArrayList<>();
+        for (Element el : roundEnv.getElementsAnnotatedWith(Module.class))
+        {
+            if (processed.add(((TypeElement) el).getQualifiedName().toString()))
+            {
+                moduleSet.add((TypeElement) el);
+            }
+        }
         if (moduleSet.size() > 0) {
             messager.printNote("Generating %d modules".formatted(moduleSet.size()));
         }
-        for (Element el : moduleSet)
+        // the id and name options can only describe a single module, modules from later rounds never get them
+        final boolean single = moduleCount == 0 && moduleSet.size() == 1;
+        moduleCount += moduleSet.size();
+        if (moduleCount > 1 && !moduleSet.isEmpty() && options.hasPluginIdentity())
         {
-            final TypeElement element = (TypeElement) el;
-
+            messager.printWarning("cubeengine.module.id and cubeengine.module.name are ignored when compiling multiple modules at once");
+        }
+        for (TypeElement element : moduleSet)
+        {
+            long moduleStart = System.nanoTime();
             Module annotation = element.getAnnotation(Module.class);
-            Dependency[] deps = annotation.dependencies();
-
-            Dependency coreDep = getCoreDep();
-            List<Dependency> allDeps = new ArrayList<>(Arrays.asList(deps));
-            allDeps.add(coreDep);
+            List<DependencyModel> allDeps = new ArrayList<>();
+            for (Dependency dep : annotation.dependencies())
+            {
+                allDeps.add(DependencyModel.of(dep));
+            }
+            addImplicit(allDeps, options.coreDependency());
 
-            buildSource(element, allDeps, false);
+            PluginModel plugin = buildModel(element, allDeps, false, single);
+            buildSource(plugin, null);
+            plugins.add(plugin);
+            report.module(plugin, moduleStart);
         }
+        report.phase("generateModulePlugin", start);
     }
 
-    private void buildSource(TypeElement element, List<Dependency> allDeps, boolean core) {
-        allDeps.add(getSpongeAPIDep());
+    private PluginModel buildModel(TypeElement element, List<DependencyModel> allDeps, boolean core, boolean single)
+    {
+        addImplicit(allDeps, options.spongeDependency());
 
-        Name packageName = ((PackageElement) element.getEnclosingElement()).getQualifiedName();
+        String packageName = ((PackageElement) element.getEnclosingElement()).getQualifiedName().toString();
         String pluginName = "Plugin" + element.getSimpleName();
         String simpleName = element.getSimpleName().toString();
-        String moduleClass = packageName + "." + element.getSimpleName();
-        String sourceVersion = processingEnv.getOptions().getOrDefault("cubeengine.module.sourceversion","unknown");
-        if ("${githead.branch}-${githead.commit}".equals(sourceVersion))
-        {
-            sourceVersion = "unknown";
-        }
-        String version = processingEnv.getOptions().getOrDefault("cubeengine.module.version","unknown");
-        String id = "cubeengine-" + processingEnv.getOptions().getOrDefault("cubeengine.module.id", element.getSimpleName().toString().toLowerCase());
-        if (core) id = "cubeengine-core";
-        String name = "CubeEngine - " + processingEnv.getOptions().getOrDefault("cubeengine.module.name","unknown");
-        String description = processingEnv.getOptions().getOrDefault("cubeengine.module.description","unknown");
-        String team = processingEnv.getOptions().getOrDefault("cubeengine.module.team","unknown") + " Team";
-        String url = processingEnv.getOptions().getOrDefault("cubeengine.module.url","");
-
-        try (BufferedWriter writer = newSourceFile(packageName, pluginName))
-        {
-            writer.write(String.format("""
-                    package %s;
-                    
-                    import com.google.inject.Inject;
-                    import com.google.inject.Injector;
-                    import org.spongepowered.plugin.builtin.jvm.Plugin;
-                    import org.spongepowered.api.event.Listener;
-                    import org.spongepowered.api.event.Order;
-                    import org.spongepowered.api.event.lifecycle.ConstructPluginEvent;
-                    import org.spongepowered.api.event.lifecycle.RegisterCommandEvent;
-                    import org.spongepowered.api.event.lifecycle.StartedEngineEvent;
-                    import org.spongepowered.api.event.lifecycle.StartingEngineEvent;
-                    import org.spongepowered.api.Server;
-                    import org.spongepowered.api.command.Command;
-                    import org.cubeengine.libcube.CubeEnginePlugin;
-                    """, packageName));
-            if (core)
-            {
-                writer.write("""
-                            import org.apache.logging.log4j.Logger;
-                            import com.google.inject.Injector;
-                            import org.spongepowered.plugin.PluginContainer;
-                            import org.cubeengine.libcube.CorePlugin;
-                            import org.spongepowered.api.config.ConfigDir;
-                            import java.nio.file.Path;
-                            """);
-            }
-            else
+        String id = ModuleOptions.PLUGIN_ID_PREFIX + (single && options.id() != null ? options.id() : simpleName.toLowerCase());
+        if (core) id = ModuleOptions.CORE_ID;
+        String name = "CubeEngine - " + (single ? Objects.requireNonNullElse(options.name(), "unknown") : simpleName);
+
+        InjectionPoints injection = core || options.compileTimeInjection() ? null : InjectionPoints.scan(element, processingEnv.getElementUtils(), processingEnv.getTypeUtils(), messager);
+        boolean lazy = !core && element.getAnnotation(Module.class).lazy();
+
+        return new PluginModel(element, core, lazy, packageName, pluginName, id, name, options.version(), options.description(),
+                               options.url(), options.team(), options.sourceVersion(), allDeps, injection);
+    }
+
+    /**
+     * Adds an implicit dependency unless it was declared explicitly.
+     */
+    private static void addImplicit(List<DependencyModel> allDeps, DependencyModel implicit)
+    {
+        for (DependencyModel dep : allDeps)
+        {
+            if (dep.value().equals(implicit.value()))
             {
-                writer.write("import org.cubeengine.libcube.LibCube;\n");
-            }
-            writer.write("import org.spongepowered.api.Sponge;\n");
-            writer.write(String.format("import %s;\n\n", moduleClass));
-
-            writer.write(String.format("""
-                            @Plugin(%s.%s)
-                            public class %s extends %s
-                            {
-                                public static final String %s = "%s";
-                                public static final String %s = "%s";
-
-                                %s
-                                public %s(%s)
-                                {
-                                     super(%s);
-                                }
-
-                                public String sourceVersion()
-                                {
-                                    return "%s";
-                                }
-                                
-                                @Override @Listener
-                                public void onConstruction(ConstructPluginEvent event) 
-                                {
-                                    super.onConstruction(event);
-                                }
-                                
-                                @Override @Listener(order = Order.EARLY)
-                                public void onInit(StartingEngineEvent<Server> event)
-                                {
-                                    super.onInit(event);
-                                }
-                                
-                                @Override @Listener(order = Order.FIRST)
-                                public void onStarted(StartedEngineEvent<Server> event)
-                                {
-                                    super.onStarted(event);
-                                }
-                                
-                                @Override @Listener
-                                public void onRegisterCommand(final RegisterCommandEvent<Command.Parameterized> event)
-                                {
-                                    super.onRegisterCommand(event);
-                                }
-                            }
-                            """,
-                    pluginName, simpleName.toUpperCase() + "_ID",
-                    pluginName, core ? "CorePlugin" : "CubeEnginePlugin",
-                    simpleName.toUpperCase() + "_ID", id,
-                    simpleName.toUpperCase() + "_VERSION", version,
-                    core ? "@Inject" : "",
-                    pluginName, core ? "@ConfigDir(sharedRoot = true) Path path, Logger logger, Injector injector, PluginContainer container" : "",
-                    core ? "path, logger, injector, container" : element.getSimpleName() + ".class",
-                    sourceVersion));
+                return;
+            }
         }
-        catch (IOException e)
+        allDeps.add(implicit);
+    }
+
+    /**
+     * Computes the load order of all plugins known so far for the static array in the core plugin.
+     * An invalid graph results in an empty load order, the errors are reported once processing is over.
+     */
+    private List<List<String>> coreLoadOrder()
+    {
+        DependencyGraph graph = new DependencyGraph(plugins, this::upstreamDependencies);
+        List<List<String>> loadOrder = graph.isValid() ? graph.levels() : List.of();
+        coreLoadOrder = new HashSet<>();
+        loadOrder.forEach(coreLoadOrder::addAll);
+        return loadOrder;
+    }
+
+    private void checkCoreLoadOrder(List<List<String>> loadOrder)
+    {
+        if (coreLoadOrder == null)
         {
-            throw new IllegalStateException(e);
+            return;
+        }
+        for (List<String> level : loadOrder)
+        {
+            for (String id : level)
+            {
+                if (!coreLoadOrder.contains(id))
+                {
+                    messager.printWarning(id + " was generated after the core plugin and is missing in its static load order, see " + LOAD_ORDER_FILE);
+                }
+            }
         }
+    }
 
-        try (BufferedWriter writer = newResourceFile("", "META-INF/sponge_plugins.json"))
+    /**
+     * A lazy module is not active when the modules depending on it start.
+     */
+    private void checkLazyDependencies()
+    {
+        Set<String> lazy = new HashSet<>();
+        plugins.stream().filter(PluginModel::lazy).forEach(plugin -> lazy.add(plugin.id()));
+        for (PluginModel plugin : plugins)
         {
-            final String jsonDeps = allDeps.stream().map(d -> String.format("""
-                            {
-                                "id": "%s",
-                                "version": "%s",
-                                "optional": %s
-                            }""",
-                            d.value(), d.version(), d.optional()))
-                    .collect(Collectors.joining(",\n")).indent(8).stripTrailing();
-            String plugin = String.format("""
-                    {
-                        "id": "%s",
-                        "name": "%s",
-                        "version": "%s",
-                        "entrypoint": "%s",
-                        "description": "%s",
-                        "links": {
-                            "homepage": "%s"
-                        },
-                        "contributors": [
-                            {
-                                "name": "%s"
-                            }
-                        ],
-                        "dependencies": [
-                    %s
-                        ],
-                        "properties": {
-                            "source-version": "%s"
-                        }
-                    }""",
-                id, name, version, packageName + "." + pluginName, description,
-                url, // TODO source/issues url
-                team,
-                jsonDeps,
-                sourceVersion
-                ).indent(8).stripTrailing();
-
-            writer.write(String.format("""
-                    {
-                        "loader": {
-                            "name": "%s",
-                            "version": "%s"
-                        },
-                        "license": "%s",
-                        "plugins": [
-                    %s
-                        ]
-                    }
-                    """,
-                    "java_plain", "1.0",
-                    "GPLv3",
-                    plugin
-                    ));
+            for (DependencyModel dep : plugin.dependencies())
+            {
+                if (lazy.contains(dep.value()))
+                {
+                    messager.printWarning(plugin.id() + " depends on the lazy module " + dep.value() + " which is only activated on its first use", plugin.element());
+                }
+            }
         }
-        catch (IOException e)
+    }
+
+    private static String loadOrderField(List<List<String>> loadOrder)
+    {
+        StringBuilder field = new StringBuilder("""
+
+                    /**
+                     * The plugins of this compilation in dependency order, the plugins of one level are independent of each other.
+                     */
+                    public static final String[][] MODULE_LOAD_ORDER = {
+                """);
+        for (int i = 0; i < loadOrder.size(); i++)
         {
-            throw new IllegalStateException(e);
+            field.append("        {");
+            List<String> level = loadOrder.get(i);
+            for (int j = 0; j < level.size(); j++)
+            {
+                field.append(j == 0 ? "\"" : ", \"").append(level.get(j)).append('"');
+            }
+            field.append(i == loadOrder.size() - 1 ? "}\n" : "},\n");
         }
+        return field.append("    };\n").toString();
+    }
 
-        try (BufferedWriter writer = newResourceFile("", "META-INF/MANIFEST.MF"))
+    /**
+     * The compile-time dependencies a module waits for in the generated module orchestrator.
+     */
+    private static String dependenciesField(PluginModel plugin)
+    {
+        StringBuilder field = new StringBuilder("\n    private static final List<String> DEPENDENCIES = List.of(");
+        for (int i = 0; i < plugin.dependencies().size(); i++)
         {
-            writer.write("Manifest-Version: 1.0");
+            field.append(i == 0 ? "\"" : ", \"").append(plugin.dependencies().get(i).value()).append('"');
+        }
+        return field.append(");\n").toString();
+    }
 
+    /**
+     * The top level commands of the module and the events its listener classes handle.
+     */
+    private String lazyModuleField(PluginModel plugin, List<TypeElement> listenerClasses)
+    {
+        List<CommandRoot> roots = CommandRoot.scan(plugin.element());
+        Set<String> events = new LinkedHashSet<>();
+        for (TypeElement type : listenerClasses)
+        {
+            for (ExecutableElement method : ElementFilter.methodsIn(type.getEnclosedElements()))
+            {
+                if (ListenerClass.isListener(method) && !method.getParameters().isEmpty())
+                {
+                    events.add(processingEnv.getTypeUtils().erasure(method.getParameters().get(0).asType()) + ".class");
+                }
+            }
         }
-        catch (IOException e)
+        if (roots.isEmpty() && events.isEmpty())
         {
-            throw new IllegalStateException(e);
+            messager.printWarning("The lazy module has neither commands nor listeners to activate it", plugin.element());
+        }
+
+        String moduleId = plugin.id().substring(ModuleOptions.PLUGIN_ID_PREFIX.length());
+        StringBuilder commands = new StringBuilder();
+        StringBuilder permissions = new StringBuilder();
+        StringBuilder subcommands = new StringBuilder();
+        StringBuilder subcommandPermissions = new StringBuilder();
+        for (CommandRoot root : roots)
+        {
+            commands.append(commands.isEmpty() ? "\n" : ",\n").append("            List.of(").append(javaLiteral(root.name()));
+            root.aliases().forEach(alias -> commands.append(", ").append(javaLiteral(alias)));
+            commands.append(")");
+            permissions.append(permissions.isEmpty() ? "\n" : ",\n").append("            ")
+                       .append(javaLiteral(CommandRoot.permission(moduleId, root.name())));
+            subcommands.append(subcommands.isEmpty() ? "\n" : ",\n").append("            ")
+                       .append(root.subcommands().isEmpty() ? "CompletionTrie.EMPTY" : PrefixTrie.expression(List.copyOf(root.subcommands().keySet())));
+            subcommandPermissions.append(subcommandPermissions.isEmpty() ? "\n" : ",\n").append("            Map.ofEntries(");
+            String separator = "";
+            for (Map.Entry<String, String> subcommand : root.subcommands().entrySet())
+            {
+                subcommandPermissions.append(separator).append("\n                Map.entry(").append(javaLiteral(subcommand.getKey())).append(", ")
+                                     .append(javaLiteral(CommandRoot.permission(moduleId, root.name() + "." + subcommand.getValue()))).append(")");
+                separator = ",";
+            }
+            subcommandPermissions.append(")");
         }
+        return """
 
+                    /**
+                     * Defers the lifecycle of the module until one of its commands is used or one of its events is posted.
+                     */
+                    private final LazyModule lazyModule = new LazyModule(List.of(%s), List.of(%s), List.of(%s), List.of(%s),
+                            List.of(%s));
+                """.formatted(commands, permissions, subcommands, subcommandPermissions, String.join(", ", events));
+    }
 
-        try (BufferedWriter writer = newResourceFile("assets", id + "/lang/en_us.lang"))
+    /**
+     * Copies the bundled source of a runtime support class, see {@link #SUPPORT_RESOURCES}.
+     */
+    private void writeSupportSource(String className, TypeElement core)
+    {
+        try (InputStream in = PluginGenerator.class.getResourceAsStream(SUPPORT_RESOURCES + className + ".java"))
         {
+            if (in == null)
+            {
+                throw new IllegalStateException("The source of " + SUPPORT_PACKAGE + "." + className + " is missing");
+            }
+            try (BufferedWriter writer = newSourceFile(SUPPORT_PACKAGE, className, core))
+            {
+                writer.write(new String(in.readAllBytes(), StandardCharsets.UTF_8));
+            }
         }
         catch (IOException e)
         {
@@ -308,67 +979,970 @@ public class PluginGenerator extends AbstractProcessor
         }
     }
 
-    public Dependency getCoreDep() {
-        return new Dependency() {
-            @Override
-            public String value() {
-                return "cubeengine-core";
-            }
-
-            @Override
-            public String version() {
-                return processingEnv.getOptions().getOrDefault("cubeengine.module.libcube.version", "unknown");
-            }
+    /**
+     * @param loadOrder the load order for the static array in the core plugin, null for modules
+     */
+    private void buildSource(PluginModel plugin, List<List<String>> loadOrder) {
+        TypeElement element = plugin.element();
+        boolean core = plugin.core();
+        String simpleName = element.getSimpleName().toString();
+        List<TypeElement> claimed = core ? List.of() : claimListeners(plugin);
+        CommandTree commandTree = core ? null : CommandTree.scan(element, plugin.id().substring(ModuleOptions.PLUGIN_ID_PREFIX.length()),
+                                                                processingEnv.getElementUtils(), processingEnv.getTypeUtils(), messager);
+        if (plugin.injection() != null)
+        {
+            buildBindings(plugin, commandTree != null);
+        }
+        boolean component = !core && options.compileTimeInjection() && buildComponent(plugin, commandTree != null);
+        boolean commands = commandTree != null && (plugin.injection() != null || component);
+        if (commandTree != null && !commands)
+        {
+            messager.printNote("The commands of " + simpleName + " are registered reflectively, the module is created by libcube", element);
+        }
+        String commandRegistration = commands ? COMMAND_REGISTRATION.formatted(plugin.pluginName() + COMMANDS_SUFFIX) : "";
 
-            @Override
-            public boolean optional() {
-                return false;
-            }
+        Map<String, Object> values = new HashMap<>();
+        values.put("package", plugin.packageName());
+        values.put("variantImports", core ? CORE_IMPORTS : MODULE_IMPORTS);
+        values.put("moduleClass", element.getQualifiedName());
+        values.put("pluginName", plugin.pluginName());
+        values.put("superClass", core ? "CorePlugin" : "CubeEnginePlugin");
+        String idConstant = simpleName.toUpperCase() + "_ID";
+        values.put("idConstant", idConstant);
+        values.put("id", plugin.id());
+        values.put("versionConstant", simpleName.toUpperCase() + "_VERSION");
+        values.put("version", plugin.version());
+        values.put("constructorParameters", core ? "@ConfigDir(sharedRoot = true) Path path, Logger logger, Injector injector, PluginContainer container"
+                                                 : "PluginContainer container");
+        values.put("listenersName", plugin.pluginName() + LISTENERS_SUFFIX);
+        if (core)
+        {
+            values.put("superArguments", "path, logger, injector, container");
+        }
+        else if (plugin.injection() != null)
+        {
+            values.put("superArguments", simpleName + ".class, new " + plugin.pluginName() + BINDINGS_SUFFIX + "()");
+        }
+        else if (component)
+        {
+            // libcube creates the module through the component instead of its injector
+            values.put("superArguments", simpleName + ".class, new " + plugin.pluginName() + COMPONENT_SUFFIX + "()");
+        }
+        else
+        {
+            values.put("superArguments", simpleName + ".class");
+        }
+        values.put("sourceVersion", plugin.sourceVersion());
+        values.put("training", cds ? "\n        " + SUPPORT_PACKAGE + "." + TRAINING_CLASS + ".load(getClass(), " + idConstant + ");" : "");
+        values.put("started", "super.onStarted(event);");
+        values.put("await", "ModuleOrchestrator.awaitAll();");
+        values.put("registerCommand", commands ? "registerCommands(event);" : "super.onRegisterCommand(event);");
+        if (core)
+        {
+            values.put("variantMembers", loadOrderField(loadOrder));
+            values.put("construction", "super.onConstruction(event);");
+            values.put("init", "ModuleOrchestrator.CONSTRUCTION.await();\n        super.onInit(event);");
+            values.put("variantListeners", CORE_LISTENERS);
+        }
+        else if (plugin.lazy())
+        {
+            values.put("variantImports", MODULE_IMPORTS + "import java.util.Map;\nimport org.cubeengine.libcube.CompletionTrie;\nimport org.cubeengine.libcube.LazyModule;\n");
+            values.put("variantMembers", dependenciesField(plugin) + lazyModuleField(plugin, claimed));
+            values.put("construction", "lazyModule.construct(event.plugin(), () -> super.onConstruction(lazyModule.replay(event)));");
+            values.put("init", "lazyModule.defer(() -> super.onInit(lazyModule.replay(event)));");
+            values.put("started", "lazyModule.defer(() -> super.onStarted(lazyModule.replay(event)));");
+            values.put("registerCommand", commands ? "lazyModule.commands(event, this::registerCommands);"
+                                                   : "lazyModule.commands(event, commands -> super.onRegisterCommand(commands));");
+            values.put("variantListeners", LAZY_LISTENERS + commandRegistration);
+        }
+        else
+        {
+            values.put("variantMembers", dependenciesField(plugin));
+            values.put("construction", "ModuleOrchestrator.CONSTRUCTION.submit(" + idConstant + ", DEPENDENCIES, () -> super.onConstruction(event));");
+            values.put("init", "ModuleOrchestrator.INIT.submit(" + idConstant + ", DEPENDENCIES, () -> super.onInit(event));");
+            // a module whose construction or initialization failed is not started
+            values.put("await", "ModuleOrchestrator.awaitAll(" + idConstant + ");");
+            values.put("variantListeners", commandRegistration);
+        }
 
-            @Override
-            public Class<? extends Annotation> annotationType() {
-                return Dependency.class;
-            }
-        };
+        try (BufferedWriter writer = newSourceFile(plugin.packageName(), plugin.pluginName(), element))
+        {
+            PLUGIN_SOURCE.render(writer, values);
+        }
+        catch (IOException e)
+        {
+            throw new IllegalStateException(e);
+        }
+        if (commands)
+        {
+            buildCommands(plugin, commandTree);
+        }
+        ReflectConfig reflection = new ReflectConfig(processingEnv.getElementUtils(), processingEnv.getTypeUtils());
+        List<ListenerClass> listeners = buildListeners(plugin, claimed, reflection);
+        buildDescriptor(plugin, component);
+        if (cds)
+        {
+            collectClassList(plugin, component, commands, listeners);
+        }
+        collectReflection(plugin, component, reflection);
     }
 
-    public Dependency getSpongeAPIDep() {
-        return new Dependency() {
-            @Override
-            public String value() {
-                return "spongeapi";
-            }
-
-            @Override
-            public String version() {
-                return processingEnv.getOptions().getOrDefault("cubeengine.module.sponge.version", "unknown");
-            }
-
-            @Override
-            public boolean optional() {
-                return false;
-            }
+    /**
+     * The constructors Sponge, Guice and the {@link java.util.ServiceLoader} call and the listener methods of the
+     * generated plugin class, next to the listener classes already added by {@link #buildListeners}.
+     */
+    private void collectReflection(PluginModel plugin, boolean component, ReflectConfig reflection)
+    {
+        String generated = plugin.entrypoint();
+        if (plugin.core())
+        {
+            reflection.constructor(generated, List.of("java.nio.file.Path", "org.apache.logging.log4j.Logger",
+                                                      "com.google.inject.Injector", "org.spongepowered.plugin.PluginContainer"));
+        }
+        else
+        {
+            reflection.constructor(generated, List.of("org.spongepowered.plugin.PluginContainer"));
+        }
+        reflection.constructor(generated + DESCRIPTOR_SUFFIX, List.of());
 
-            @Override
-            public Class<? extends Annotation> annotationType() {
-                return Dependency.class;
+        InjectionPoints injection = plugin.injection();
+        if (injection != null)
+        {
+            reflection.constructor(generated + BINDINGS_SUFFIX, List.of());
+            List<String> parameters = new ArrayList<>();
+            injection.constructorParameters().forEach(parameter -> parameters.add("com.google.inject.Provider"));
+            injection.fields().forEach(field -> parameters.add("com.google.inject.Provider"));
+            if (injection.membersInjection())
+            {
+                parameters.add("com.google.inject.MembersInjector");
+                reflection.members(plugin.element());
             }
-        };
+            reflection.constructor(generated + BINDINGS_SUFFIX + "$ModuleProvider", parameters);
+            injection.bound().forEach(type -> reflection.injectable(processingEnv.getElementUtils().getTypeElement(type)));
+        }
+        else if (component)
+        {
+            reflection.constructor(generated + COMPONENT_SUFFIX, List.of());
+        }
+        else
+        {
+            reflection.injectable(plugin.element());
+        }
+        reflectConfigs.put(plugin.id(), reflection);
     }
 
-    private BufferedWriter newSourceFile(Name packageName, String pluginName) throws IOException
+    /**
+     * The generated classes of the plugin, the annotated class and everything reachable from it and its listeners.
+     */
+    private void collectClassList(PluginModel plugin, boolean component, boolean commands, List<ListenerClass> listeners)
+    {
+        Set<String> classes = new LinkedHashSet<>();
+        String generated = plugin.entrypoint().replace('.', '/');
+        classes.add(generated);
+        classes.add(generated + DESCRIPTOR_SUFFIX);
+        if (plugin.injection() != null)
+        {
+            classes.add(generated + BINDINGS_SUFFIX);
+            classes.add(generated + BINDINGS_SUFFIX + "$ModuleProvider");
+        }
+        if (component)
+        {
+            classes.add(generated + COMPONENT_SUFFIX);
+            classes.add(generated + COMPONENT_SUFFIX + "$Graph");
+        }
+        if (commands)
+        {
+            classes.add(generated + COMMANDS_SUFFIX);
+        }
+        classes.add(generated + LISTENERS_SUFFIX);
+        classes.add(generated + LISTENERS_SUFFIX + "$Dispatcher");
+        if (plugin.core())
+        {
+            String support = SUPPORT_PACKAGE.replace('.', '/') + "/";
+            classes.add(support + ORCHESTRATOR_CLASS);
+            classes.add(support + DESCRIPTOR_CLASS);
+            classes.add(support + DESCRIPTOR_CLASS + "$Dependency");
+            classes.add(support + COMPONENT_CLASS);
+            classes.add(support + COMPONENT_CLASS + "$Resolver");
+            classes.add(support + LAZY_CLASS);
+            classes.add(support + LAZY_CLASS + "$Stub");
+            classes.add(support + LAZY_CLASS + "$Subcommand");
+            classes.add(support + TRIE_CLASS);
+            classes.add(support + PERMISSIONS_CLASS);
+            classes.add(support + PERMISSIONS_CLASS + "$Key");
+            classes.add(support + CONFIG_CLASS);
+            classes.add(support + TRAINING_CLASS);
+        }
+
+        List<TypeElement> roots = new ArrayList<>();
+        roots.add(plugin.element());
+        listeners.forEach(listener -> roots.add(listener.type()));
+        classes.addAll(CdsClassList.reachable(roots, processingEnv.getElementUtils()));
+        classLists.put(plugin.id(), classes);
+    }
+
+    /**
+     * Claims the listener classes in the package of the module and its subpackages, each class belongs to the first
+     * module claiming it.
+     */
+    private List<TypeElement> claimListeners(PluginModel plugin)
+    {
+        String packageName = plugin.packageName();
+        List<TypeElement> claimed = new ArrayList<>();
+        for (var it = listenerTypes.values().iterator(); it.hasNext(); )
+        {
+            TypeElement type = it.next();
+            String typePackage = processingEnv.getElementUtils().getPackageOf(type).getQualifiedName().toString();
+            if (typePackage.equals(packageName) || typePackage.startsWith(packageName + "."))
+            {
+                it.remove();
+                claimed.add(type);
+            }
+        }
+        return claimed;
+    }
+
+    /**
+     * The listener methods of the generated plugin, see {@link #PLUGIN_SOURCE}.
+     */
+    private static List<ListenerClass.Method> pluginListeners(PluginModel plugin)
+    {
+        String server = "<org.spongepowered.api.Server>";
+        List<ListenerClass.Method> methods = new ArrayList<>(List.of(
+                new ListenerClass.Method("onConstruction", "org.spongepowered.api.event.lifecycle.ConstructPluginEvent", false, "DEFAULT", false),
+                new ListenerClass.Method("onInit", STARTING_EVENT + server, true, "EARLY", false),
+                new ListenerClass.Method("onStarted", "org.spongepowered.api.event.lifecycle.StartedEngineEvent" + server, true, "FIRST", false),
+                new ListenerClass.Method("onRegisterCommand", REGISTER_COMMAND_EVENT + "<org.spongepowered.api.command.Command.Parameterized>", true, "DEFAULT", false)));
+        if (plugin.core())
+        {
+            methods.add(new ListenerClass.Method("awaitModules", STARTING_EVENT + server, true, "DEFAULT", false));
+            methods.add(new ListenerClass.Method("invalidatePermissions", "org.spongepowered.api.event.permission.SubjectDataUpdateEvent", false, "DEFAULT", false));
+            methods.add(new ListenerClass.Method("forgetPermissions", "org.spongepowered.api.event.network.ServerSideConnectionEvent.Disconnect", false, "DEFAULT", false));
+        }
+        if (plugin.lazy())
+        {
+            methods.add(new ListenerClass.Method("registerCommandStubs", REGISTER_COMMAND_EVENT + "<org.spongepowered.api.command.Command.Raw>", true, "DEFAULT", false));
+        }
+        return methods;
+    }
+
+    /**
+     * Generates the listener registration of the generated plugin and the claimed listener classes of the module.
+     *
+     * @param reflection receives the constructors of all listener classes and the methods of those left to the event
+     *                   manager
+     * @return the listener classes with a generated registration
+     */
+    private List<ListenerClass> buildListeners(PluginModel plugin, List<TypeElement> claimed, ReflectConfig reflection)
+    {
+        String packageName = plugin.packageName();
+        List<ListenerClass> listeners = new ArrayList<>();
+        for (TypeElement type : claimed)
+        {
+            ListenerClass listener = ListenerClass.scan(type, packageName, processingEnv.getElementUtils(), processingEnv.getTypeUtils(), messager);
+            reflection.injectable(type);
+            if (listener != null)
+            {
+                listeners.add(listener);
+            }
+            else
+            {
+                reflection.listener(type);
+            }
+        }
+
+        Map<String, List<ListenerClass.Method>> methods = new LinkedHashMap<>();
+        methods.put(plugin.entrypoint(), pluginListeners(plugin));
+        listeners.forEach(listener -> methods.put(listener.type().getQualifiedName().toString(), listener.methods()));
+        List<String> classes = new ArrayList<>();
+        StringBuilder registrations = new StringBuilder();
+        StringBuilder cases = new StringBuilder();
+        int index = 0;
+        for (var listener : methods.entrySet())
+        {
+            String type = listener.getKey();
+            classes.add(type + ".class");
+            registrations.append("        if (listener.getClass() == ").append(type).append(".class)\n        {\n");
+            for (ListenerClass.Method method : listener.getValue())
+            {
+                String token = method.generic() ? "new TypeToken<" + method.event() + ">() {}" : "TypeToken.get(" + method.event() + ".class)";
+                registrations.append("            register(plugin, ").append(token).append(", Order.").append(method.order()).append(", ")
+                             .append(method.beforeModifications()).append(", new Dispatcher(").append(index).append(", listener));\n");
+                cases.append("                case ").append(index).append(" -> ((").append(type).append(") listener).")
+                     .append(method.name()).append("((").append(method.event()).append(") event);\n");
+                index++;
+            }
+            registrations.append("            return true;\n        }\n");
+        }
+
+        Map<String, Object> values = new HashMap<>();
+        values.put("package", packageName);
+        values.put("listenersName", plugin.pluginName() + LISTENERS_SUFFIX);
+        values.put("listenerClasses", String.join(", ", classes));
+        values.put("registrations", registrations);
+        values.put("cases", cases);
+
+        Element[] elements = new Element[listeners.size() + 1];
+        elements[0] = plugin.element();
+        for (int i = 0; i < listeners.size(); i++)
+        {
+            elements[i + 1] = listeners.get(i).type();
+        }
+        try (BufferedWriter writer = newSourceFile(packageName, plugin.pluginName() + LISTENERS_SUFFIX, elements))
+        {
+            LISTENERS_SOURCE.render(writer, values);
+        }
+        catch (IOException e)
+        {
+            throw new IllegalStateException(e);
+        }
+        return listeners;
+    }
+
+    /**
+     * @param commands whether the created module is passed to the generated commands
+     * @return whether the component was generated, errors in the injection graph are reported otherwise
+     */
+    private boolean buildComponent(PluginModel plugin, boolean commands)
+    {
+        CompileTimeComponent component = CompileTimeComponent.build(plugin.element(), processingEnv.getElementUtils(), processingEnv.getTypeUtils(), messager);
+        if (component == null)
+        {
+            return false;
+        }
+        Map<String, Object> values = new HashMap<>();
+        values.put("package", plugin.packageName());
+        values.put("componentName", plugin.pluginName() + COMPONENT_SUFFIX);
+        // qualified, the module may be called like the nested Graph
+        String moduleName = plugin.element().getQualifiedName().toString();
+        values.put("moduleName", moduleName);
+        values.put("singletons", component.fields());
+        values.put("provisions", component.provisions());
+        values.put("create", commands ? "        " + moduleName + " module = new Graph(resolver).provide0();\n"
+                                        + "        " + plugin.pluginName() + COMMANDS_SUFFIX + ".created(module);\n"
+                                        + "        return module;\n"
+                                      : "        return new Graph(resolver).provide0();\n");
+
+        try (BufferedWriter writer = newSourceFile(plugin.packageName(), plugin.pluginName() + COMPONENT_SUFFIX, plugin.element()))
+        {
+            COMPONENT_SOURCE.render(writer, values);
+        }
+        catch (IOException e)
+        {
+            throw new IllegalStateException(e);
+        }
+        return true;
+    }
+
+    /**
+     * @param commands whether the created module is passed to the generated commands
+     */
+    private void buildBindings(PluginModel plugin, boolean commands)
+    {
+        InjectionPoints injection = plugin.injection();
+        String moduleName = plugin.element().getSimpleName().toString();
+        List<String> parameters = new ArrayList<>();
+        StringBuilder fields = new StringBuilder();
+        StringBuilder assignments = new StringBuilder();
+        List<String> arguments = new ArrayList<>();
+        StringBuilder members = new StringBuilder();
+        for (int i = 0; i < injection.constructorParameters().size(); i++)
+        {
+            InjectionPoints.Injection parameter = injection.constructorParameters().get(i);
+            providerField("parameter" + i, parameter, parameters, fields, assignments);
+            arguments.add("parameter" + i + ".get()");
+        }
+        for (int i = 0; i < injection.fields().size(); i++)
+        {
+            InjectionPoints.Injection field = injection.fields().get(i);
+            providerField("field" + i, field, parameters, fields, assignments);
+            members.append("            module.").append(field.name()).append(" = field").append(i).append(".get();\n");
+        }
+        if (injection.membersInjection())
+        {
+            parameters.add("MembersInjector<" + moduleName + "> members");
+            fields.append("        private final MembersInjector<").append(moduleName).append("> members;\n");
+            assignments.append("            this.members = members;\n");
+            members.append("            members.injectMembers(module);\n");
+        }
+        if (commands)
+        {
+            members.append("            ").append(plugin.pluginName()).append(COMMANDS_SUFFIX).append(".created(module);\n");
+        }
+
+        String construct = "new " + moduleName + "(" + String.join(", ", arguments) + ")";
+        StringBuilder provide = new StringBuilder();
+        if (members.isEmpty() && !injection.throwsChecked())
+        {
+            provide.append("            return ").append(construct).append(";\n");
+        }
+        else
+        {
+            String indent = injection.throwsChecked() ? "    " : "";
+            if (injection.throwsChecked())
+            {
+                provide.append("            try\n            {\n");
+            }
+            provide.append(indent).append("            ").append(moduleName).append(" module = ").append(construct).append(";\n");
+            members.toString().lines().forEach(line -> provide.append(indent).append(line).append("\n"));
+            provide.append(indent).append("            return module;\n");
+            if (injection.throwsChecked())
+            {
+                provide.append("            }\n")
+                       .append("            catch (RuntimeException e)\n            {\n                throw e;\n            }\n")
+                       .append("            catch (Exception e)\n            {\n")
+                       .append("                throw new ProvisionException(\"Could not create ").append(moduleName).append("\", e);\n")
+                       .append("            }\n");
+            }
+        }
+
+        Map<String, Object> values = new HashMap<>();
+        values.put("package", plugin.packageName());
+        values.put("membersImport", injection.membersInjection() ? "import com.google.inject.MembersInjector;\n" : "");
+        values.put("provisionImport", injection.throwsChecked() ? "import com.google.inject.ProvisionException;\n" : "");
+        values.put("bindingsName", plugin.pluginName() + BINDINGS_SUFFIX);
+        values.put("moduleName", moduleName);
+        values.put("scope", injection.scope() == null ? "" : ".in(" + injection.scope() + ".class)");
+        StringBuilder bound = new StringBuilder();
+        injection.bound().forEach(type -> bound.append("        bind(").append(type).append(".class);\n"));
+        values.put("bound", bound);
+        values.put("providerFields", fields.isEmpty() ? "" : fields + "\n");
+        values.put("providerParameters", String.join(", ", parameters));
+        values.put("providerAssignments", assignments);
+        values.put("provide", provide);
+
+        try (BufferedWriter writer = newSourceFile(plugin.packageName(), plugin.pluginName() + BINDINGS_SUFFIX, plugin.element()))
+        {
+            BINDINGS_SOURCE.render(writer, values);
+        }
+        catch (IOException e)
+        {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private void buildCommands(PluginModel plugin, CommandTree commandTree)
+    {
+        String parameters = commandTree.parameters();
+        Map<String, Object> values = new HashMap<>();
+        values.put("package", plugin.packageName());
+        values.put("commandsName", plugin.pluginName() + COMMANDS_SUFFIX);
+        values.put("moduleName", plugin.element().getSimpleName());
+        values.put("parameters", parameters.isEmpty() ? "" : parameters + "\n");
+        values.put("id", javaLiteral(plugin.id()));
+        values.put("containers", commandTree.containers());
+        values.put("registrations", commandTree.registrations());
+        StringBuilder permissions = new StringBuilder();
+        for (String permission : commandTree.permissions())
+        {
+            permissions.append(permissions.isEmpty() ? "\n            " : ",\n            ").append(javaLiteral(permission));
+        }
+        values.put("permissions", permissions.toString());
+
+        try (BufferedWriter writer = newSourceFile(plugin.packageName(), plugin.pluginName() + COMMANDS_SUFFIX, plugin.element()))
+        {
+            COMMANDS_SOURCE.render(writer, values);
+        }
+        catch (IOException e)
+        {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void providerField(String name, InjectionPoints.Injection injection, List<String> parameters,
+                                      StringBuilder fields, StringBuilder assignments)
+    {
+        parameters.add(injection.qualifiers() + "Provider<" + injection.type() + "> " + name);
+        fields.append("        private final Provider<").append(injection.type()).append("> ").append(name).append(";\n");
+        assignments.append("            this.").append(name).append(" = ").append(name).append(";\n");
+    }
+
+    private void buildDescriptor(PluginModel plugin, boolean component)
+    {
+        StringBuilder dependencies = new StringBuilder();
+        for (DependencyModel dep : plugin.dependencies())
+        {
+            dependencies.append(dependencies.isEmpty() ? "\n" : ",\n");
+            dependencies.append("                new Dependency(").append(javaLiteral(dep.value())).append(", ")
+                        .append(javaLiteral(dep.version())).append(", ").append(dep.optional()).append(")");
+        }
+
+        Map<String, Object> values = new HashMap<>();
+        values.put("package", plugin.packageName());
+        values.put("descriptorName", plugin.pluginName() + DESCRIPTOR_SUFFIX);
+        values.put("id", javaLiteral(plugin.id()));
+        values.put("name", javaLiteral(plugin.name()));
+        values.put("version", javaLiteral(plugin.version()));
+        values.put("description", javaLiteral(plugin.description()));
+        values.put("pluginClass", javaLiteral(plugin.entrypoint()));
+        values.put("bindingsClass", plugin.injection() == null ? "null" : javaLiteral(plugin.bindings()));
+        values.put("componentClass", component ? javaLiteral(plugin.entrypoint() + COMPONENT_SUFFIX) : "null");
+        values.put("listenersClass", javaLiteral(plugin.entrypoint() + LISTENERS_SUFFIX));
+        values.put("core", String.valueOf(plugin.core()));
+        values.put("lazy", String.valueOf(plugin.lazy()));
+        values.put("dependencies", dependencies);
+
+        try (BufferedWriter writer = newSourceFile(plugin.packageName(), plugin.pluginName() + DESCRIPTOR_SUFFIX, plugin.element()))
+        {
+            DESCRIPTOR_IMPLEMENTATION.render(writer, values);
+        }
+        catch (IOException e)
+        {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Quotes and escapes a value for a string literal in generated source.
+     */
+    static String javaLiteral(String value)
+    {
+        StringBuilder literal = new StringBuilder(value.length() + 2).append('"');
+        for (int i = 0; i < value.length(); i++)
+        {
+            char c = value.charAt(i);
+            switch (c)
+            {
+                case '"' -> literal.append("\\\"");
+                case '\\' -> literal.append("\\\\");
+                case '\n' -> literal.append("\\n");
+                case '\r' -> literal.append("\\r");
+                case '\t' -> literal.append("\\t");
+                default ->
+                {
+                    if (c < 0x20)
+                    {
+                        literal.append(String.format("\\u%04x", (int) c));
+                    }
+                    else
+                    {
+                        literal.append(c);
+                    }
+                }
+            }
+        }
+        return literal.append('"').toString();
+    }
+
+    /**
+     * Looks up the dependency index of a plugin on the classpath.
+     *
+     * @return the ids of the dependencies or an empty list if the plugin has no index
+     */
+    private List<String> upstreamDependencies(String id)
+    {
+        try
+        {
+            FileObject index = processingEnv.getFiler().getResource(CLASS_PATH, "", DEPENDENCY_INDEX + id);
+            return index.getCharContent(true).toString().lines().filter(line -> !line.isBlank()).toList();
+        }
+        catch (IOException | IllegalArgumentException e)
+        {
+            return List.of();
+        }
+    }
+
+    /**
+     * Writes the resources shared by all plugins of this compilation and the per plugin lang files.
+     */
+    private void writeResources(List<PluginModel> plugins, List<List<String>> loadOrder)
+    {
+        if (plugins.isEmpty())
+        {
+            return;
+        }
+        long start = System.nanoTime();
+        Element[] elements = plugins.stream().map(PluginModel::element).toArray(Element[]::new);
+        String modelHash = modelHash(plugins);
+
+        if (outputCache.isStale("", "META-INF/sponge_plugins.json", modelHash))
+        {
+            writePluginMetadata(plugins, elements);
+        }
+
+        if (outputCache.isStale("", ModuleIndex.FILE, modelHash))
+        {
+            writeModuleIndex(plugins, elements);
+        }
+
+        if (outputCache.isStale("", DESCRIPTOR_SERVICE, modelHash))
+        {
+            writeDescriptorService(plugins, elements);
+        }
+
+        if (!configSerializers.isEmpty() && outputCache.isStale("", CONFIG_SERVICE, OutputCache.hash(configSerializers.values().toArray(String[]::new))))
+        {
+            writeConfigService();
+        }
+
+        if (!classLists.isEmpty())
+        {
+            List<String> parts = new ArrayList<>();
+            classLists.forEach((id, classes) -> {
+                parts.add(id);
+                parts.addAll(classes);
+            });
+            if (outputCache.isStale("", CdsClassList.FILE, OutputCache.hash(parts.toArray(String[]::new))))
+            {
+                writeClassList(elements);
+            }
+        }
+
+        if (outputCache.isStale("", "META-INF/MANIFEST.MF", modelHash))
+        {
+            writeManifest(elements);
+        }
+
+        if (outputCache.isStale("", LOAD_ORDER_FILE, modelHash))
+        {
+            writeLoadOrder(loadOrder, elements);
+        }
+
+        for (PluginModel plugin : plugins)
+        {
+            String pluginHash = modelHash(List.of(plugin));
+            if (outputCache.isStale("assets", plugin.id() + "/lang/en_us.lang", pluginHash))
+            {
+                writeLangFile(plugin);
+            }
+            if (outputCache.isStale("", DEPENDENCY_INDEX + plugin.id(), pluginHash))
+            {
+                writeDependencyIndex(plugin);
+            }
+            ReflectConfig reflection = reflectConfigs.get(plugin.id());
+            if (reflection != null)
+            {
+                List<String> parts = new ArrayList<>();
+                reflection.hashParts(parts);
+                String nativeImageDir = NATIVE_IMAGE_DIR + plugin.id() + "/";
+                if (outputCache.isStale("", nativeImageDir + "reflect-config.json", OutputCache.hash(parts.toArray(String[]::new))))
+                {
+                    writeReflectConfig(plugin, reflection, nativeImageDir);
+                }
+                if (outputCache.isStale("", nativeImageDir + "resource-config.json", pluginHash))
+                {
+                    writeResourceConfig(plugin, nativeImageDir);
+                }
+                if (plugin.lazy() && outputCache.isStale("", nativeImageDir + "proxy-config.json", pluginHash))
+                {
+                    writeProxyConfig(plugin, nativeImageDir);
+                }
+            }
+        }
+        report.phase("writeResources", start);
+    }
+
+    private void writeReport()
+    {
+        if (!processingEnv.getOptions().containsKey(REPORT_OPTION))
+        {
+            return;
+        }
+        // -Acubeengine.processor.report without a value maps to null
+        String reportFile = processingEnv.getOptions().get(REPORT_OPTION);
+        if ("false".equals(reportFile))
+        {
+            return;
+        }
+        if (reportFile == null || reportFile.isEmpty() || "true".equals(reportFile))
+        {
+            reportFile = DEFAULT_REPORT_FILE;
+        }
+        try (BufferedWriter writer = new BufferedWriter(processingEnv.getFiler().createResource(CLASS_OUTPUT, "", reportFile).openWriter()))
+        {
+            report.write(new JsonWriter(writer));
+        }
+        catch (IOException e)
+        {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private void writePluginMetadata(List<PluginModel> plugins, Element[] elements)
+    {
+        try (BufferedWriter writer = newResourceFile("", "META-INF/sponge_plugins.json", elements))
+        {
+            JsonWriter json = new JsonWriter(writer);
+            json.beginObject();
+            json.name("loader").beginObject()
+                .name("name").value("java_plain")
+                .name("version").value("1.0")
+                .endObject();
+            json.name("license").value("GPLv3");
+            json.name("plugins").beginArray();
+            for (PluginModel plugin : plugins)
+            {
+                writePlugin(json, plugin);
+            }
+            json.endArray();
+            json.endObject();
+        }
+        catch (IOException e)
+        {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * One class per line in internal form below the {@code # <id>} line of its plugin, every class is listed once.
+     */
+    private void writeClassList(Element[] elements)
+    {
+        try (BufferedWriter writer = newResourceFile("", CdsClassList.FILE, elements))
+        {
+            Set<String> written = new HashSet<>();
+            for (Map.Entry<String, Set<String>> entry : classLists.entrySet())
+            {
+                writer.write("# " + entry.getKey());
+                writer.newLine();
+                for (String className : entry.getValue())
+                {
+                    if (written.add(className))
+                    {
+                        writer.write(className);
+                        writer.newLine();
+                    }
+                }
+            }
+        }
+        catch (IOException e)
+        {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private void writeDescriptorService(List<PluginModel> plugins, Element[] elements)
+    {
+        try (BufferedWriter writer = newResourceFile("", DESCRIPTOR_SERVICE, elements))
+        {
+            for (PluginModel plugin : plugins)
+            {
+                writer.write(plugin.entrypoint() + DESCRIPTOR_SUFFIX);
+                writer.newLine();
+            }
+        }
+        catch (IOException e)
+        {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private void writeConfigService()
+    {
+        try (BufferedWriter writer = newResourceFile("", CONFIG_SERVICE, configSerializers.keySet().toArray(Element[]::new)))
+        {
+            for (String serializer : configSerializers.values())
+            {
+                writer.write(serializer);
+                writer.newLine();
+            }
+        }
+        catch (IOException e)
+        {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private void writeModuleIndex(List<PluginModel> plugins, Element[] elements)
+    {
+        try (OutputStream out = newBinaryResourceFile(ModuleIndex.FILE, elements))
+        {
+            ModuleIndex.write(plugins, out);
+        }
+        catch (IOException e)
+        {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void writePlugin(JsonWriter json, PluginModel plugin) throws IOException
+    {
+        json.beginObject()
+            .name("id").value(plugin.id())
+            .name("name").value(plugin.name())
+            .name("version").value(plugin.version())
+            .name("entrypoint").value(plugin.entrypoint())
+            .name("description").value(plugin.description());
+        json.name("links").beginObject()
+            .name("homepage").value(plugin.url()) // TODO source/issues url
+            .endObject();
+        json.name("contributors").beginArray()
+            .beginObject().name("name").value(plugin.team()).endObject()
+            .endArray();
+        json.name("dependencies").beginArray();
+        for (DependencyModel dep : plugin.dependencies())
+        {
+            json.beginObject()
+                .name("id").value(dep.value())
+                .name("version").value(dep.version())
+                .name("optional").value(dep.optional())
+                .endObject();
+        }
+        json.endArray();
+        json.name("properties").beginObject()
+            .name("source-version").value(plugin.sourceVersion())
+            .endObject();
+        json.endObject();
+    }
+
+    private void writeLoadOrder(List<List<String>> loadOrder, Element[] elements)
+    {
+        try (BufferedWriter writer = newResourceFile("", LOAD_ORDER_FILE, elements))
+        {
+            JsonWriter json = new JsonWriter(writer);
+            json.beginObject();
+            json.name("levels").beginArray();
+            for (List<String> level : loadOrder)
+            {
+                json.beginArray();
+                for (String id : level)
+                {
+                    json.value(id);
+                }
+                json.endArray();
+            }
+            json.endArray();
+            json.endObject();
+        }
+        catch (IOException e)
+        {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private void writeManifest(Element[] elements)
+    {
+        try (BufferedWriter writer = newResourceFile("", "META-INF/MANIFEST.MF", elements))
+        {
+            writer.write("Manifest-Version: 1.0");
+
+        }
+        catch (IOException e)
+        {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private void writeLangFile(PluginModel plugin)
+    {
+        try (BufferedWriter writer = newResourceFile("assets", plugin.id() + "/lang/en_us.lang", plugin.element()))
+        {
+        }
+        catch (IOException e)
+        {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private void writeReflectConfig(PluginModel plugin, ReflectConfig reflection, String nativeImageDir)
+    {
+        try (BufferedWriter writer = newResourceFile("", nativeImageDir + "reflect-config.json", plugin.element()))
+        {
+            reflection.write(new JsonWriter(writer));
+        }
+        catch (IOException e)
+        {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Includes the lang files of the plugin and the metadata read by Sponge and the generated support classes.
+     */
+    private void writeResourceConfig(PluginModel plugin, String nativeImageDir)
+    {
+        try (BufferedWriter writer = newResourceFile("", nativeImageDir + "resource-config.json", plugin.element()))
+        {
+            JsonWriter json = new JsonWriter(writer);
+            json.beginObject();
+            json.name("resources").beginObject();
+            json.name("includes").beginArray();
+            json.beginObject().name("pattern").value("\\Qassets/" + plugin.id() + "/lang/\\E.*").endObject();
+            for (String file : List.of("META-INF/sponge_plugins.json", ModuleIndex.FILE, LOAD_ORDER_FILE, DEPENDENCY_INDEX + plugin.id()))
+            {
+                json.beginObject().name("pattern").value("\\Q" + file + "\\E").endObject();
+            }
+            json.endArray();
+            json.endObject();
+            json.endObject();
+        }
+        catch (IOException e)
+        {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * The {@code LazyModule} captures the commands of a lazy module through a proxy of the command registration event.
+     */
+    private void writeProxyConfig(PluginModel plugin, String nativeImageDir)
+    {
+        try (BufferedWriter writer = newResourceFile("", nativeImageDir + "proxy-config.json", plugin.element()))
+        {
+            JsonWriter json = new JsonWriter(writer);
+            json.beginArray();
+            json.beginObject().name("interfaces").beginArray().value(REGISTER_COMMAND_EVENT).endArray().endObject();
+            json.endArray();
+        }
+        catch (IOException e)
+        {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private void writeDependencyIndex(PluginModel plugin)
+    {
+        try (BufferedWriter writer = newResourceFile("", DEPENDENCY_INDEX + plugin.id(), plugin.element()))
+        {
+            for (DependencyModel dep : plugin.dependencies())
+            {
+                writer.write(dep.value());
+                writer.write('\n');
+            }
+        }
+        catch (IOException e)
+        {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Hashes everything the generated resources of the given plugins depend on.
+     */
+    private static String modelHash(List<PluginModel> plugins)
+    {
+        List<String> parts = new ArrayList<>();
+        for (PluginModel plugin : plugins)
+        {
+            plugin.hashParts(parts);
+        }
+        return OutputCache.hash(parts.toArray(String[]::new));
+    }
+
+    /**
+     * The originating elements are passed on to the {@link javax.annotation.processing.Filer} so incremental builds
+     * (e.g. Gradle) know which inputs a generated file depends on.
+     */
+    private BufferedWriter newSourceFile(String packageName, String pluginName, Element... originatingElements) throws IOException
     {
         String name = pluginName;
         if (!packageName.isEmpty()) {
             name = packageName + "." + name;
         }
-        FileObject obj = this.processingEnv.getFiler().createSourceFile(name);
-        return new BufferedWriter(obj.openWriter());
+        FileObject obj = this.processingEnv.getFiler().createSourceFile(name, originatingElements);
+        return new BufferedWriter(report.track(name.replace('.', '/') + ".java", obj.openWriter()));
+    }
+
+    private BufferedWriter newResourceFile(String packageName, String fileName, Element... originatingElements) throws IOException
+    {
+        FileObject obj = this.processingEnv.getFiler().createResource(CLASS_OUTPUT, packageName, fileName, originatingElements);
+        String path = packageName.isEmpty() ? fileName : packageName + "/" + fileName;
+        return new BufferedWriter(report.track(path, obj.openWriter()));
     }
 
-    private BufferedWriter newResourceFile(String packageName, String fileName) throws IOException
+    private OutputStream newBinaryResourceFile(String fileName, Element... originatingElements) throws IOException
     {
-        FileObject obj = this.processingEnv.getFiler().createResource(CLASS_OUTPUT, packageName, fileName);
-        return new BufferedWriter(obj.openWriter());
+        FileObject obj = this.processingEnv.getFiler().createResource(CLASS_OUTPUT, "", fileName, originatingElements);
+        return new BufferedOutputStream(report.track(fileName, obj.openOutputStream()));
     }
 }
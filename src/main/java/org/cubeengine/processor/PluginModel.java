@@ -0,0 +1,73 @@
+/*
+ * CubeEngine Plugin Generator - Generates necessary plugin glue code for CubeEngine modules.
+ * Copyright © 2018 CubeEngine (development@cubeengine.org)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.cubeengine.processor;
+
+import java.util.List;
+
+import javax.lang.model.element.TypeElement;
+
+/**
+ * Everything needed to generate the glue code and metadata of one plugin.
+ *
+ * @param element the annotated {@link Module} or {@link Core} class
+ * @param core whether this is the core plugin
+ * @param lazy whether the module is only activated on the first use of its commands or listeners
+ * @param packageName the package of the annotated class and the generated plugin class
+ * @param pluginName the simple name of the generated plugin class
+ * @param dependencies all dependencies including the implicit core and spongeapi dependencies
+ * @param injection the injection points for the generated Guice bindings, null for the core plugin or if Guice
+ *                  cannot create the module
+ */
+record PluginModel(TypeElement element, boolean core, boolean lazy, String packageName, String pluginName,
+                   String id, String name, String version, String description, String url, String team,
+                   String sourceVersion, List<DependencyModel> dependencies, InjectionPoints injection)
+{
+    String entrypoint()
+    {
+        return packageName.isEmpty() ? pluginName : packageName + "." + pluginName;
+    }
+
+    String bindings()
+    {
+        return entrypoint() + PluginGenerator.BINDINGS_SUFFIX;
+    }
+
+    /**
+     * Appends all fields that end up in generated resources, see {@link OutputCache#hash(String...)}.
+     */
+    void hashParts(List<String> parts)
+    {
+        parts.add(element.getQualifiedName().toString());
+        parts.add(String.valueOf(core));
+        parts.add(String.valueOf(lazy));
+        parts.add(entrypoint());
+        parts.add(id);
+        parts.add(name);
+        parts.add(version);
+        parts.add(description);
+        parts.add(url);
+        parts.add(team);
+        parts.add(sourceVersion);
+        for (DependencyModel dep : dependencies)
+        {
+            parts.add(dep.value());
+            parts.add(dep.version());
+            parts.add(String.valueOf(dep.optional()));
+        }
+    }
+}
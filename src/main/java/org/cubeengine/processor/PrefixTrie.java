@@ -0,0 +1,105 @@
+/*
+ * CubeEngine Plugin Generator - Generates necessary plugin glue code for CubeEngine modules.
+ * Copyright © 2018 CubeEngine (development@cubeengine.org)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.cubeengine.processor;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+import java.util.TreeSet;
+
+/**
+ * Builds the arrays of a generated {@code CompletionTrie} at compile time.
+ * <p>
+ * The words are sorted, every node covers the range of words starting with its prefix. The nodes are numbered
+ * breadth first, so the children of a node are consecutive and sorted by their label.
+ */
+final class PrefixTrie
+{
+    private PrefixTrie()
+    {
+    }
+
+    /**
+     * @return the expression creating the {@code CompletionTrie} of the lower case words
+     */
+    static String expression(Collection<String> words)
+    {
+        List<String> sorted = new ArrayList<>(new TreeSet<>(words.stream().map(word -> word.toLowerCase(Locale.ROOT)).toList()));
+        List<Character> labels = new ArrayList<>();
+        // depth, from, to per node
+        List<int[]> ranges = new ArrayList<>();
+        List<Integer> nodes = new ArrayList<>();
+        labels.add('\0');
+        ranges.add(new int[] {0, 0, sorted.size()});
+        for (int node = 0; node < ranges.size(); node++)
+        {
+            int depth = ranges.get(node)[0];
+            int from = ranges.get(node)[1];
+            int to = ranges.get(node)[2];
+            int firstChild = ranges.size();
+            int word = from;
+            while (word < to && sorted.get(word).length() == depth)
+            {
+                word++;
+            }
+            while (word < to)
+            {
+                char label = sorted.get(word).charAt(depth);
+                int end = word;
+                while (end < to && sorted.get(end).charAt(depth) == label)
+                {
+                    end++;
+                }
+                labels.add(label);
+                ranges.add(new int[] {depth + 1, word, end});
+                word = end;
+            }
+            nodes.add(firstChild);
+            nodes.add(ranges.size() - firstChild);
+            nodes.add(from);
+            nodes.add(to);
+        }
+
+        StringBuilder expression = new StringBuilder("new CompletionTrie(new String[] {");
+        for (int i = 0; i < sorted.size(); i++)
+        {
+            expression.append(i == 0 ? "" : ", ").append(PluginGenerator.javaLiteral(sorted.get(i)));
+        }
+        expression.append("}, new char[] {");
+        for (int i = 0; i < labels.size(); i++)
+        {
+            expression.append(i == 0 ? "" : ", ").append(charLiteral(labels.get(i)));
+        }
+        expression.append("}, new int[] {");
+        for (int i = 0; i < nodes.size(); i++)
+        {
+            expression.append(i == 0 ? "" : ", ").append(nodes.get(i));
+        }
+        return expression.append("})").toString();
+    }
+
+    private static String charLiteral(char c)
+    {
+        if (c >= 'a' && c <= 'z' || c >= '0' && c <= '9' || c == '-' || c == '_' || c == '.')
+        {
+            return "'" + c + "'";
+        }
+        return "(char) " + (int) c;
+    }
+}
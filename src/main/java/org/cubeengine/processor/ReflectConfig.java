@@ -0,0 +1,223 @@
+/*
+ * CubeEngine Plugin Generator - Generates necessary plugin glue code for CubeEngine modules.
+ * Copyright © 2018 CubeEngine (development@cubeengine.org)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.cubeengine.processor;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.ArrayType;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.lang.model.util.Elements;
+import javax.lang.model.util.Types;
+
+/**
+ * The members of a plugin that are accessed reflectively by Guice, the {@link java.util.ServiceLoader} and the
+ * event manager, written as the {@code reflect-config.json} of GraalVM native-image.
+ */
+final class ReflectConfig
+{
+    private final Elements elements;
+    private final Types types;
+    private final Map<String, Entry> entries = new LinkedHashMap<>();
+
+    ReflectConfig(Elements elements, Types types)
+    {
+        this.elements = elements;
+        this.types = types;
+    }
+
+    void constructor(String className, List<String> parameterTypes)
+    {
+        method(className, "<init>", parameterTypes);
+    }
+
+    void method(String className, String name, List<String> parameterTypes)
+    {
+        entry(className).methods.add(new Method(name, parameterTypes));
+    }
+
+    /**
+     * Adds the constructors and members Guice uses to create and inject the type, superclass members included.
+     */
+    void injectable(TypeElement type)
+    {
+        for (ExecutableElement constructor : ElementFilter.constructorsIn(type.getEnclosedElements()))
+        {
+            if (InjectionPoints.isInject(constructor) || constructor.getParameters().isEmpty())
+            {
+                constructor(binaryName(type), parameterTypes(constructor));
+            }
+        }
+        members(type);
+    }
+
+    /**
+     * Adds the {@code @Inject} fields and methods of the type and its superclasses, used by a {@code MembersInjector}.
+     */
+    void members(TypeElement type)
+    {
+        for (TypeElement current = type; current != null; current = InjectionPoints.superclass(current))
+        {
+            for (Element member : current.getEnclosedElements())
+            {
+                if (!InjectionPoints.isInject(member) || member.getModifiers().contains(Modifier.STATIC))
+                {
+                    continue;
+                }
+                if (member.getKind() == ElementKind.FIELD)
+                {
+                    entry(binaryName(current)).fields.add(member.getSimpleName().toString());
+                }
+                else if (member.getKind() == ElementKind.METHOD)
+                {
+                    method(binaryName(current), member.getSimpleName().toString(), parameterTypes((ExecutableElement) member));
+                }
+            }
+        }
+    }
+
+    /**
+     * Adds the {@code @Listener} methods the event manager scans.
+     */
+    void listener(TypeElement type)
+    {
+        for (ExecutableElement method : ElementFilter.methodsIn(type.getEnclosedElements()))
+        {
+            if (ListenerClass.isListener(method))
+            {
+                method(binaryName(type), method.getSimpleName().toString(), parameterTypes(method));
+            }
+        }
+    }
+
+    private List<String> parameterTypes(ExecutableElement executable)
+    {
+        List<String> parameterTypes = new ArrayList<>();
+        for (VariableElement parameter : executable.getParameters())
+        {
+            parameterTypes.add(typeName(parameter.asType()));
+        }
+        return parameterTypes;
+    }
+
+    /**
+     * @return the erased type as named by {@code Class.getName()}, arrays with a {@code []} suffix
+     */
+    private String typeName(TypeMirror type)
+    {
+        TypeMirror erased = types.erasure(type);
+        if (erased.getKind() == TypeKind.ARRAY)
+        {
+            return typeName(((ArrayType) erased).getComponentType()) + "[]";
+        }
+        if (erased.getKind() == TypeKind.DECLARED)
+        {
+            return binaryName((TypeElement) ((DeclaredType) erased).asElement());
+        }
+        return erased.toString();
+    }
+
+    private String binaryName(TypeElement type)
+    {
+        return elements.getBinaryName(type).toString();
+    }
+
+    private Entry entry(String className)
+    {
+        return entries.computeIfAbsent(className, Entry::new);
+    }
+
+    void hashParts(List<String> parts)
+    {
+        for (Entry entry : entries.values())
+        {
+            parts.add(entry.name);
+            for (Method method : entry.methods)
+            {
+                parts.add(method.name);
+                parts.addAll(method.parameterTypes);
+            }
+            parts.addAll(entry.fields);
+        }
+    }
+
+    void write(JsonWriter json) throws IOException
+    {
+        json.beginArray();
+        for (Entry entry : entries.values())
+        {
+            json.beginObject();
+            json.name("name").value(entry.name);
+            if (!entry.methods.isEmpty())
+            {
+                json.name("methods").beginArray();
+                for (Method method : entry.methods)
+                {
+                    json.beginObject().name("name").value(method.name).name("parameterTypes").beginArray();
+                    for (String parameterType : method.parameterTypes)
+                    {
+                        json.value(parameterType);
+                    }
+                    json.endArray().endObject();
+                }
+                json.endArray();
+            }
+            if (!entry.fields.isEmpty())
+            {
+                json.name("fields").beginArray();
+                for (String field : entry.fields)
+                {
+                    json.beginObject().name("name").value(field).endObject();
+                }
+                json.endArray();
+            }
+            json.endObject();
+        }
+        json.endArray();
+    }
+
+    private record Method(String name, List<String> parameterTypes)
+    {
+    }
+
+    private static final class Entry
+    {
+        private final String name;
+        private final Set<Method> methods = new LinkedHashSet<>();
+        private final Set<String> fields = new LinkedHashSet<>();
+
+        private Entry(String name)
+        {
+            this.name = name;
+        }
+    }
+}
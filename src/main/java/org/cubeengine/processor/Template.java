@@ -0,0 +1,116 @@
+/*
+ * CubeEngine Plugin Generator - Generates necessary plugin glue code for CubeEngine modules.
+ * Copyright © 2018 CubeEngine (development@cubeengine.org)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.cubeengine.processor;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A precompiled text template with named {@code ${slot}} placeholders.
+ * <p>
+ * The template text is parsed once into alternating literal and slot segments, rendering just writes the segments to
+ * the target {@link Writer}. Compiled templates are cached per JVM, so a long-lived build daemon parses each template
+ * exactly once no matter how many compilations it runs.
+ */
+final class Template
+{
+    private static final Map<String, Template> CACHE = new ConcurrentHashMap<>();
+
+    private static final String SLOT_START = "${";
+    private static final String SLOT_END = "}";
+
+    /** literals[i] is written before slots[i], the last literal after the last slot */
+    private final String[] literals;
+    private final String[] slots;
+
+    private Template(String[] literals, String[] slots)
+    {
+        this.literals = literals;
+        this.slots = slots;
+    }
+
+    /**
+     * Returns the compiled template for the given text, parsing it only if it was not compiled before.
+     */
+    static Template compile(String text)
+    {
+        return CACHE.computeIfAbsent(text, Template::parse);
+    }
+
+    private static Template parse(String text)
+    {
+        List<String> literals = new ArrayList<>();
+        List<String> slots = new ArrayList<>();
+        int pos = 0;
+        int start;
+        while ((start = text.indexOf(SLOT_START, pos)) != -1)
+        {
+            int end = text.indexOf(SLOT_END, start + SLOT_START.length());
+            if (end == -1)
+            {
+                throw new IllegalArgumentException("Unterminated slot at index " + start);
+            }
+            literals.add(text.substring(pos, start));
+            slots.add(text.substring(start + SLOT_START.length(), end));
+            pos = end + SLOT_END.length();
+        }
+        literals.add(text.substring(pos));
+        return new Template(literals.toArray(String[]::new), slots.toArray(String[]::new));
+    }
+
+    /**
+     * Renders the template into the given writer.
+     *
+     * @param writer the target
+     * @param values the slot values, either {@link CharSequence}s or {@link Fragment}s which write themselves
+     */
+    void render(Writer writer, Map<String, ?> values) throws IOException
+    {
+        for (int i = 0; i < slots.length; i++)
+        {
+            writer.write(literals[i]);
+            Object value = values.get(slots[i]);
+            if (value instanceof Fragment fragment)
+            {
+                fragment.writeTo(writer);
+            }
+            else if (value != null)
+            {
+                writer.append((CharSequence) value);
+            }
+            else if (!values.containsKey(slots[i]))
+            {
+                throw new IllegalArgumentException("No value for template slot " + slots[i]);
+            }
+        }
+        writer.write(literals[slots.length]);
+    }
+
+    /**
+     * A slot value that is written directly to the output instead of being built as a string first.
+     */
+    @FunctionalInterface
+    interface Fragment
+    {
+        void writeTo(Writer writer) throws IOException;
+    }
+}
@@ -0,0 +1,101 @@
+/*
+ * CubeEngine Plugin Generator - Generates necessary plugin glue code for CubeEngine modules.
+ * Copyright © 2018 CubeEngine (development@cubeengine.org)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.cubeengine.libcube;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.Enumeration;
+
+/**
+ * Loads the classes a plugin lists in {@code META-INF/cubeengine/cds.classlist} during a training run for a dynamic
+ * AppCDS archive:
+ * <pre>
+ * java -XX:ArchiveClassesAtExit=cubeengine.jsa -Dcubeengine.cds.training=true ...
+ * </pre>
+ * A dynamic archive contains the classes loaded until the JVM exits, including those of the plugin class loader of
+ * Sponge, so loading the listed classes archives the commands, listeners and lazy modules the training run never
+ * uses. The server is then started with {@code -XX:SharedArchiveFile=cubeengine.jsa}.
+ */
+public final class CdsTraining
+{
+    public static final String PROPERTY = "cubeengine.cds.training";
+    static final String FILE = "META-INF/cubeengine/cds.classlist";
+
+    private CdsTraining()
+    {
+    }
+
+    /**
+     * Loads the listed classes of the plugin with its class loader if the {@link #PROPERTY} is set.
+     */
+    public static void load(Class<?> plugin, String id)
+    {
+        if (Boolean.getBoolean(PROPERTY))
+        {
+            load(plugin.getClassLoader(), id);
+        }
+    }
+
+    /**
+     * Loads the classes below the {@code # <id>} line of every class list the loader sees, without initializing them.
+     * Classes that cannot be loaded, e.g. of an optional dependency that is not installed, are skipped.
+     *
+     * @return the number of loaded classes
+     */
+    static int load(ClassLoader loader, String id)
+    {
+        int loaded = 0;
+        try
+        {
+            Enumeration<URL> lists = loader.getResources(FILE);
+            while (lists.hasMoreElements())
+            {
+                String section = null;
+                try (InputStream in = lists.nextElement().openStream())
+                {
+                    for (String line : new String(in.readAllBytes(), StandardCharsets.UTF_8).lines().toList())
+                    {
+                        if (line.startsWith("#"))
+                        {
+                            section = line.substring(1).trim();
+                        }
+                        else if (id.equals(section) && !line.isBlank())
+                        {
+                            try
+                            {
+                                Class.forName(line.trim().replace('/', '.'), false, loader);
+                                loaded++;
+                            }
+                            catch (ClassNotFoundException | LinkageError ignored)
+                            {
+                            }
+                        }
+                    }
+                }
+            }
+        }
+        catch (IOException e)
+        {
+            throw new UncheckedIOException(e);
+        }
+        return loaded;
+    }
+}
@@ -0,0 +1,99 @@
+/*
+ * CubeEngine Plugin Generator - Generates necessary plugin glue code for CubeEngine modules.
+ * Copyright © 2018 CubeEngine (development@cubeengine.org)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.cubeengine.libcube;
+
+import java.util.List;
+
+/**
+ * A prefix trie over a sorted set of lower case words, built at compile time.
+ * <p>
+ * Node {@code n} is described by {@code nodes[4n..4n+3]}: its first child, the number of its children and the
+ * range of the words starting with its prefix. The children of a node are consecutive and sorted by their label,
+ * so a lookup costs one binary search over the children per character of the prefix and allocates nothing but
+ * the returned view.
+ */
+public final class CompletionTrie
+{
+    public static final CompletionTrie EMPTY = new CompletionTrie(new String[0], new char[] {0}, new int[] {1, 0, 0, 0});
+
+    private final List<String> words;
+    private final char[] labels;
+    private final int[] nodes;
+
+    public CompletionTrie(String[] words, char[] labels, int[] nodes)
+    {
+        this.words = List.of(words);
+        this.labels = labels;
+        this.nodes = nodes;
+    }
+
+    /**
+     * @return the words in their sorted order
+     */
+    public List<String> words()
+    {
+        return words;
+    }
+
+    public boolean isEmpty()
+    {
+        return words.isEmpty();
+    }
+
+    /**
+     * @param completions one completion per word, in the order of {@link #words()}
+     * @param prefix the prefix, compared case insensitively
+     * @return a view of the completions whose word starts with the prefix
+     */
+    public <T> List<T> complete(List<T> completions, CharSequence prefix)
+    {
+        int node = 0;
+        for (int i = 0; i < prefix.length(); i++)
+        {
+            node = child(node, Character.toLowerCase(prefix.charAt(i)));
+            if (node < 0)
+            {
+                return List.of();
+            }
+        }
+        return completions.subList(nodes[node * 4 + 2], nodes[node * 4 + 3]);
+    }
+
+    private int child(int node, char label)
+    {
+        int low = nodes[node * 4];
+        int high = low + nodes[node * 4 + 1] - 1;
+        while (low <= high)
+        {
+            int middle = (low + high) >>> 1;
+            if (labels[middle] < label)
+            {
+                low = middle + 1;
+            }
+            else if (labels[middle] > label)
+            {
+                high = middle - 1;
+            }
+            else
+            {
+                return middle;
+            }
+        }
+        return -1;
+    }
+}
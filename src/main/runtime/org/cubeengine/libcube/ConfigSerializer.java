@@ -0,0 +1,231 @@
+/*
+ * CubeEngine Plugin Generator - Generates necessary plugin glue code for CubeEngine modules.
+ * Copyright © 2018 CubeEngine (development@cubeengine.org)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.cubeengine.libcube;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.ServiceLoader;
+
+/**
+ * Reads and writes a config class through direct field access, generated for classes annotated with
+ * {@code @Config} and registered in {@code META-INF/services}.
+ * <p>
+ * A config file may start with the {@link #header()} of the serializer it was written with. A file whose header
+ * is current and that contained every key when it was read does not have to be written again.
+ * <p>
+ * The node is the tree the YAML codec of libcube reads and writes, so a file stays readable by the reflective
+ * serialization, which remains in charge of classes without a serializer, see {@link #find(Class)}.
+ */
+public interface ConfigSerializer<T>
+{
+    String HEADER_PREFIX = "# schema: ";
+
+    Class<T> type();
+
+    /**
+     * @return the hash of the keys and types of the serialized fields
+     */
+    String schemaHash();
+
+    /**
+     * Reads the values of the node into the config, fields without a key or with a null value keep their value.
+     *
+     * @return whether the node contained every key
+     */
+    boolean read(Map<?, ?> node, T config);
+
+    /**
+     * @return the node of the config with the keys in declaration order
+     */
+    Map<String, Object> write(T config);
+
+    /**
+     * Looks up the generated serializer of a config class, libcube serializes the class reflectively if there is none.
+     */
+    @SuppressWarnings("unchecked")
+    static <T> Optional<ConfigSerializer<T>> find(Class<T> type)
+    {
+        for (ConfigSerializer<?> serializer : ServiceLoader.load(ConfigSerializer.class, type.getClassLoader()))
+        {
+            if (serializer.type() == type)
+            {
+                return Optional.of((ConfigSerializer<T>) serializer);
+            }
+        }
+        return Optional.empty();
+    }
+
+    default String header()
+    {
+        return HEADER_PREFIX + schemaHash();
+    }
+
+    /**
+     * @param firstLine the first line of the config file
+     * @param complete the result of {@link #read(Map, Object)}
+     * @return whether the file can be kept as it is
+     */
+    default boolean isCurrent(String firstLine, boolean complete)
+    {
+        return complete && header().equals(firstLine);
+    }
+
+    static String stringValue(Object value)
+    {
+        return value.toString();
+    }
+
+    static boolean booleanValue(Object value, String key)
+    {
+        if (value instanceof Boolean bool)
+        {
+            return bool;
+        }
+        if ("true".equalsIgnoreCase(value.toString()) || "false".equalsIgnoreCase(value.toString()))
+        {
+            return Boolean.parseBoolean(value.toString());
+        }
+        throw invalid(value, key);
+    }
+
+    static int intValue(Object value, String key)
+    {
+        if (value instanceof Number number)
+        {
+            return (int) integral(number, Integer.MIN_VALUE, Integer.MAX_VALUE, key);
+        }
+        try
+        {
+            return Integer.parseInt(value.toString().trim());
+        }
+        catch (NumberFormatException e)
+        {
+            throw invalid(value, key);
+        }
+    }
+
+    static long longValue(Object value, String key)
+    {
+        if (value instanceof Number number)
+        {
+            return integral(number, Long.MIN_VALUE, Long.MAX_VALUE, key);
+        }
+        try
+        {
+            return Long.parseLong(value.toString().trim());
+        }
+        catch (NumberFormatException e)
+        {
+            throw invalid(value, key);
+        }
+    }
+
+    static float floatValue(Object value, String key)
+    {
+        return (float) doubleValue(value, key);
+    }
+
+    static double doubleValue(Object value, String key)
+    {
+        if (value instanceof Number number)
+        {
+            return number.doubleValue();
+        }
+        try
+        {
+            return Double.parseDouble(value.toString().trim());
+        }
+        catch (NumberFormatException e)
+        {
+            throw invalid(value, key);
+        }
+    }
+
+    static <E extends Enum<E>> E enumValue(Class<E> type, Object value, String key)
+    {
+        try
+        {
+            return Enum.valueOf(type, value.toString().trim().toUpperCase(Locale.ROOT).replace('-', '_'));
+        }
+        catch (IllegalArgumentException e)
+        {
+            throw invalid(value, key);
+        }
+    }
+
+    static List<String> stringList(Object value, String key)
+    {
+        if (!(value instanceof List<?> list))
+        {
+            throw invalid(value, key);
+        }
+        List<String> strings = new ArrayList<>(list.size());
+        for (Object element : list)
+        {
+            strings.add(String.valueOf(element));
+        }
+        return strings;
+    }
+
+    static Map<?, ?> section(Object value, String key)
+    {
+        if (value instanceof Map<?, ?> map)
+        {
+            return map;
+        }
+        throw invalid(value, key);
+    }
+
+    /**
+     * A number read as a double, e.g. 3.0, is accepted as long as it has no fraction and is within the range.
+     */
+    private static long integral(Number number, long min, long max, String key)
+    {
+        if (number instanceof Long || number instanceof Integer || number instanceof Short || number instanceof Byte)
+        {
+            long value = number.longValue();
+            if (value >= min && value <= max)
+            {
+                return value;
+            }
+            throw invalid(number, key);
+        }
+        try
+        {
+            long value = new BigDecimal(number.toString()).longValueExact();
+            if (value >= min && value <= max)
+            {
+                return value;
+            }
+        }
+        catch (NumberFormatException | ArithmeticException e)
+        {
+            // NaN, infinite, with a fraction or out of the long range
+        }
+        throw invalid(number, key);
+    }
+
+    private static IllegalArgumentException invalid(Object value, String key)
+    {
+        return new IllegalArgumentException("Invalid value for " + key + ": " + value);
+    }
+}
@@ -0,0 +1,435 @@
+/*
+ * CubeEngine Plugin Generator - Generates necessary plugin glue code for CubeEngine modules.
+ * Copyright © 2018 CubeEngine (development@cubeengine.org)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.cubeengine.libcube;
+
+import io.leangen.geantyref.TypeToken;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import net.kyori.adventure.text.Component;
+import org.spongepowered.api.Sponge;
+import org.spongepowered.api.command.Command;
+import org.spongepowered.api.command.CommandCause;
+import org.spongepowered.api.command.CommandCompletion;
+import org.spongepowered.api.command.CommandResult;
+import org.spongepowered.api.command.exception.CommandException;
+import org.spongepowered.api.command.manager.CommandMapping;
+import org.spongepowered.api.command.parameter.ArgumentReader;
+import org.spongepowered.api.event.Cause;
+import org.spongepowered.api.event.Event;
+import org.spongepowered.api.event.EventListener;
+import org.spongepowered.api.event.EventListenerRegistration;
+import org.spongepowered.api.event.Order;
+import org.spongepowered.api.event.lifecycle.RegisterCommandEvent;
+import org.spongepowered.api.scheduler.Task;
+import org.spongepowered.plugin.PluginContainer;
+
+/**
+ * Defers the lifecycle of a module declared with {@code @Module(lazy = true)} until one of its commands is used
+ * or one of the events its listeners handle is posted.
+ * <p>
+ * The commands are registered as stubs forwarding to the commands the module registers once it is active. The
+ * event activating the module is not seen by the listeners of the module, they are registered while it is posted.
+ * The deferred lifecycle phases see their original events, with the cause of the activation instead of the long gone
+ * cause of the event. The module is only activated on the main thread, asynchronous events and commands schedule the
+ * activation there. A failing activation is reported to the caller and tried again on the next use.
+ * <p>
+ * Until the module is active, the stubs check the permissions of the commands known at compile time, so callers
+ * without them neither activate the module nor see its subcommands. Once it is active, the commands of the module
+ * decide.
+ */
+public final class LazyModule implements EventListener<Event>
+{
+    private final List<List<String>> commands;
+    private final List<String> permissions;
+    private final List<CompletionTrie> subcommands;
+    private final List<Map<String, String>> subcommandPermissions;
+    private final List<Class<? extends Event>> events;
+    private final List<Runnable> deferred = new ArrayList<>();
+    private final Map<String, Command.Parameterized> registered = new ConcurrentHashMap<>();
+    /** the mappings of the stubs by their primary alias */
+    private final Map<String, CommandMapping> mappings = new ConcurrentHashMap<>();
+    private final AtomicBoolean scheduled = new AtomicBoolean();
+    private PluginContainer plugin;
+    private RegisterCommandEvent<Command.Parameterized> commandEvent;
+    private Consumer<RegisterCommandEvent<Command.Parameterized>> commandRegistration;
+    private boolean activating;
+    private volatile boolean active;
+
+    /**
+     * @param commands the names of every top level command of the module, starting with the primary alias
+     * @param permissions the permission of every top level command
+     * @param subcommands the names of the subcommands of every top level command
+     * @param subcommandPermissions the permissions of the subcommands of every top level command by their names
+     * @param events the events activating the module
+     */
+    public LazyModule(List<List<String>> commands, List<String> permissions, List<CompletionTrie> subcommands,
+                      List<Map<String, String>> subcommandPermissions, List<Class<? extends Event>> events)
+    {
+        this.commands = commands;
+        this.permissions = permissions;
+        this.subcommands = subcommands;
+        this.subcommandPermissions = subcommandPermissions;
+        this.events = events;
+    }
+
+    /**
+     * Defers the construction of the module and listens for the events activating it.
+     */
+    public synchronized void construct(PluginContainer plugin, Runnable construction)
+    {
+        this.plugin = plugin;
+        deferred.add(construction);
+        for (Class<? extends Event> event : events)
+        {
+            listen(event);
+        }
+    }
+
+    private <E extends Event> void listen(Class<E> event)
+    {
+        Sponge.eventManager().registerListener(EventListenerRegistration.builder(TypeToken.get(event))
+                .plugin(plugin)
+                .order(Order.PRE)
+                .listener(this)
+                .build());
+    }
+
+    /**
+     * Runs a lifecycle phase of the module once it is active.
+     */
+    public synchronized void defer(Runnable phase)
+    {
+        if (active)
+        {
+            phase.run();
+            return;
+        }
+        deferred.add(phase);
+    }
+
+    /**
+     * Wraps an event for a deferred lifecycle phase, its cause is the cause current when it is asked for.
+     */
+    @SuppressWarnings("unchecked")
+    public <E extends Event> E replay(E event)
+    {
+        Set<Class<?>> interfaces = new LinkedHashSet<>();
+        for (Class<?> type = event.getClass(); type != null; type = type.getSuperclass())
+        {
+            interfaces.addAll(List.of(type.getInterfaces()));
+        }
+        InvocationHandler replay = (proxy, method, args) -> {
+            if (method.getName().equals("cause") && method.getParameterCount() == 0)
+            {
+                return Sponge.isServerAvailable() ? Sponge.server().causeStackManager().currentCause() : event.cause();
+            }
+            return invoke(event, method, args);
+        };
+        return (E) Proxy.newProxyInstance(event.getClass().getClassLoader(), interfaces.toArray(Class<?>[]::new), replay);
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable
+    {
+        try
+        {
+            return method.invoke(target, args);
+        }
+        catch (InvocationTargetException e)
+        {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Keeps the command registration of the module until it is active, the registered commands are then
+     * captured for the stubs instead of being registered with Sponge.
+     */
+    public synchronized void commands(RegisterCommandEvent<Command.Parameterized> event,
+                                      Consumer<RegisterCommandEvent<Command.Parameterized>> registration)
+    {
+        commandEvent = event;
+        commandRegistration = registration;
+        if (active)
+        {
+            captureCommands();
+        }
+    }
+
+    /**
+     * Registers a stub for every top level command of the module.
+     */
+    public void registerStubs(RegisterCommandEvent<Command.Raw> event)
+    {
+        for (int i = 0; i < commands.size(); i++)
+        {
+            List<String> names = commands.get(i);
+            Stub stub = new Stub(names.get(0), permissions.get(i), subcommands.get(i), subcommandPermissions.get(i));
+            RegisterCommandEvent.Result<Command.Raw> result = event.register(plugin, stub, names.get(0),
+                                                                             names.subList(1, names.size()).toArray(String[]::new));
+            mappings.put(names.get(0), result.mapping());
+        }
+    }
+
+    @Override
+    public void handle(Event event)
+    {
+        activate();
+    }
+
+    /**
+     * Runs the deferred lifecycle phases of the module once, on the main thread. Called on another thread the
+     * activation is scheduled on the main thread.
+     *
+     * @return whether the module is active
+     */
+    public boolean activate()
+    {
+        if (active)
+        {
+            return true;
+        }
+        if (Sponge.isServerAvailable() && !Sponge.server().onMainThread())
+        {
+            if (scheduled.compareAndSet(false, true))
+            {
+                Sponge.server().scheduler().submit(Task.builder().plugin(plugin).execute(() -> {
+                    scheduled.set(false);
+                    activate();
+                }).build());
+            }
+            return false;
+        }
+        synchronized (this)
+        {
+            if (active || activating)
+            {
+                return active;
+            }
+            activating = true;
+            try
+            {
+                // a phase that ran is not run again when the activation is retried
+                while (!deferred.isEmpty())
+                {
+                    deferred.get(0).run();
+                    deferred.remove(0);
+                }
+                if (commandRegistration != null)
+                {
+                    captureCommands();
+                }
+                Sponge.eventManager().unregisterListeners(this);
+                active = true;
+                return true;
+            }
+            finally
+            {
+                activating = false;
+            }
+        }
+    }
+
+    /**
+     * Passes an event to the command registration of the module that keeps the commands instead of registering
+     * them, every other method is delegated to the original event. Registering a command results in the mapping of
+     * its stub.
+     */
+    @SuppressWarnings("unchecked")
+    private void captureCommands()
+    {
+        RegisterCommandEvent<Command.Parameterized> event = commandEvent;
+        InvocationHandler capture = (proxy, method, args) -> {
+            if (method.getName().equals("register") && args != null && args.length == 4)
+            {
+                Command.Parameterized command = (Command.Parameterized) args[1];
+                String alias = (String) args[2];
+                registered.put(alias, command);
+                for (String secondary : (String[]) args[3])
+                {
+                    registered.put(secondary, command);
+                }
+                return result(alias);
+            }
+            return invoke(event, method, args);
+        };
+        commandRegistration.accept((RegisterCommandEvent<Command.Parameterized>) Proxy.newProxyInstance(
+                LazyModule.class.getClassLoader(), new Class<?>[] {RegisterCommandEvent.class}, capture));
+        commandEvent = null;
+        commandRegistration = null;
+    }
+
+    private RegisterCommandEvent.Result<?> result(String alias)
+    {
+        InvocationHandler result = (proxy, method, args) -> switch (method.getName())
+        {
+            case "mapping" -> {
+                CommandMapping mapping = mappings.get(alias);
+                if (mapping == null)
+                {
+                    throw new IllegalStateException("/" + alias + " is no command of the module known at compile time, it was not registered");
+                }
+                yield mapping;
+            }
+            case "toString" -> "Result[/" + alias + "]";
+            case "hashCode" -> System.identityHashCode(proxy);
+            case "equals" -> proxy == args[0];
+            default -> throw new UnsupportedOperationException(method.getName() + " is not supported for the commands of a lazy module");
+        };
+        return (RegisterCommandEvent.Result<?>) Proxy.newProxyInstance(LazyModule.class.getClassLoader(),
+                                                                        new Class<?>[] {RegisterCommandEvent.Result.class}, result);
+    }
+
+    private record Subcommand(CommandCompletion completion, String permission)
+    {
+    }
+
+    private final class Stub implements Command.Raw
+    {
+        private final String alias;
+        private final String permission;
+        private final CompletionTrie subcommands;
+        /** the completions in the order of the words of the subcommands */
+        private final List<Subcommand> completions = new ArrayList<>();
+
+        private Stub(String alias, String permission, CompletionTrie subcommands, Map<String, String> subcommandPermissions)
+        {
+            this.alias = alias;
+            this.permission = permission;
+            this.subcommands = subcommands;
+            Map<String, String> nodes = new HashMap<>();
+            subcommandPermissions.forEach((name, node) -> nodes.put(name.toLowerCase(Locale.ROOT), node));
+            for (String word : subcommands.words())
+            {
+                completions.add(new Subcommand(CommandCompletion.of(word), nodes.getOrDefault(word, permission)));
+            }
+        }
+
+        /**
+         * Activates the module for a caller allowed to use the command.
+         */
+        private Command.Parameterized command(CommandCause cause) throws CommandException
+        {
+            if (!active && !cause.hasPermission(permission))
+            {
+                throw denied();
+            }
+            if (!activate())
+            {
+                throw new CommandException(Component.text("The module of /" + alias + " is starting, try again"));
+            }
+            Command.Parameterized command = registered.get(alias);
+            if (command == null)
+            {
+                throw new CommandException(Component.text("The module did not register /" + alias));
+            }
+            if (!command.canExecute(cause))
+            {
+                throw denied();
+            }
+            return command;
+        }
+
+        private CommandException denied()
+        {
+            return new CommandException(Component.text("You are not allowed to use /" + alias));
+        }
+
+        @Override
+        public CommandResult process(CommandCause cause, ArgumentReader.Mutable arguments) throws CommandException
+        {
+            return command(cause).process(cause, arguments);
+        }
+
+        /**
+         * Completes the subcommands the caller is allowed to use without activating the module.
+         */
+        @Override
+        public List<CommandCompletion> complete(CommandCause cause, ArgumentReader.Mutable arguments) throws CommandException
+        {
+            if (!active && !subcommands.isEmpty())
+            {
+                String input = arguments.remaining();
+                if (input.indexOf(' ') < 0)
+                {
+                    if (!cause.hasPermission(permission))
+                    {
+                        return List.of();
+                    }
+                    List<CommandCompletion> allowed = new ArrayList<>();
+                    for (Subcommand subcommand : subcommands.complete(completions, input))
+                    {
+                        if (cause.hasPermission(subcommand.permission()))
+                        {
+                            allowed.add(subcommand.completion());
+                        }
+                    }
+                    return allowed;
+                }
+            }
+            if (!active && !cause.hasPermission(permission) || !activate())
+            {
+                return List.of();
+            }
+            return command(cause).complete(cause, arguments);
+        }
+
+        /**
+         * Callers with the permission of the command may try it before the module is active.
+         */
+        @Override
+        public boolean canExecute(CommandCause cause)
+        {
+            Command.Parameterized command = registered.get(alias);
+            return command == null ? !active && cause.hasPermission(permission) : command.canExecute(cause);
+        }
+
+        @Override
+        public Optional<Component> shortDescription(CommandCause cause)
+        {
+            Command.Parameterized command = registered.get(alias);
+            return command == null ? Optional.empty() : command.shortDescription(cause);
+        }
+
+        @Override
+        public Optional<Component> extendedDescription(CommandCause cause)
+        {
+            Command.Parameterized command = registered.get(alias);
+            return command == null ? Optional.empty() : command.extendedDescription(cause);
+        }
+
+        @Override
+        public Component usage(CommandCause cause)
+        {
+            Command.Parameterized command = registered.get(alias);
+            return command == null ? Component.empty() : command.usage(cause);
+        }
+    }
+}
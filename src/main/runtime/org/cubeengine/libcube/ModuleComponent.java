@@ -0,0 +1,47 @@
+/*
+ * CubeEngine Plugin Generator - Generates necessary plugin glue code for CubeEngine modules.
+ * Copyright © 2018 CubeEngine (development@cubeengine.org)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.cubeengine.libcube;
+
+/**
+ * Creates a module and its {@code @Inject} dependencies with direct constructor calls instead of Guice,
+ * generated when the {@code cubeengine.di=compiletime} processor option is set. The generated plugin passes it to
+ * {@code CubeEnginePlugin} to create the module.
+ *
+ * @param <T> the module class
+ */
+public interface ModuleComponent<T>
+{
+    /**
+     * @param resolver provides the dependencies the component cannot create itself
+     * @return a new module instance
+     */
+    T create(Resolver resolver);
+
+    /**
+     * Looks up dependencies like interfaces, qualified or scoped types, e.g. in the injector of libcube.
+     */
+    @FunctionalInterface
+    interface Resolver
+    {
+        /**
+         * @param type the source of the type including its type arguments, e.g. {@code java.util.List<java.lang.String>}
+         * @param qualifier the source of the binding annotation or null
+         */
+        Object resolve(String type, String qualifier);
+    }
+}
@@ -0,0 +1,76 @@
+/*
+ * CubeEngine Plugin Generator - Generates necessary plugin glue code for CubeEngine modules.
+ * Copyright © 2018 CubeEngine (development@cubeengine.org)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.cubeengine.libcube;
+
+import java.util.List;
+
+/**
+ * Describes a generated CubeEngine plugin without loading it.
+ * <p>
+ * Every plugin jar registers its descriptors in {@code META-INF/services}, use
+ * {@code ServiceLoader.load(ModuleDescriptor.class)} to enumerate the installed modules.
+ */
+public interface ModuleDescriptor
+{
+    String id();
+
+    String name();
+
+    String version();
+
+    String description();
+
+    /**
+     * @return the binary name of the generated plugin class
+     */
+    String pluginClass();
+
+    /**
+     * @return the binary name of the generated Guice module with explicit bindings for the module class,
+     *         null if there is none
+     */
+    String bindingsClass();
+
+    /**
+     * @return the binary name of the generated {@link ModuleComponent} creating the module class,
+     *         null if there is none
+     */
+    String componentClass();
+
+    /**
+     * @return the binary name of the generated class registering the listeners of the plugin and the module without
+     *         reflection
+     */
+    String listenersClass();
+
+    boolean core();
+
+    /**
+     * @return whether the module is only activated on the first use of its commands or listeners
+     */
+    boolean lazy();
+
+    /**
+     * @return all dependencies including the implicit core and spongeapi dependencies
+     */
+    List<Dependency> dependencies();
+
+    record Dependency(String id, String version, boolean optional)
+    {
+    }
+}
@@ -0,0 +1,205 @@
+/*
+ * CubeEngine Plugin Generator - Generates necessary plugin glue code for CubeEngine modules.
+ * Copyright © 2018 CubeEngine (development@cubeengine.org)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.cubeengine.libcube;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs a lifecycle phase of the CubeEngine modules.
+ * <p>
+ * Every module submits its work together with the ids of the plugins it depends on. The work runs on a bounded
+ * executor and starts as soon as the work of all dependencies submitted to the same phase and the work of the module in
+ * the previous phase is done. Sponge submits in dependency order, so dependencies that were not submitted (e.g. the
+ * core plugin) are already loaded. Set the system property {@value #SERIAL_PROPERTY} to run the work on the submitting
+ * thread instead, e.g. for a module that is not safe to start off the main thread.
+ * <p>
+ * A failure is recorded against the module it happened in. The work of a module whose dependency or previous phase
+ * failed is skipped, the work of every other module still runs.
+ */
+public final class ModuleOrchestrator
+{
+    public static final String SERIAL_PROPERTY = "cubeengine.modules.serial";
+    public static final String THREADS_PROPERTY = "cubeengine.modules.threads";
+
+    private static final Executor EXECUTOR = Boolean.getBoolean(SERIAL_PROPERTY) ? null : newExecutor();
+
+    public static final ModuleOrchestrator CONSTRUCTION = new ModuleOrchestrator(null, EXECUTOR);
+    public static final ModuleOrchestrator INIT = new ModuleOrchestrator(CONSTRUCTION, EXECUTOR);
+
+    private final ModuleOrchestrator previous;
+    /** null to run the work on the submitting thread */
+    private final Executor executor;
+    private final Map<String, CompletableFuture<Void>> submitted = new ConcurrentHashMap<>();
+    private final Map<String, Throwable> failures = new ConcurrentHashMap<>();
+
+    ModuleOrchestrator(ModuleOrchestrator previous, Executor executor)
+    {
+        this.previous = previous;
+        this.executor = executor;
+    }
+
+    private static Executor newExecutor()
+    {
+        int threads = Math.max(1, Integer.getInteger(THREADS_PROPERTY, Runtime.getRuntime().availableProcessors()));
+        AtomicInteger count = new AtomicInteger();
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, 30, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), task -> {
+            Thread thread = new Thread(task, "cubeengine-modules-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    /**
+     * Submits the work of a module. When running serially a failure of the work is rethrown, so it is reported for
+     * the module submitting it.
+     *
+     * @param id the plugin id of the module
+     * @param dependencies the plugin ids the module depends on
+     * @param work the work to run
+     */
+    public void submit(String id, List<String> dependencies, Runnable work)
+    {
+        if (executor == null)
+        {
+            submitted.put(id, CompletableFuture.completedFuture(null));
+            run(id, dependencies, work);
+            Throwable failure = failures.get(id);
+            if (failure instanceof RuntimeException exception)
+            {
+                throw exception;
+            }
+            if (failure instanceof Error error)
+            {
+                throw error;
+            }
+            return;
+        }
+        List<CompletableFuture<Void>> pending = new ArrayList<>();
+        if (previous != null && previous.submitted.get(id) != null)
+        {
+            pending.add(previous.submitted.get(id));
+        }
+        for (String dependency : dependencies)
+        {
+            CompletableFuture<Void> future = submitted.get(dependency);
+            if (future != null)
+            {
+                pending.add(future);
+            }
+        }
+        ClassLoader loader = Thread.currentThread().getContextClassLoader();
+        submitted.put(id, CompletableFuture.allOf(pending.toArray(CompletableFuture<?>[]::new))
+                                           .thenRunAsync(() -> run(id, dependencies, work, loader), executor));
+    }
+
+    private void run(String id, List<String> dependencies, Runnable work, ClassLoader loader)
+    {
+        Thread thread = Thread.currentThread();
+        ClassLoader original = thread.getContextClassLoader();
+        thread.setContextClassLoader(loader);
+        try
+        {
+            run(id, dependencies, work);
+        }
+        finally
+        {
+            thread.setContextClassLoader(original);
+        }
+    }
+
+    private void run(String id, List<String> dependencies, Runnable work)
+    {
+        if (previous != null && previous.failures.containsKey(id))
+        {
+            failures.put(id, new IllegalStateException("Skipped " + id + " as its previous phase failed"));
+            return;
+        }
+        for (String dependency : dependencies)
+        {
+            if (failures.containsKey(dependency))
+            {
+                failures.put(id, new IllegalStateException("Skipped " + id + " as its dependency " + dependency + " failed"));
+                return;
+            }
+        }
+        try
+        {
+            work.run();
+        }
+        catch (RuntimeException | Error e)
+        {
+            failures.put(id, e);
+        }
+    }
+
+    /**
+     * Blocks until all work submitted to this phase is done, failures are not rethrown.
+     */
+    public void await()
+    {
+        CompletableFuture.allOf(submitted.values().toArray(CompletableFuture<?>[]::new)).join();
+    }
+
+    /**
+     * @return the failure of the work of the module in this phase, including it being skipped
+     */
+    public Optional<Throwable> failure(String id)
+    {
+        return Optional.ofNullable(failures.get(id));
+    }
+
+    /**
+     * Blocks until the work of all phases is done.
+     */
+    public static void awaitAll()
+    {
+        CONSTRUCTION.await();
+        INIT.await();
+    }
+
+    /**
+     * Blocks until the work of all phases is done and fails if the work of the module failed or was skipped.
+     */
+    public static void awaitAll(String id)
+    {
+        awaitAll();
+        CONSTRUCTION.check(id);
+        INIT.check(id);
+    }
+
+    void check(String id)
+    {
+        Throwable failure = failures.get(id);
+        if (failure != null)
+        {
+            throw new IllegalStateException("The module " + id + " failed to start", failure);
+        }
+    }
+}
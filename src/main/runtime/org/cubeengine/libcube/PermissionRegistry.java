@@ -0,0 +1,111 @@
+/*
+ * CubeEngine Plugin Generator - Generates necessary plugin glue code for CubeEngine modules.
+ * Copyright © 2018 CubeEngine (development@cubeengine.org)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.cubeengine.libcube;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import org.spongepowered.api.Sponge;
+import org.spongepowered.api.command.CommandCause;
+import org.spongepowered.api.service.context.Context;
+import org.spongepowered.api.service.permission.Subject;
+
+/**
+ * The permission nodes of the commands of a module, their index in {@link #nodes()} is their id.
+ * <p>
+ * Checks are cached per subject and set of active contexts in a bitset with two bits per node, whether the node was
+ * checked and whether it was granted, so a repeated check is a bit test instead of a lookup of the node. The bits are
+ * set atomically. The caches of all registries are cleared when the data of any subject changes, as other subjects
+ * may inherit it, and the caches of a player are dropped when they leave.
+ */
+public final class PermissionRegistry
+{
+    private static final Set<PermissionRegistry> REGISTRIES = ConcurrentHashMap.newKeySet();
+
+    private final List<String> nodes;
+    private final int words;
+    private final Map<Key, AtomicLongArray> cache = new ConcurrentHashMap<>();
+
+    public PermissionRegistry(String... nodes)
+    {
+        this.nodes = List.of(nodes);
+        this.words = (nodes.length * 2 + 63) >>> 6;
+        REGISTRIES.add(this);
+    }
+
+    public List<String> nodes()
+    {
+        return nodes;
+    }
+
+    /**
+     * Checks a node in the contexts active for the cause, like {@link CommandCause#hasPermission(String)}.
+     */
+    public boolean test(CommandCause cause, int id)
+    {
+        return test(cause.subject(), Sponge.server().serviceProvider().contextService().contextsFor(cause.cause()), id);
+    }
+
+    public boolean test(Subject subject, Set<Context> contexts, int id)
+    {
+        AtomicLongArray bits = cache.computeIfAbsent(new Key(subject.identifier(), Set.copyOf(contexts)), key -> new AtomicLongArray(words));
+        int word = id >>> 5;
+        long checked = 1L << (id << 1);
+        long granted = checked << 1;
+        long current = bits.get(word);
+        if ((current & checked) != 0)
+        {
+            return (current & granted) != 0;
+        }
+        boolean result = subject.hasPermission(nodes.get(id), contexts);
+        bits.accumulateAndGet(word, result ? checked | granted : checked, (left, right) -> left | right);
+        return result;
+    }
+
+    public void invalidate()
+    {
+        cache.clear();
+    }
+
+    public void invalidate(String identifier)
+    {
+        cache.keySet().removeIf(key -> key.identifier().equals(identifier));
+    }
+
+    /**
+     * Clears the caches of all registries after the permissions of a subject changed.
+     */
+    public static void invalidateAll()
+    {
+        REGISTRIES.forEach(PermissionRegistry::invalidate);
+    }
+
+    /**
+     * Drops the cached checks of a subject from all registries.
+     */
+    public static void invalidateAll(String identifier)
+    {
+        REGISTRIES.forEach(registry -> registry.invalidate(identifier));
+    }
+
+    private record Key(String identifier, Set<Context> contexts)
+    {
+    }
+}
@@ -0,0 +1,171 @@
+/*
+ * CubeEngine Plugin Generator - Generates necessary plugin glue code for CubeEngine modules.
+ * Copyright © 2018 CubeEngine (development@cubeengine.org)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.cubeengine.processor.corpus;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+
+/**
+ * Generates a deterministic tree of synthetic {@code @Module} classes to see how the generator scales with data size.
+ * Shared by the tests and the benchmarks, which add this source directory.
+ * <p>
+ * Module {@code i} lives in package {@code corpus.p<i % packages>} and only depends on modules with a lower index, so
+ * the dependency graph is always acyclic. The same seed always produces the same sources.
+ *
+ * @param seed the seed of the random generator
+ * @param modules the number of {@code @Module} classes
+ * @param packages the number of packages the modules are spread over
+ * @param fanOut the maximum number of dependencies per module
+ * @param optionalRatio the probability of a dependency being optional
+ * @param versions whether dependencies declare a version
+ */
+public record SyntheticCorpus(long seed, int modules, int packages, int fanOut, double optionalRatio, boolean versions)
+{
+    public SyntheticCorpus
+    {
+        if (modules < 0 || packages < 1 || fanOut < 0)
+        {
+            throw new IllegalArgumentException("modules and fanOut must not be negative and there must be at least one package");
+        }
+    }
+
+    public List<JavaFileObject> sources()
+    {
+        List<JavaFileObject> sources = new ArrayList<>(modules);
+        generate((packageName, className, body) -> sources.add(source(packageName, className, body)));
+        return sources;
+    }
+
+    /**
+     * Writes the sources below the given source root.
+     */
+    public void writeTo(Path sourceRoot) throws IOException
+    {
+        try
+        {
+            generate((packageName, className, body) -> {
+                Path dir = sourceRoot.resolve(packageName.replace('.', '/'));
+                try
+                {
+                    Files.createDirectories(dir);
+                    Files.writeString(dir.resolve(className + ".java"), "package " + packageName + ";\n\n" + body + "\n", StandardCharsets.UTF_8);
+                }
+                catch (IOException e)
+                {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        }
+        catch (UncheckedIOException e)
+        {
+            throw e.getCause();
+        }
+    }
+
+    private void generate(SourceConsumer consumer)
+    {
+        SplittableRandom random = new SplittableRandom(seed);
+        StringBuilder dependencies = new StringBuilder();
+        for (int i = 0; i < modules; i++)
+        {
+            dependencies.setLength(0);
+            int count = i == 0 ? 0 : random.nextInt(Math.min(fanOut, i) + 1);
+            // pick distinct lower indices by walking down from a random start
+            int target = i == 0 ? 0 : random.nextInt(i);
+            for (int d = 0; d < count; d++)
+            {
+                if (d != 0)
+                {
+                    dependencies.append(", ");
+                }
+                dependencies.append("@Dependency(value = \"cubeengine-").append(moduleName(target).toLowerCase()).append('"');
+                if (versions)
+                {
+                    dependencies.append(", version = \"").append(random.nextInt(3)).append('.').append(random.nextInt(20)).append('.').append(random.nextInt(10)).append('"');
+                }
+                if (random.nextDouble() < optionalRatio)
+                {
+                    dependencies.append(", optional = true");
+                }
+                dependencies.append(')');
+                target = (target + i - 1) % i;
+            }
+            String className = moduleName(i);
+            consumer.accept("corpus.p" + (i % packages), className, """
+                    import org.cubeengine.processor.Dependency;
+                    import org.cubeengine.processor.Module;
+
+                    @Module(dependencies = {%s})
+                    public class %s
+                    {
+                    }""".formatted(dependencies, className));
+        }
+    }
+
+    private static JavaFileObject source(String packageName, String className, String body)
+    {
+        String content = "package " + packageName + ";\n\n" + body + "\n";
+        URI uri = URI.create("string:///" + packageName.replace('.', '/') + "/" + className + JavaFileObject.Kind.SOURCE.extension);
+        return new SimpleJavaFileObject(uri, JavaFileObject.Kind.SOURCE)
+        {
+            @Override
+            public CharSequence getCharContent(boolean ignoreEncodingErrors)
+            {
+                return content;
+            }
+        };
+    }
+
+    private static String moduleName(int index)
+    {
+        return "Module" + index;
+    }
+
+    @FunctionalInterface
+    private interface SourceConsumer
+    {
+        void accept(String packageName, String className, String body);
+    }
+
+    /**
+     * Writes a corpus to disk: {@code <sourceRoot> <modules> [packages] [fanOut] [seed]}
+     */
+    public static void main(String[] args) throws IOException
+    {
+        if (args.length < 2)
+        {
+            System.err.println("Usage: SyntheticCorpus <sourceRoot> <modules> [packages] [fanOut] [seed]");
+            System.exit(1);
+        }
+        int modules = Integer.parseInt(args[1]);
+        int packages = args.length > 2 ? Integer.parseInt(args[2]) : Math.max(1, modules / 10);
+        int fanOut = args.length > 3 ? Integer.parseInt(args[3]) : 4;
+        long seed = args.length > 4 ? Long.parseLong(args[4]) : 42;
+        new SyntheticCorpus(seed, modules, packages, fanOut, 0.25, true).writeTo(Path.of(args[0]));
+    }
+}
@@ -0,0 +1,53 @@
+/*
+ * CubeEngine Plugin Generator - Generates necessary plugin glue code for CubeEngine modules.
+ * Copyright © 2018 CubeEngine (development@cubeengine.org)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.cubeengine.libcube;
+
+import java.io.IOException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class CdsTrainingTest
+{
+    @Test
+    void loadsTheSectionOfThePlugin(@TempDir Path directory) throws IOException
+    {
+        Path list = directory.resolve(CdsTraining.FILE);
+        Files.createDirectories(list.getParent());
+        Files.writeString(list, """
+                # cubeengine-core
+                org/cubeengine/libcube/ModuleOrchestrator
+                # cubeengine-alpha
+                org/cubeengine/libcube/CompletionTrie
+                org/cubeengine/libcube/PermissionRegistry$Key
+                mod/alpha/Missing
+                """);
+        try (URLClassLoader loader = new URLClassLoader(new URL[] {directory.toUri().toURL()}, CdsTrainingTest.class.getClassLoader()))
+        {
+            assertEquals(2, CdsTraining.load(loader, "cubeengine-alpha"));
+            assertEquals(1, CdsTraining.load(loader, "cubeengine-core"));
+            assertEquals(0, CdsTraining.load(loader, "cubeengine-beta"));
+        }
+    }
+}
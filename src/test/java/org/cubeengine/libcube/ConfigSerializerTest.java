@@ -0,0 +1,61 @@
+/*
+ * CubeEngine Plugin Generator - Generates necessary plugin glue code for CubeEngine modules.
+ * Copyright © 2018 CubeEngine (development@cubeengine.org)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.cubeengine.libcube;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class ConfigSerializerTest
+{
+    @Test
+    void readsIntegralNumbers()
+    {
+        assertEquals(7, ConfigSerializer.intValue(7L, "uses"));
+        assertEquals(7, ConfigSerializer.intValue(7.0, "uses"));
+        assertEquals(-7, ConfigSerializer.intValue(" -7 ", "uses"));
+        assertEquals(Integer.MAX_VALUE, ConfigSerializer.intValue((long) Integer.MAX_VALUE, "uses"));
+        assertEquals(Long.MIN_VALUE, ConfigSerializer.longValue(Long.MIN_VALUE, "cooldown"));
+        assertEquals(1_000_000_000_000L, ConfigSerializer.longValue(1e12, "cooldown"));
+        assertEquals(42L, ConfigSerializer.longValue(BigInteger.valueOf(42), "cooldown"));
+    }
+
+    @Test
+    void rejectsFractions()
+    {
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> ConfigSerializer.intValue(2.5, "uses"));
+        assertEquals("Invalid value for uses: 2.5", e.getMessage());
+        assertThrows(IllegalArgumentException.class, () -> ConfigSerializer.longValue(0.1f, "cooldown"));
+        assertThrows(IllegalArgumentException.class, () -> ConfigSerializer.longValue(Double.NaN, "cooldown"));
+        assertThrows(IllegalArgumentException.class, () -> ConfigSerializer.intValue("2.5", "uses"));
+    }
+
+    @Test
+    void rejectsNumbersOutOfRange()
+    {
+        assertThrows(IllegalArgumentException.class, () -> ConfigSerializer.intValue(Integer.MAX_VALUE + 1L, "uses"));
+        assertThrows(IllegalArgumentException.class, () -> ConfigSerializer.intValue((double) Integer.MIN_VALUE - 1, "uses"));
+        assertThrows(IllegalArgumentException.class, () -> ConfigSerializer.longValue(BigInteger.TWO.pow(64), "cooldown"));
+        assertThrows(IllegalArgumentException.class, () -> ConfigSerializer.longValue(new BigDecimal("1e19"), "cooldown"));
+        assertThrows(IllegalArgumentException.class, () -> ConfigSerializer.longValue(Double.POSITIVE_INFINITY, "cooldown"));
+    }
+}
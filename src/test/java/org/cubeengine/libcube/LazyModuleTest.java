@@ -0,0 +1,176 @@
+/*
+ * CubeEngine Plugin Generator - Generates necessary plugin glue code for CubeEngine modules.
+ * Copyright © 2018 CubeEngine (development@cubeengine.org)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.cubeengine.libcube;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.jupiter.api.Test;
+import org.spongepowered.api.command.Command;
+import org.spongepowered.api.command.CommandCause;
+import org.spongepowered.api.command.CommandCompletion;
+import org.spongepowered.api.command.exception.CommandException;
+import org.spongepowered.api.command.parameter.ArgumentReader;
+import org.spongepowered.api.command.manager.CommandMapping;
+import org.spongepowered.api.event.Cause;
+import org.spongepowered.api.event.lifecycle.ConstructPluginEvent;
+import org.spongepowered.api.event.lifecycle.RegisterCommandEvent;
+import org.spongepowered.plugin.PluginContainer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LazyModuleTest
+{
+    private final List<String> runs = new ArrayList<>();
+
+    private static <T> T stub(Class<T> type, Object result)
+    {
+        return type.cast(Proxy.newProxyInstance(LazyModuleTest.class.getClassLoader(), new Class<?>[] {type}, (proxy, method, args) -> result));
+    }
+
+    private static LazyModule lazyModule(String... commands)
+    {
+        List<String> names = List.of(commands);
+        return new LazyModule(names.stream().map(List::of).toList(), names.stream().map(name -> "cubeengine.test.command." + name).toList(),
+                              names.stream().map(name -> CompletionTrie.EMPTY).toList(), names.stream().map(name -> Map.<String, String>of()).toList(), List.of());
+    }
+
+    @Test
+    void failedActivationIsRetried()
+    {
+        LazyModule module = lazyModule();
+        IllegalStateException failure = new IllegalStateException("broken");
+        boolean[] broken = {true};
+        module.construct(null, () -> runs.add("construct"));
+        module.defer(() -> {
+            if (broken[0])
+            {
+                throw failure;
+            }
+            runs.add("init");
+        });
+
+        assertSame(failure, assertThrows(IllegalStateException.class, module::activate));
+        assertEquals(List.of("construct"), runs);
+
+        broken[0] = false;
+        assertTrue(module.activate());
+        assertEquals(List.of("construct", "init"), runs);
+
+        module.defer(() -> runs.add("started"));
+        assertTrue(module.activate());
+        assertEquals(List.of("construct", "init", "started"), runs);
+    }
+
+    @Test
+    void replaysEvents()
+    {
+        PluginContainer plugin = stub(PluginContainer.class, null);
+        Cause cause = new Cause();
+        ConstructPluginEvent event = (ConstructPluginEvent) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] {ConstructPluginEvent.class},
+                (proxy, method, args) -> method.getName().equals("plugin") ? plugin : cause);
+
+        ConstructPluginEvent replayed = lazyModule().replay(event);
+        assertSame(plugin, replayed.plugin());
+        assertSame(cause, replayed.cause());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void capturedRegistrationsResultInTheStubMapping()
+    {
+        LazyModule module = lazyModule("nap");
+        CommandMapping mapping = stub(CommandMapping.class, "nap");
+        RegisterCommandEvent.Result<Command.Raw> stubResult = stub(RegisterCommandEvent.Result.class, mapping);
+        module.registerStubs(stub(RegisterCommandEvent.class, stubResult));
+        module.construct(null, () -> {
+        });
+
+        AtomicReference<RegisterCommandEvent.Result<Command.Parameterized>> result = new AtomicReference<>();
+        module.commands(stub(RegisterCommandEvent.class, null),
+                        event -> result.set(event.register(null, stub(Command.Parameterized.class, null), "nap", "sleep")));
+        assertNull(result.get());
+
+        assertTrue(module.activate());
+        assertSame(mapping, result.get().mapping());
+        assertFalse(result.get().toString().isEmpty());
+    }
+
+    private static CommandCause cause(String... permissions)
+    {
+        Set<String> granted = Set.of(permissions);
+        return (CommandCause) Proxy.newProxyInstance(LazyModuleTest.class.getClassLoader(), new Class<?>[] {CommandCause.class},
+                (proxy, method, args) -> method.getName().equals("hasPermission") && granted.contains((String) args[0]));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void stubsCheckPermissions() throws CommandException
+    {
+        String permission = "cubeengine.tools.command.tool";
+        LazyModule module = new LazyModule(List.of(List.of("tool")), List.of(permission),
+                                           List.of(new CompletionTrie(new String[] {"fix", "scrap"}, new char[] {0}, new int[] {1, 0, 0, 2})),
+                                           List.of(Map.of("fix", permission + ".fix", "scrap", permission + ".scrap")), List.of());
+        AtomicReference<Command.Raw> stub = new AtomicReference<>();
+        module.registerStubs((RegisterCommandEvent<Command.Raw>) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] {RegisterCommandEvent.class},
+                (proxy, method, args) -> {
+                    stub.set((Command.Raw) args[1]);
+                    return stub(RegisterCommandEvent.Result.class, stub(CommandMapping.class, "tool"));
+                }));
+        module.construct(null, () -> runs.add("construct"));
+        Command.Parameterized command = (Command.Parameterized) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] {Command.Parameterized.class},
+                (proxy, method, args) -> switch (method.getName())
+                {
+                    case "canExecute" -> ((CommandCause) args[0]).hasPermission(permission);
+                    case "process" -> {
+                        runs.add("process");
+                        yield null;
+                    }
+                    default -> null;
+                });
+        module.commands(stub(RegisterCommandEvent.class, null), event -> event.register(null, command, "tool"));
+        ArgumentReader.Mutable arguments = stub(ArgumentReader.Mutable.class, "");
+
+        CommandCause denied = cause();
+        assertFalse(stub.get().canExecute(denied));
+        assertEquals(List.of(), stub.get().complete(denied, arguments));
+        assertThrows(CommandException.class, () -> stub.get().process(denied, arguments));
+        assertEquals(List.of(), runs);
+
+        CommandCause fixer = cause(permission, permission + ".fix");
+        assertTrue(stub.get().canExecute(fixer));
+        assertEquals(List.of("fix"), stub.get().complete(fixer, arguments).stream().map(CommandCompletion::completion).toList());
+        assertEquals(List.of(), runs);
+
+        stub.get().process(fixer, arguments);
+        assertEquals(List.of("construct", "process"), runs);
+        assertFalse(stub.get().canExecute(denied));
+        assertThrows(CommandException.class, () -> stub.get().process(denied, arguments));
+        assertThrows(CommandException.class, () -> stub.get().complete(denied, arguments));
+        assertEquals(List.of("construct", "process"), runs);
+    }
+}
@@ -0,0 +1,165 @@
+/*
+ * CubeEngine Plugin Generator - Generates necessary plugin glue code for CubeEngine modules.
+ * Copyright © 2018 CubeEngine (development@cubeengine.org)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.cubeengine.libcube;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ModuleOrchestratorTest
+{
+    private final ExecutorService executor = Executors.newFixedThreadPool(4);
+    private final List<String> runs = new CopyOnWriteArrayList<>();
+
+    @AfterEach
+    void shutdown() throws InterruptedException
+    {
+        executor.shutdownNow();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+    }
+
+    private Runnable work(String name)
+    {
+        return () -> runs.add(name);
+    }
+
+    private static Runnable fail(RuntimeException failure)
+    {
+        return () -> {
+            throw failure;
+        };
+    }
+
+    @Test
+    void parallelByDefault()
+    {
+        assertFalse(Boolean.getBoolean(ModuleOrchestrator.SERIAL_PROPERTY));
+        Thread submitting = Thread.currentThread();
+        List<Thread> threads = new CopyOnWriteArrayList<>();
+        ModuleOrchestrator.CONSTRUCTION.submit("parallel", List.of(), () -> threads.add(Thread.currentThread()));
+        ModuleOrchestrator.CONSTRUCTION.await();
+
+        assertTrue(ModuleOrchestrator.CONSTRUCTION.failure("parallel").isEmpty());
+        assertEquals(1, threads.size());
+        assertNotSame(submitting, threads.get(0));
+        assertTrue(threads.get(0).getName().startsWith("cubeengine-modules-"), threads.get(0).getName());
+    }
+
+    @Test
+    void serialFailuresAreReportedForTheirModuleOnly()
+    {
+        ModuleOrchestrator construction = new ModuleOrchestrator(null, null);
+        ModuleOrchestrator init = new ModuleOrchestrator(construction, null);
+        IllegalStateException failure = new IllegalStateException("broken");
+
+        assertSame(failure, assertThrows(IllegalStateException.class, () -> construction.submit("a", List.of(), fail(failure))));
+        construction.submit("b", List.of(), work("construct b"));
+        assertThrows(IllegalStateException.class, () -> construction.submit("c", List.of("a"), work("construct c")));
+        assertThrows(IllegalStateException.class, () -> init.submit("a", List.of(), work("init a")));
+        init.submit("b", List.of(), work("init b"));
+
+        assertEquals(List.of("construct b", "init b"), runs);
+        assertSame(failure, construction.failure("a").orElseThrow());
+        assertTrue(construction.failure("b").isEmpty());
+        assertTrue(init.failure("b").isEmpty());
+        assertTrue(construction.failure("c").orElseThrow().getMessage().contains("dependency a"));
+        construction.check("b");
+        assertSame(failure, assertThrows(IllegalStateException.class, () -> construction.check("a")).getCause());
+    }
+
+    @Test
+    void parallelFailuresAreRecordedAgainstTheirModule()
+    {
+        ModuleOrchestrator construction = new ModuleOrchestrator(null, executor);
+        ModuleOrchestrator init = new ModuleOrchestrator(construction, executor);
+        IllegalStateException failure = new IllegalStateException("broken");
+
+        construction.submit("a", List.of(), fail(failure));
+        construction.submit("b", List.of(), work("construct b"));
+        construction.submit("c", List.of("a"), work("construct c"));
+        construction.submit("d", List.of("b"), work("construct d"));
+        init.submit("a", List.of(), work("init a"));
+        init.submit("b", List.of(), work("init b"));
+        init.submit("c", List.of("a"), work("init c"));
+        init.submit("d", List.of("b"), work("init d"));
+        construction.await();
+        init.await();
+
+        assertSame(failure, construction.failure("a").orElseThrow());
+        assertTrue(construction.failure("c").isPresent());
+        assertTrue(init.failure("a").isPresent());
+        assertTrue(init.failure("c").isPresent());
+        for (String id : List.of("b", "d"))
+        {
+            assertTrue(construction.failure(id).isEmpty(), id);
+            assertTrue(init.failure(id).isEmpty(), id);
+        }
+        assertEquals(List.of("construct b", "construct d", "init b", "init d"), runs.stream().sorted().toList());
+    }
+
+    @Test
+    void parallelWorkWaitsForDependenciesAndThePreviousPhase() throws InterruptedException
+    {
+        ModuleOrchestrator construction = new ModuleOrchestrator(null, executor);
+        ModuleOrchestrator init = new ModuleOrchestrator(construction, executor);
+        CountDownLatch release = new CountDownLatch(1);
+
+        construction.submit("a", List.of(), () -> {
+            try
+            {
+                release.await();
+            }
+            catch (InterruptedException e)
+            {
+                throw new IllegalStateException(e);
+            }
+            runs.add("construct a");
+        });
+        construction.submit("b", List.of("a"), work("construct b"));
+        construction.submit("x", List.of(), work("construct x"));
+        init.submit("a", List.of(), work("init a"));
+        init.submit("b", List.of("a"), work("init b"));
+        init.submit("x", List.of(), work("init x"));
+        while (runs.size() < 2)
+        {
+            Thread.onSpinWait();
+        }
+        assertEquals(List.of("construct x", "init x"), runs);
+
+        release.countDown();
+        construction.await();
+        init.await();
+        assertEquals(List.of("construct x", "init x", "construct a"), runs.subList(0, 3));
+        assertTrue(runs.indexOf("construct b") < runs.indexOf("init b"));
+        assertTrue(runs.indexOf("init a") < runs.indexOf("init b"));
+        assertEquals(6, runs.size());
+    }
+}
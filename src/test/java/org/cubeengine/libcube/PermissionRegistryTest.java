@@ -0,0 +1,139 @@
+/*
+ * CubeEngine Plugin Generator - Generates necessary plugin glue code for CubeEngine modules.
+ * Copyright © 2018 CubeEngine (development@cubeengine.org)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.cubeengine.libcube;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+import org.spongepowered.api.service.context.Context;
+import org.spongepowered.api.service.permission.Subject;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PermissionRegistryTest
+{
+    private static final Set<Context> OVERWORLD = Set.of(new Context("world", "overworld"));
+    private static final Set<Context> NETHER = Set.of(new Context("world", "nether"));
+
+    /** Grants the nodes in the given contexts and counts the lookups */
+    private record TestSubject(String identifier, Set<Context> grantedIn, Set<String> granted, AtomicInteger lookups) implements Subject
+    {
+        TestSubject(String identifier, Set<Context> grantedIn, String... granted)
+        {
+            this(identifier, grantedIn, Set.of(granted), new AtomicInteger());
+        }
+
+        @Override
+        public boolean hasPermission(String permission)
+        {
+            throw new UnsupportedOperationException("checks have to pass the contexts");
+        }
+
+        @Override
+        public boolean hasPermission(String permission, Set<Context> contexts)
+        {
+            lookups.incrementAndGet();
+            return contexts.equals(grantedIn) && granted.contains(permission);
+        }
+    }
+
+    @Test
+    void cachesChecksPerSubjectAndContexts()
+    {
+        PermissionRegistry registry = new PermissionRegistry("a", "b");
+        TestSubject subject = new TestSubject("player", OVERWORLD, "a");
+
+        assertTrue(registry.test(subject, OVERWORLD, 0));
+        assertFalse(registry.test(subject, OVERWORLD, 1));
+        assertTrue(registry.test(subject, OVERWORLD, 0));
+        assertFalse(registry.test(subject, OVERWORLD, 1));
+        assertEquals(2, subject.lookups().get());
+
+        assertFalse(registry.test(subject, NETHER, 0));
+        assertTrue(registry.test(subject, Set.copyOf(OVERWORLD), 0));
+        assertEquals(3, subject.lookups().get());
+    }
+
+    @Test
+    void invalidatesEveryContextOfASubject()
+    {
+        PermissionRegistry registry = new PermissionRegistry("a");
+        TestSubject subject = new TestSubject("player", OVERWORLD, "a");
+        TestSubject other = new TestSubject("other", OVERWORLD, "a");
+        registry.test(subject, OVERWORLD, 0);
+        registry.test(subject, NETHER, 0);
+        registry.test(other, OVERWORLD, 0);
+
+        PermissionRegistry.invalidateAll("player");
+        registry.test(subject, OVERWORLD, 0);
+        registry.test(subject, NETHER, 0);
+        registry.test(other, OVERWORLD, 0);
+
+        assertEquals(4, subject.lookups().get());
+        assertEquals(1, other.lookups().get());
+    }
+
+    @Test
+    void concurrentChecksKeepEachOthersBits() throws InterruptedException
+    {
+        int nodes = 32;
+        String[] names = new String[nodes];
+        for (int i = 0; i < nodes; i++)
+        {
+            names[i] = "node" + i;
+        }
+        // all nodes share one word of the bitset
+        PermissionRegistry registry = new PermissionRegistry(names);
+        TestSubject subject = new TestSubject("player", OVERWORLD, names);
+
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < nodes; i++)
+        {
+            int id = i;
+            threads.add(Thread.ofPlatform().start(() -> {
+                try
+                {
+                    start.await();
+                }
+                catch (InterruptedException e)
+                {
+                    Thread.currentThread().interrupt();
+                }
+                registry.test(subject, OVERWORLD, id);
+            }));
+        }
+        start.countDown();
+        for (Thread thread : threads)
+        {
+            thread.join();
+        }
+
+        for (int i = 0; i < nodes; i++)
+        {
+            assertTrue(registry.test(subject, OVERWORLD, i));
+        }
+        assertEquals(nodes, subject.lookups().get());
+    }
+}
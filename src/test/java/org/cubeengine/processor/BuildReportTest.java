@@ -0,0 +1,90 @@
+/*
+ * CubeEngine Plugin Generator - Generates necessary plugin glue code for CubeEngine modules.
+ * Copyright © 2018 CubeEngine (development@cubeengine.org)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.cubeengine.processor;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BuildReportTest
+{
+    private static final String REPORT = "META-INF/cubeengine/plugin-gen-report.json";
+
+    @Test
+    void writesNoReportByDefault(@TempDir Path directory)
+    {
+        TestCompiler.Compilation compilation = new TestCompiler(directory).compile(IncrementalProcessingTest.CORE, IncrementalProcessingTest.ALPHA);
+        assertTrue(compilation.success(), () -> compilation.errors().toString());
+
+        assertFalse(compilation.hasResource(REPORT));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void reportsTheModulesAndWrittenFiles(@TempDir Path directory) throws Exception
+    {
+        TestCompiler.Compilation compilation = new TestCompiler(directory).option("-Acubeengine.processor.report")
+                                                                          .compile(IncrementalProcessingTest.CORE, IncrementalProcessingTest.ALPHA);
+        assertTrue(compilation.success(), () -> compilation.errors().toString());
+        assertTrue(compilation.hasResource(REPORT));
+
+        Map<String, Object> report = (Map<String, Object>) Json.parse(compilation.resource(REPORT));
+        assertEquals(PluginGenerator.class.getName(), report.get("processor"));
+        assertTrue((Long) report.get("totalNanos") > 0);
+
+        Map<String, Map<String, Long>> phases = (Map<String, Map<String, Long>>) report.get("phases");
+        for (String phase : List.of("process", "generateCorePlugin", "generateModulePlugin", "writeResources"))
+        {
+            assertTrue(phases.containsKey(phase), phases::toString);
+            assertTrue(phases.get(phase).get("count") > 0, phase);
+        }
+
+        List<Map<String, Object>> modules = (List<Map<String, Object>>) report.get("modules");
+        assertEquals(List.of("cubeengine-alpha", "cubeengine-core"), modules.stream().map(module -> module.get("id")).toList());
+        assertEquals(List.of("mod.alpha.Alpha", "org.cubeengine.libcube.core.LibCubeCore"), modules.stream().map(module -> module.get("class")).toList());
+
+        List<Map<String, Object>> files = (List<Map<String, Object>>) report.get("files");
+        assertEquals((long) files.size(), report.get("fileCount"));
+        assertEquals(files.stream().mapToLong(file -> (Long) file.get("bytes")).sum(), report.get("bytesWritten"));
+
+        Map<Object, Object> bytes = files.stream().collect(Collectors.toMap(file -> file.get("path"), file -> file.get("bytes")));
+        assertEquals((long) compilation.generatedSource("mod.alpha.PluginAlpha").getBytes(StandardCharsets.UTF_8).length, bytes.get("mod/alpha/PluginAlpha.java"));
+        assertEquals(Files.size(compilation.classes().resolve("META-INF/sponge_plugins.json")), bytes.get("META-INF/sponge_plugins.json"));
+    }
+
+    @Test
+    void writesTheReportToTheGivenPath(@TempDir Path directory)
+    {
+        TestCompiler.Compilation compilation = new TestCompiler(directory).option("-Acubeengine.processor.report=build/report.json")
+                                                                          .compile(IncrementalProcessingTest.CORE, IncrementalProcessingTest.ALPHA);
+        assertTrue(compilation.success(), () -> compilation.errors().toString());
+
+        assertTrue(compilation.hasResource("build/report.json"));
+        assertFalse(compilation.hasResource(REPORT));
+    }
+}
@@ -0,0 +1,95 @@
+/*
+ * CubeEngine Plugin Generator - Generates necessary plugin glue code for CubeEngine modules.
+ * Copyright © 2018 CubeEngine (development@cubeengine.org)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.cubeengine.processor;
+
+import java.nio.file.Path;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CdsClassListTest
+{
+    private static List<String> section(List<String> lines, String id)
+    {
+        int start = lines.indexOf("# " + id);
+        assertTrue(start >= 0, lines::toString);
+        int end = start + 1;
+        while (end < lines.size() && !lines.get(end).startsWith("#"))
+        {
+            end++;
+        }
+        return lines.subList(start + 1, end);
+    }
+
+    @Test
+    void listsTheClassesOfEveryPlugin(@TempDir Path directory)
+    {
+        TestCompiler.Compilation compilation = new TestCompiler(directory).option("-Acubeengine.processor.cds").compile(IncrementalProcessingTest.CORE,
+                IncrementalProcessingTest.ALPHA,
+                TestCompiler.source("mod.alpha.AlphaListener", """
+                        package mod.alpha;
+
+                        import com.google.inject.Inject;
+                        import org.spongepowered.api.event.Listener;
+                        import org.spongepowered.api.event.lifecycle.StartedEngineEvent;
+                        import org.spongepowered.api.Server;
+
+                        public class AlphaListener
+                        {
+                            @Inject
+                            public AlphaListener(Helper helper)
+                            {
+                            }
+
+                            @Listener
+                            public void onStarted(StartedEngineEvent<Server> event)
+                            {
+                            }
+
+                            public static class Helper
+                            {
+                            }
+                        }
+                        """));
+
+        assertTrue(compilation.success(), () -> compilation.errors().toString());
+        List<String> lines = compilation.resource(CdsClassList.FILE).lines().toList();
+        assertEquals(lines.size(), lines.stream().distinct().count(), lines::toString);
+        List<String> alpha = section(lines, "cubeengine-alpha");
+        assertTrue(alpha.containsAll(List.of("mod/alpha/PluginAlpha", "mod/alpha/PluginAlphaDescriptor", "mod/alpha/Alpha",
+                                             "mod/alpha/AlphaListener", "mod/alpha/AlphaListener$Helper")), alpha::toString);
+        assertTrue(section(lines, "cubeengine-core").contains("org/cubeengine/libcube/CdsTraining"), lines::toString);
+
+        assertTrue(compilation.generatedSource("mod.alpha.PluginAlpha").contains("org.cubeengine.libcube.CdsTraining.load(getClass(), ALPHA_ID);"));
+    }
+
+    @Test
+    void writesNothingWithoutTheOption(@TempDir Path directory)
+    {
+        TestCompiler.Compilation compilation = new TestCompiler(directory).compile(IncrementalProcessingTest.CORE, IncrementalProcessingTest.ALPHA);
+
+        assertTrue(compilation.success(), () -> compilation.errors().toString());
+        assertFalse(compilation.hasResource(CdsClassList.FILE));
+        assertFalse(compilation.generatedSource("mod.alpha.PluginAlpha").contains("CdsTraining"));
+    }
+}
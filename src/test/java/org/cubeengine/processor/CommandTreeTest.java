@@ -0,0 +1,144 @@
+/*
+ * CubeEngine Plugin Generator - Generates necessary plugin glue code for CubeEngine modules.
+ * Copyright © 2018 CubeEngine (development@cubeengine.org)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.cubeengine.processor;
+
+import java.nio.file.Path;
+
+import javax.tools.Diagnostic;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CommandTreeTest
+{
+    private static TestCompiler.Compilation compile(Path directory, String commands)
+    {
+        return new TestCompiler(directory).compile(IncrementalProcessingTest.CORE,
+                TestCompiler.source("mod.tools.Tools", """
+                        package mod.tools;
+
+                        import org.cubeengine.libcube.service.command.annotation.ModuleCommand;
+                        import org.cubeengine.processor.Module;
+
+                        @Module
+                        public class Tools
+                        {
+                            @ModuleCommand ToolCommands commands;
+                        }
+                        """),
+                TestCompiler.source("mod.tools.ToolException", """
+                        package mod.tools;
+
+                        import net.kyori.adventure.text.Component;
+                        import org.spongepowered.api.command.exception.CommandException;
+
+                        public class ToolException extends CommandException
+                        {
+                            public ToolException()
+                            {
+                                super(Component.text("broken tool"));
+                            }
+                        }
+                        """),
+                TestCompiler.source("mod.tools.ToolCommands", commands));
+    }
+
+    @Test
+    void generatesCommandsThrowingCommandExceptionSubclasses(@TempDir Path directory)
+    {
+        TestCompiler.Compilation compilation = compile(directory, """
+                package mod.tools;
+
+                import org.cubeengine.libcube.service.command.annotation.Command;
+                import org.spongepowered.api.command.CommandCause;
+
+                public class ToolCommands
+                {
+                    @Command(desc = "Repairs")
+                    public void repair(CommandCause cause, String tool) throws ToolException
+                    {
+                    }
+                }
+                """);
+
+        assertTrue(compilation.success(), () -> compilation.errors().toString());
+        assertTrue(compilation.generated("mod.tools.PluginToolsCommands"));
+        assertTrue(compilation.generatedSource("mod.tools.PluginToolsCommands").contains("commands.repair(context.cause(), context.requireOne(TOOL))"));
+    }
+
+    @Test
+    void leavesMethodsWithOtherLibcubeAnnotationsToLibcube(@TempDir Path directory)
+    {
+        TestCompiler.Compilation compilation = compile(directory, """
+                package mod.tools;
+
+                import org.cubeengine.libcube.service.command.annotation.Command;
+                import org.cubeengine.libcube.service.command.annotation.Restricted;
+                import org.spongepowered.api.command.CommandCause;
+
+                public class ToolCommands
+                {
+                    @Command(desc = "Repairs")
+                    public void repair(CommandCause cause)
+                    {
+                    }
+
+                    @Restricted
+                    @Command(desc = "Breaks")
+                    public void breakTool(CommandCause cause)
+                    {
+                    }
+                }
+                """);
+
+        assertTrue(compilation.success(), () -> compilation.errors().toString());
+        assertFalse(compilation.generated("mod.tools.PluginToolsCommands"));
+        assertTrue(compilation.messages(Diagnostic.Kind.NOTE).stream().anyMatch(note -> note.endsWith("@Restricted is not supported")),
+                   () -> compilation.messages(Diagnostic.Kind.NOTE).toString());
+    }
+
+    @Test
+    void leavesClassesWithOtherLibcubeAnnotationsToLibcube(@TempDir Path directory)
+    {
+        TestCompiler.Compilation compilation = compile(directory, """
+                package mod.tools;
+
+                import org.cubeengine.libcube.service.command.annotation.Alias;
+                import org.cubeengine.libcube.service.command.annotation.Command;
+                import org.spongepowered.api.command.CommandCause;
+
+                @Alias("t")
+                @Command(name = "tool", desc = "Tools")
+                public class ToolCommands
+                {
+                    @Command(desc = "Repairs")
+                    public void repair(CommandCause cause)
+                    {
+                    }
+                }
+                """);
+
+        assertTrue(compilation.success(), () -> compilation.errors().toString());
+        assertFalse(compilation.generated("mod.tools.PluginToolsCommands"));
+        assertTrue(compilation.messages(Diagnostic.Kind.NOTE).stream().anyMatch(note -> note.endsWith("@Alias is not supported")),
+                   () -> compilation.messages(Diagnostic.Kind.NOTE).toString());
+    }
+}
@@ -0,0 +1,219 @@
+/*
+ * CubeEngine Plugin Generator - Generates necessary plugin glue code for CubeEngine modules.
+ * Copyright © 2018 CubeEngine (development@cubeengine.org)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.cubeengine.processor;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Proxy;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.google.inject.Provider;
+import org.cubeengine.libcube.ModuleComponent;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CompileTimeComponentTest
+{
+    private static TestCompiler.Compilation compile(Path directory)
+    {
+        return new TestCompiler(directory).option("-Acubeengine.di=compiletime").compile(IncrementalProcessingTest.CORE,
+                TestCompiler.source("mod.graph.Graph", """
+                        package mod.graph;
+
+                        import com.google.inject.Inject;
+                        import com.google.inject.Provider;
+                        import org.cubeengine.processor.Module;
+
+                        @Module
+                        public class Graph
+                        {
+                            final Service service;
+                            final Clock clock;
+                            @Inject Cache cache;
+                            @Inject Provider<Service> services;
+
+                            @Inject
+                            public Graph(Service service, Clock clock)
+                            {
+                                this.service = service;
+                                this.clock = clock;
+                            }
+                        }
+                        """),
+                TestCompiler.source("mod.graph.Service", """
+                        package mod.graph;
+
+                        import com.google.inject.Inject;
+
+                        public class Service
+                        {
+                            final Cache cache;
+
+                            @Inject
+                            public Service(Cache cache)
+                            {
+                                this.cache = cache;
+                            }
+                        }
+                        """),
+                TestCompiler.source("mod.graph.Cache", """
+                        package mod.graph;
+
+                        import com.google.inject.Inject;
+                        import com.google.inject.Singleton;
+
+                        @Singleton
+                        public class Cache
+                        {
+                            @Inject
+                            public Cache()
+                            {
+                            }
+                        }
+                        """),
+                TestCompiler.source("mod.graph.Clock", """
+                        package mod.graph;
+
+                        public interface Clock
+                        {
+                        }
+                        """));
+    }
+
+    @Test
+    void generatesDirectCallsForTheInjectionGraph(@TempDir Path directory)
+    {
+        TestCompiler.Compilation compilation = compile(directory);
+        assertTrue(compilation.success(), () -> compilation.errors().toString());
+
+        String plugin = compilation.generatedSource("mod.graph.PluginGraph");
+        assertTrue(plugin.contains("super(Graph.class, new PluginGraphComponent());"), plugin);
+        assertFalse(compilation.generated("mod.graph.PluginGraphBindings"));
+
+        String component = compilation.generatedSource("mod.graph.PluginGraphComponent");
+        // constructor injection, the interface is left to the resolver
+        assertTrue(component.contains("mod.graph.Graph instance = new mod.graph.Graph(provide1(), ((mod.graph.Clock) resolver.resolve(\"mod.graph.Clock\", null)));"), component);
+        assertTrue(component.contains("return new mod.graph.Service(provide2());"), component);
+        // field and provider injection
+        assertTrue(component.contains("instance.cache = provide2();"), component);
+        assertTrue(component.contains("instance.services = () -> provide1();"), component);
+        // the singleton is cached in the graph
+        assertTrue(component.contains("private mod.graph.Cache singleton2;"), component);
+        assertTrue(component.contains("singleton2 = new mod.graph.Cache();"), component);
+    }
+
+    @Test
+    void createsSingletonsOncePerModule(@TempDir Path directory) throws Exception
+    {
+        TestCompiler.Compilation compilation = compile(directory);
+        assertTrue(compilation.success(), () -> compilation.errors().toString());
+
+        try (URLClassLoader loader = new URLClassLoader(new URL[]{compilation.classes().toUri().toURL()}, CompileTimeComponentTest.class.getClassLoader()))
+        {
+            ModuleComponent<?> component = (ModuleComponent<?>) loader.loadClass("mod.graph.PluginGraphComponent").getConstructor().newInstance();
+            Class<?> clockType = loader.loadClass("mod.graph.Clock");
+            Object clock = Proxy.newProxyInstance(loader, new Class<?>[]{clockType}, (proxy, method, arguments) -> null);
+            List<String> resolved = new ArrayList<>();
+            ModuleComponent.Resolver resolver = (type, qualifier) ->
+            {
+                resolved.add(type);
+                return clock;
+            };
+
+            Object module = component.create(resolver);
+            assertEquals(List.of("mod.graph.Clock"), resolved);
+            assertSame(clock, field(module, "clock"));
+            Object cache = field(module, "cache");
+            Object service = field(module, "service");
+            assertSame(cache, field(service, "cache"));
+            Object provided = ((Provider<?>) field(module, "services")).get();
+            assertNotSame(service, provided);
+            assertSame(cache, field(provided, "cache"));
+
+            assertNotSame(cache, field(component.create(resolver), "cache"));
+        }
+    }
+
+    @Test
+    void reportsDependencyCycles(@TempDir Path directory)
+    {
+        TestCompiler.Compilation compilation = new TestCompiler(directory).option("-Acubeengine.di=compiletime").compile(IncrementalProcessingTest.CORE,
+                TestCompiler.source("mod.cycle.Cycle", """
+                        package mod.cycle;
+
+                        import com.google.inject.Inject;
+                        import org.cubeengine.processor.Module;
+
+                        @Module
+                        public class Cycle
+                        {
+                            @Inject
+                            public Cycle(Chicken chicken)
+                            {
+                            }
+                        }
+                        """),
+                TestCompiler.source("mod.cycle.Chicken", """
+                        package mod.cycle;
+
+                        import com.google.inject.Inject;
+
+                        public class Chicken
+                        {
+                            @Inject
+                            public Chicken(Egg egg)
+                            {
+                            }
+                        }
+                        """),
+                TestCompiler.source("mod.cycle.Egg", """
+                        package mod.cycle;
+
+                        import com.google.inject.Inject;
+
+                        public class Egg
+                        {
+                            @Inject
+                            public Egg(Chicken chicken)
+                            {
+                            }
+                        }
+                        """));
+
+        assertFalse(compilation.success());
+        assertTrue(compilation.errors().stream().anyMatch(error -> error.contains("is part of the dependency cycle mod.cycle.Egg <- mod.cycle.Chicken <- mod.cycle.Cycle")),
+                   () -> compilation.errors().toString());
+        assertFalse(compilation.generated("mod.cycle.PluginCycleComponent"));
+    }
+
+    private static Object field(Object instance, String name) throws ReflectiveOperationException
+    {
+        Field field = instance.getClass().getDeclaredField(name);
+        field.setAccessible(true);
+        return field.get(instance);
+    }
+}
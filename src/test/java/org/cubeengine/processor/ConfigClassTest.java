@@ -0,0 +1,121 @@
+/*
+ * CubeEngine Plugin Generator - Generates necessary plugin glue code for CubeEngine modules.
+ * Copyright © 2018 CubeEngine (development@cubeengine.org)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.cubeengine.processor;
+
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+import javax.tools.Diagnostic;
+
+import org.cubeengine.libcube.ConfigSerializer;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ConfigClassTest
+{
+    private static TestCompiler.Compilation compile(Path directory, String section)
+    {
+        return compile(directory, "", section);
+    }
+
+    private static TestCompiler.Compilation compile(Path directory, String superclass, String section)
+    {
+        return new TestCompiler(directory).compile(IncrementalProcessingTest.CORE,
+                TestCompiler.source("mod.tools.ToolConfig", """
+                        package mod.tools;
+
+                        import java.util.List;
+                        import org.cubeengine.processor.Config;
+
+                        @Config
+                        public class ToolConfig%s
+                        {
+                            public String name = "hammer";
+                            public int maxUses = 3;
+                            public List<String> aliases = List.of();
+                            public Limits limits = new Limits();
+
+                            @Config
+                            public static class Limits
+                            {
+                        %s
+                            }
+                        }
+                        """.formatted(superclass, section)));
+    }
+
+    @Test
+    void readsAndWritesSections(@TempDir Path directory) throws Exception
+    {
+        TestCompiler.Compilation compilation = compile(directory, "        public long cooldown = 20;");
+
+        assertTrue(compilation.success(), () -> compilation.errors().toString());
+        assertTrue(compilation.generated("mod.tools.ToolConfigSerializer"));
+        assertTrue(compilation.generated("mod.tools.ToolConfigLimitsSerializer"));
+        try (URLClassLoader loader = new URLClassLoader(new URL[] {compilation.classes().toUri().toURL()}, ConfigClassTest.class.getClassLoader()))
+        {
+            Class<?> type = loader.loadClass("mod.tools.ToolConfig");
+            @SuppressWarnings("unchecked")
+            ConfigSerializer<Object> serializer = (ConfigSerializer<Object>) ConfigSerializer.find(type).orElseThrow();
+            Object config = type.getConstructor().newInstance();
+
+            assertTrue(serializer.read(Map.of("name", "saw", "max-uses", "7", "aliases", List.of("s", 2), "limits", Map.of("cooldown", 40)), config));
+            assertEquals(Map.of("name", "saw", "max-uses", 7, "aliases", List.of("s", "2"), "limits", Map.of("cooldown", 40L)), serializer.write(config));
+            assertFalse(serializer.read(Map.of("name", "axe"), config));
+        }
+    }
+
+    @Test
+    void serializesClassesWithReflectiveSectionsReflectively(@TempDir Path directory)
+    {
+        TestCompiler.Compilation compilation = compile(directory, "        public java.time.Duration cooldown = java.time.Duration.ofSeconds(1);");
+
+        assertTrue(compilation.success(), () -> compilation.errors().toString());
+        assertFalse(compilation.generated("mod.tools.ToolConfigSerializer"));
+        assertFalse(compilation.generated("mod.tools.ToolConfigLimitsSerializer"));
+        assertTrue(compilation.messages(Diagnostic.Kind.NOTE).stream().anyMatch(note -> note.equals(
+                "mod.tools.ToolConfig is serialized reflectively, the field limits has an unsupported type or section")),
+                   () -> compilation.messages(Diagnostic.Kind.NOTE).toString());
+    }
+
+    @Test
+    void skipsTheFieldsOfReflectBaseClasses(@TempDir Path plain, @TempDir Path extending) throws Exception
+    {
+        TestCompiler.Compilation compilation = compile(extending, " extends org.cubeengine.reflect.ReflectedYaml", "        public long cooldown = 20;");
+        assertTrue(compilation.success(), () -> compilation.errors().toString());
+        assertTrue(compilation.generated("mod.tools.ToolConfigSerializer"));
+        assertFalse(compilation.generatedSource("mod.tools.ToolConfigSerializer").contains("loaded"));
+
+        assertEquals(schemaHash(compile(plain, "        public long cooldown = 20;")), schemaHash(compilation));
+    }
+
+    private static String schemaHash(TestCompiler.Compilation compilation) throws Exception
+    {
+        try (URLClassLoader loader = new URLClassLoader(new URL[] {compilation.classes().toUri().toURL()}, ConfigClassTest.class.getClassLoader()))
+        {
+            return ConfigSerializer.find(loader.loadClass("mod.tools.ToolConfig")).orElseThrow().schemaHash();
+        }
+    }
+}
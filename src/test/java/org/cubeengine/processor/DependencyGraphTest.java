@@ -0,0 +1,189 @@
+/*
+ * CubeEngine Plugin Generator - Generates necessary plugin glue code for CubeEngine modules.
+ * Copyright © 2018 CubeEngine (development@cubeengine.org)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.cubeengine.processor;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import javax.tools.Diagnostic;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DependencyGraphTest
+{
+    private static PluginModel plugin(String id, String... dependencies)
+    {
+        List<DependencyModel> models = Arrays.stream(dependencies).map(dependency -> new DependencyModel(dependency, "", false)).toList();
+        return new PluginModel(null, false, false, "mod", "Plugin", id, id, "1.0.0", "", "", "", "", models, null);
+    }
+
+    private static DependencyGraph graph(PluginModel... plugins)
+    {
+        return new DependencyGraph(List.of(plugins), id -> List.of());
+    }
+
+    @Test
+    void assignsLevelsByLongestDependencyChain()
+    {
+        DependencyGraph graph = graph(plugin("d", "b", "c"), plugin("c", "a"), plugin("b", "a"), plugin("a"), plugin("e", "a", "d"));
+
+        assertTrue(graph.isValid());
+        assertEquals(List.of(List.of("a"), List.of("b", "c"), List.of("d"), List.of("e")), graph.levels());
+    }
+
+    @Test
+    void unknownDependenciesAreLeaves()
+    {
+        DependencyGraph graph = graph(plugin("a", "spongeapi"), plugin("b", "a", "spongeapi"));
+
+        assertTrue(graph.isValid());
+        assertEquals(List.of(List.of("a"), List.of("b")), graph.levels());
+    }
+
+    @Test
+    void upstreamPluginsCountForDepthButAreNotLoaded()
+    {
+        Map<String, List<String>> upstream = Map.of("up1", List.of("up0"), "up0", List.of());
+        DependencyGraph graph = new DependencyGraph(List.of(plugin("x", "up1"), plugin("z")), id -> upstream.getOrDefault(id, List.of()));
+
+        assertTrue(graph.isValid());
+        assertEquals(List.of(List.of("z"), List.of("x")), graph.levels());
+    }
+
+    @Test
+    void detectsCycles()
+    {
+        DependencyGraph graph = graph(plugin("a", "b"), plugin("b", "c"), plugin("c", "a"), plugin("d", "a"));
+
+        assertFalse(graph.isValid());
+        assertThrows(IllegalStateException.class, graph::levels);
+    }
+
+    @Test
+    void detectsCyclesThroughUpstreamPlugins()
+    {
+        DependencyGraph graph = new DependencyGraph(List.of(plugin("a", "up")), id -> id.equals("up") ? List.of("a") : List.of());
+
+        assertFalse(graph.isValid());
+    }
+
+    @Test
+    void ignoresCyclesBetweenUpstreamPlugins()
+    {
+        Map<String, List<String>> upstream = Map.of("up0", List.of("up1"), "up1", List.of("up0", "up1"));
+        DependencyGraph graph = new DependencyGraph(List.of(plugin("a", "up0")), id -> upstream.getOrDefault(id, List.of()));
+
+        assertTrue(graph.isValid());
+    }
+
+    @Test
+    void detectsSelfDependencies()
+    {
+        assertFalse(graph(plugin("a", "a")).isValid());
+    }
+
+    @Test
+    void detectsDuplicateDependencies()
+    {
+        assertFalse(graph(plugin("a", "spongeapi", "spongeapi")).isValid());
+    }
+
+    @Test
+    void handlesLongChainsWithoutRecursion()
+    {
+        int size = 100_000;
+        List<PluginModel> plugins = new ArrayList<>();
+        for (int i = 0; i < size; i++)
+        {
+            plugins.add(i == 0 ? plugin("p0") : plugin("p" + i, "p" + (i - 1)));
+        }
+        DependencyGraph valid = new DependencyGraph(plugins, id -> List.of());
+        assertTrue(valid.isValid());
+        List<List<String>> levels = valid.levels();
+        assertEquals(size, levels.size());
+        assertEquals(List.of("p" + (size - 1)), levels.get(size - 1));
+
+        plugins.set(0, plugin("p0", "p" + (size - 1)));
+        assertFalse(new DependencyGraph(plugins, id -> List.of()).isValid());
+    }
+
+    @Test
+    void reportsProblemsOnTheOffendingAnnotation(@TempDir Path directory)
+    {
+        TestCompiler.Compilation compilation = new TestCompiler(directory).option("-proc:only").compile(
+                TestCompiler.source("mod.a.Alpha", """
+                        package mod.a;
+
+                        import org.cubeengine.processor.Dependency;
+                        import org.cubeengine.processor.Module;
+
+                        @Module(dependencies = {@Dependency("spongeapi"), @Dependency("cubeengine-beta")})
+                        public class Alpha
+                        {
+                        }
+                        """),
+                TestCompiler.source("mod.b.Beta", """
+                        package mod.b;
+
+                        import org.cubeengine.processor.Dependency;
+                        import org.cubeengine.processor.Module;
+
+                        @Module(dependencies = @Dependency("cubeengine-alpha"))
+                        public class Beta
+                        {
+                        }
+                        """),
+                TestCompiler.source("mod.c.Gamma", """
+                        package mod.c;
+
+                        import org.cubeengine.processor.Dependency;
+                        import org.cubeengine.processor.Module;
+
+                        @Module(dependencies = @Dependency("cubeengine-gamma"))
+                        public class Gamma
+                        {
+                        }
+                        """),
+                TestCompiler.source("mod.d.Gamma", """
+                        package mod.d;
+
+                        @org.cubeengine.processor.Module
+                        public class Gamma
+                        {
+                        }
+                        """));
+
+        assertFalse(compilation.success());
+        List<String> errors = compilation.errors();
+        assertTrue(errors.contains("/mod/a/Alpha.java:6: Dependency on cubeengine-beta is part of a dependency cycle: cubeengine-alpha, cubeengine-beta"), errors::toString);
+        assertTrue(errors.contains("/mod/b/Beta.java:6: Dependency on cubeengine-alpha is part of a dependency cycle: cubeengine-alpha, cubeengine-beta"), errors::toString);
+        assertTrue(errors.contains("/mod/c/Gamma.java:6: cubeengine-gamma depends on itself"), errors::toString);
+        assertTrue(errors.stream().anyMatch(error -> error.startsWith("/mod/d/Gamma.java:3: Duplicate plugin id cubeengine-gamma")), errors::toString);
+        assertFalse(compilation.hasResource("META-INF/sponge_plugins.json"));
+        assertTrue(compilation.messages(Diagnostic.Kind.WARNING).isEmpty(), () -> compilation.messages(Diagnostic.Kind.WARNING).toString());
+    }
+}
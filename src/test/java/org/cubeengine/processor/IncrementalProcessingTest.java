@@ -0,0 +1,121 @@
+/*
+ * CubeEngine Plugin Generator - Generates necessary plugin glue code for CubeEngine modules.
+ * Copyright © 2018 CubeEngine (development@cubeengine.org)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.cubeengine.processor;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.tools.JavaFileObject;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class IncrementalProcessingTest
+{
+    static final JavaFileObject CORE = TestCompiler.source("org.cubeengine.libcube.core.LibCubeCore", """
+            package org.cubeengine.libcube.core;
+
+            @org.cubeengine.processor.Core
+            public class LibCubeCore
+            {
+            }
+            """);
+    static final JavaFileObject ALPHA = TestCompiler.source("mod.alpha.Alpha", """
+            package mod.alpha;
+
+            @org.cubeengine.processor.Module
+            public class Alpha
+            {
+            }
+            """);
+
+    private static JavaFileObject util(int version)
+    {
+        return TestCompiler.source("mod.alpha.Util", """
+                package mod.alpha;
+
+                public class Util
+                {
+                    public static final int VERSION = %d;
+                }
+                """.formatted(version));
+    }
+
+    @Test
+    void registeredAsAggregatingProcessor() throws IOException
+    {
+        try (InputStream in = PluginGenerator.class.getResourceAsStream("/META-INF/gradle/incremental.annotation.processors"))
+        {
+            assertNotNull(in);
+            assertEquals("org.cubeengine.processor.PluginGenerator,aggregating", new String(in.readAllBytes(), StandardCharsets.UTF_8).strip());
+        }
+    }
+
+    @Test
+    void generatedFilesOriginateFromAnnotatedElementsOnly(@TempDir Path directory)
+    {
+        TestCompiler.Compilation compilation = new TestCompiler(directory).compile(CORE, ALPHA, util(1));
+        assertTrue(compilation.success(), () -> String.join("\n", compilation.errors()));
+
+        assertEquals(List.of("/mod/alpha/Alpha.java"), compilation.originatingFiles().get("mod/alpha/PluginAlpha.java"));
+        compilation.originatingFiles().forEach((output, originating) ->
+                assertFalse(originating.contains("/mod/alpha/Util.java"), output + " originates from Util"));
+    }
+
+    @Test
+    void unrelatedEditDoesNotRewriteUnchangedResources(@TempDir Path directory) throws IOException
+    {
+        TestCompiler compiler = new TestCompiler(directory);
+        TestCompiler.Compilation initial = compiler.compile(CORE, ALPHA, util(1));
+        assertTrue(initial.success(), () -> String.join("\n", initial.errors()));
+        Path pluginSource = initial.generated().resolve("mod/alpha/PluginAlpha.java");
+        String source = Files.readString(pluginSource);
+        List<String> resources = List.of("META-INF/sponge_plugins.json", ModuleIndex.FILE, "META-INF/cubeengine/load-order.json",
+                                         "META-INF/cubeengine/dependencies/cubeengine-alpha");
+        Map<String, FileTime> modified = new LinkedHashMap<>();
+        for (String resource : resources)
+        {
+            modified.put(resource, Files.getLastModifiedTime(initial.classes().resolve(resource)));
+        }
+
+        // The processor is aggregating, Gradle reprocesses all annotated sources together with the edited one
+        TestCompiler.Compilation edited = compiler.compile(CORE, ALPHA, util(2));
+        assertTrue(edited.success(), () -> String.join("\n", edited.errors()));
+
+        assertEquals(source, Files.readString(pluginSource));
+        for (String resource : resources)
+        {
+            assertFalse(edited.originatingFiles().containsKey(resource), () -> "rewrote " + resource);
+            assertEquals(modified.get(resource), Files.getLastModifiedTime(edited.classes().resolve(resource)), resource);
+        }
+        edited.originatingFiles().forEach((output, originating) ->
+                assertFalse(originating.contains("/mod/alpha/Util.java"), output + " originates from Util"));
+    }
+}
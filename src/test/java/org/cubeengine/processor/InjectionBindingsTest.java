@@ -0,0 +1,304 @@
+/*
+ * CubeEngine Plugin Generator - Generates necessary plugin glue code for CubeEngine modules.
+ * Copyright © 2018 CubeEngine (development@cubeengine.org)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.cubeengine.processor;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Proxy;
+import java.lang.reflect.Type;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+import javax.tools.Diagnostic;
+import javax.tools.JavaFileObject;
+
+import com.google.inject.AbstractModule;
+import com.google.inject.Inject;
+import com.google.inject.Injector;
+import com.google.inject.Provider;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+class InjectionBindingsTest
+{
+    private static final JavaFileObject[] BOUND = {
+            IncrementalProcessingTest.CORE,
+            TestCompiler.source("mod.bound.Bound", """
+                    package mod.bound;
+
+                    import com.google.inject.Inject;
+                    import com.google.inject.Injector;
+                    import com.google.inject.Provider;
+                    import com.google.inject.name.Named;
+                    import org.cubeengine.processor.Module;
+
+                    @Module
+                    public class Bound
+                    {
+                        final Service service;
+                        final Injector injector;
+                        @Inject Provider<Helper> helper;
+                        @Inject @Named("greeting") String greeting;
+
+                        @Inject
+                        public Bound(Service service, Injector injector)
+                        {
+                            this.service = service;
+                            this.injector = injector;
+                        }
+                    }
+                    """),
+            TestCompiler.source("mod.bound.Service", """
+                    package mod.bound;
+
+                    import com.google.inject.Inject;
+                    import mod.bound.data.Repository;
+
+                    public class Service
+                    {
+                        final Repository repository;
+                        @Inject Api api;
+
+                        @Inject
+                        public Service(Repository repository)
+                        {
+                            this.repository = repository;
+                        }
+                    }
+                    """),
+            TestCompiler.source("mod.bound.Helper", """
+                    package mod.bound;
+
+                    public class Helper
+                    {
+                    }
+                    """),
+            TestCompiler.source("mod.bound.Api", """
+                    package mod.bound;
+
+                    public interface Api
+                    {
+                    }
+                    """),
+            TestCompiler.source("mod.bound.data.Repository", """
+                    package mod.bound.data;
+
+                    import com.google.inject.Inject;
+                    import com.google.inject.Singleton;
+
+                    @Singleton
+                    public class Repository
+                    {
+                        @Inject
+                        public Repository()
+                        {
+                        }
+                    }
+                    """)
+    };
+
+    @Test
+    void bindsTheClassesOfTheModuleAndReportsTheOthers(@TempDir Path directory)
+    {
+        TestCompiler.Compilation compilation = new TestCompiler(directory).compile(BOUND);
+
+        assertTrue(compilation.success(), () -> compilation.errors().toString());
+        String plugin = compilation.generatedSource("mod.bound.PluginBound");
+        assertTrue(plugin.contains("super(Bound.class, new PluginBoundBindings());"), plugin);
+        String bindings = compilation.generatedSource("mod.bound.PluginBoundBindings");
+        assertTrue(bindings.contains("""
+                        bind(Bound.class).toProvider(ModuleProvider.class);
+                        bind(mod.bound.Service.class);
+                        bind(mod.bound.data.Repository.class);
+                        bind(mod.bound.Helper.class);
+                    }
+                """), bindings);
+        assertTrue(compilation.messages(Diagnostic.Kind.NOTE).contains("The bindings of mod.bound.Bound do not bind mod.bound.Api, "
+                + "com.google.inject.Injector, @com.google.inject.name.Named(\"greeting\") java.lang.String, they have to be bound explicitly by libcube"),
+                   () -> compilation.messages(Diagnostic.Kind.NOTE).toString());
+    }
+
+    /**
+     * Creates the module like an injector with {@code requireExplicitBindings()}, only the bindings of the generated
+     * module and the ones of libcube are available.
+     */
+    @Test
+    void createsTheModuleWithExplicitBindingsOnly(@TempDir Path directory) throws Exception
+    {
+        TestCompiler.Compilation compilation = new TestCompiler(directory).compile(BOUND);
+        assertTrue(compilation.success(), () -> compilation.errors().toString());
+
+        try (URLClassLoader loader = new URLClassLoader(new URL[]{compilation.classes().toUri().toURL()}, InjectionBindingsTest.class.getClassLoader()))
+        {
+            AbstractModule bindings = (AbstractModule) loader.loadClass("mod.bound.PluginBoundBindings").getConstructor().newInstance();
+            Method configure = AbstractModule.class.getDeclaredMethod("configure");
+            configure.setAccessible(true);
+            configure.invoke(bindings);
+            Field boundField = AbstractModule.class.getDeclaredField("bound");
+            boundField.setAccessible(true);
+            @SuppressWarnings("unchecked")
+            List<Class<?>> bound = (List<Class<?>>) boundField.get(bindings);
+            assertEquals(List.of(loader.loadClass("mod.bound.Bound"), loader.loadClass("mod.bound.Service"),
+                                 loader.loadClass("mod.bound.data.Repository"), loader.loadClass("mod.bound.Helper")), bound);
+
+            Injector injector = new Injector()
+            {
+                @Override
+                public <T> T getInstance(Class<T> c)
+                {
+                    throw new UnsupportedOperationException();
+                }
+            };
+            Class<?> apiType = loader.loadClass("mod.bound.Api");
+            Object api = Proxy.newProxyInstance(loader, new Class<?>[]{apiType}, (proxy, method, arguments) -> null);
+            Map<Type, Object> libcube = Map.of(Injector.class, injector, apiType, api, String.class, "hello");
+            Provider<?> moduleProvider = (Provider<?>) create(loader.loadClass("mod.bound.PluginBoundBindings$ModuleProvider"), libcube, bound);
+            Object module = moduleProvider.get();
+
+            assertSame(injector, field(module, "injector"));
+            assertEquals("hello", field(module, "greeting"));
+            assertNotNull(((Provider<?>) field(module, "helper")).get());
+            Object service = field(module, "service");
+            assertNotNull(field(service, "repository"));
+            assertSame(api, field(service, "api"));
+        }
+    }
+
+    private static Object instance(Type type, Map<Type, Object> libcube, List<Class<?>> bound) throws ReflectiveOperationException
+    {
+        if (libcube.containsKey(type))
+        {
+            return libcube.get(type);
+        }
+        if (type instanceof ParameterizedType provider && provider.getRawType() == Provider.class)
+        {
+            Type provided = provider.getActualTypeArguments()[0];
+            return (Provider<Object>) () ->
+            {
+                try
+                {
+                    return instance(provided, libcube, bound);
+                }
+                catch (ReflectiveOperationException e)
+                {
+                    throw new IllegalStateException(e);
+                }
+            };
+        }
+        if (!bound.contains(type))
+        {
+            fail("No explicit binding for " + type);
+        }
+        return create((Class<?>) type, libcube, bound);
+    }
+
+    private static Object create(Class<?> type, Map<Type, Object> libcube, List<Class<?>> bound) throws ReflectiveOperationException
+    {
+        Constructor<?> constructor = type.getDeclaredConstructors()[0];
+        for (Constructor<?> candidate : type.getDeclaredConstructors())
+        {
+            if (candidate.isAnnotationPresent(Inject.class))
+            {
+                constructor = candidate;
+            }
+        }
+        constructor.setAccessible(true);
+        Type[] parameters = constructor.getGenericParameterTypes();
+        Object[] arguments = new Object[parameters.length];
+        for (int i = 0; i < parameters.length; i++)
+        {
+            arguments[i] = instance(parameters[i], libcube, bound);
+        }
+        Object instance = constructor.newInstance(arguments);
+        for (Field field : type.getDeclaredFields())
+        {
+            if (field.isAnnotationPresent(Inject.class))
+            {
+                field.setAccessible(true);
+                field.set(instance, instance(field.getGenericType(), libcube, bound));
+            }
+        }
+        return instance;
+    }
+
+    private static Object field(Object instance, String name) throws ReflectiveOperationException
+    {
+        Field field = instance.getClass().getDeclaredField(name);
+        field.setAccessible(true);
+        return field.get(instance);
+    }
+
+    @Test
+    void assignsFieldsDirectlyNextToInjectConstructors(@TempDir Path directory)
+    {
+        TestCompiler.Compilation compilation = new TestCompiler(directory).compile(IncrementalProcessingTest.CORE,
+                TestCompiler.source("mod.inject.Base", """
+                        package mod.inject;
+
+                        import com.google.inject.Inject;
+                        import com.google.inject.Injector;
+
+                        public abstract class Base
+                        {
+                            @Inject protected Injector injector;
+
+                            @Inject
+                            protected Base(Injector injector)
+                            {
+                            }
+                        }
+                        """),
+                TestCompiler.source("mod.inject.Injected", """
+                        package mod.inject;
+
+                        import com.google.inject.Inject;
+                        import com.google.inject.Injector;
+                        import org.cubeengine.processor.Module;
+
+                        @Module
+                        public class Injected extends Base
+                        {
+                            @Inject Injector other;
+
+                            @Inject
+                            public Injected(Injector injector)
+                            {
+                                super(injector);
+                            }
+                        }
+                        """));
+
+        assertTrue(compilation.success(), () -> compilation.errors().toString());
+        String bindings = compilation.generatedSource("mod.inject.PluginInjectedBindings");
+        assertFalse(bindings.contains("MembersInjector"), bindings);
+        assertTrue(bindings.contains(".injector = "), bindings);
+        assertTrue(bindings.contains(".other = "), bindings);
+    }
+}
@@ -0,0 +1,230 @@
+/*
+ * CubeEngine Plugin Generator - Generates necessary plugin glue code for CubeEngine modules.
+ * Copyright © 2018 CubeEngine (development@cubeengine.org)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.cubeengine.processor;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A strict parser for the JSON the processor writes, to check generated resources by their structure.
+ */
+final class Json
+{
+    private final String text;
+    private int position;
+
+    private Json(String text)
+    {
+        this.text = text;
+    }
+
+    /**
+     * @return a {@link Map}, {@link List}, {@link String}, {@link Boolean}, {@link Long} or null
+     */
+    static Object parse(String text)
+    {
+        Json json = new Json(text);
+        Object value = json.value();
+        json.whitespace();
+        if (json.position != text.length())
+        {
+            throw json.error("Trailing content");
+        }
+        return value;
+    }
+
+    private Object value()
+    {
+        whitespace();
+        if (position == text.length())
+        {
+            throw error("Unexpected end");
+        }
+        char c = text.charAt(position);
+        switch (c)
+        {
+            case '{':
+                return object();
+            case '[':
+                return array();
+            case '"':
+                return string();
+            default:
+                if (text.startsWith("true", position))
+                {
+                    position += 4;
+                    return true;
+                }
+                if (text.startsWith("false", position))
+                {
+                    position += 5;
+                    return false;
+                }
+                if (text.startsWith("null", position))
+                {
+                    position += 4;
+                    return null;
+                }
+                int start = position;
+                if (c == '-')
+                {
+                    position++;
+                }
+                while (position < text.length() && Character.isDigit(text.charAt(position)))
+                {
+                    position++;
+                }
+                if (start == position)
+                {
+                    throw error("Unexpected " + c);
+                }
+                return Long.parseLong(text.substring(start, position));
+        }
+    }
+
+    private Map<String, Object> object()
+    {
+        Map<String, Object> object = new LinkedHashMap<>();
+        position++;
+        whitespace();
+        if (peek() == '}')
+        {
+            position++;
+            return object;
+        }
+        do
+        {
+            whitespace();
+            if (peek() != '"')
+            {
+                throw error("Expected a name");
+            }
+            String name = string();
+            whitespace();
+            expect(':');
+            if (object.put(name, value()) != null)
+            {
+                throw error("Duplicate name " + name);
+            }
+            whitespace();
+        }
+        while (next() == ',');
+        position--;
+        expect('}');
+        return object;
+    }
+
+    private List<Object> array()
+    {
+        List<Object> array = new ArrayList<>();
+        position++;
+        whitespace();
+        if (peek() == ']')
+        {
+            position++;
+            return array;
+        }
+        do
+        {
+            array.add(value());
+            whitespace();
+        }
+        while (next() == ',');
+        position--;
+        expect(']');
+        return array;
+    }
+
+    private String string()
+    {
+        StringBuilder builder = new StringBuilder();
+        position++;
+        while (true)
+        {
+            char c = next();
+            if (c == '"')
+            {
+                return builder.toString();
+            }
+            if (c < 0x20)
+            {
+                throw error("Unescaped control character");
+            }
+            if (c != '\\')
+            {
+                builder.append(c);
+                continue;
+            }
+            char escape = next();
+            switch (escape)
+            {
+                case '"', '\\', '/' -> builder.append(escape);
+                case 'n' -> builder.append('\n');
+                case 'r' -> builder.append('\r');
+                case 't' -> builder.append('\t');
+                case 'b' -> builder.append('\b');
+                case 'f' -> builder.append('\f');
+                case 'u' ->
+                {
+                    builder.append((char) Integer.parseInt(text.substring(position, position + 4), 16));
+                    position += 4;
+                }
+                default -> throw error("Invalid escape \\" + escape);
+            }
+        }
+    }
+
+    private void whitespace()
+    {
+        while (position < text.length() && " \n\r\t".indexOf(text.charAt(position)) >= 0)
+        {
+            position++;
+        }
+    }
+
+    private char peek()
+    {
+        if (position == text.length())
+        {
+            throw error("Unexpected end");
+        }
+        return text.charAt(position);
+    }
+
+    private char next()
+    {
+        char c = peek();
+        position++;
+        return c;
+    }
+
+    private void expect(char expected)
+    {
+        if (next() != expected)
+        {
+            throw error("Expected " + expected);
+        }
+    }
+
+    private IllegalArgumentException error(String message)
+    {
+        return new IllegalArgumentException(message + " at " + position);
+    }
+}
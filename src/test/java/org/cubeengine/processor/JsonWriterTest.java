@@ -0,0 +1,100 @@
+/*
+ * CubeEngine Plugin Generator - Generates necessary plugin glue code for CubeEngine modules.
+ * Copyright © 2018 CubeEngine (development@cubeengine.org)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.cubeengine.processor;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class JsonWriterTest
+{
+    @Test
+    void escapesStrings() throws IOException
+    {
+        String value = "quote \" backslash \\ slash / newline \n return \r tab \t control \u0001\u001f separators    umlaut ü";
+        StringWriter out = new StringWriter();
+        new JsonWriter(out).beginObject().name("key \"name\"").value(value).endObject();
+
+        assertEquals("""
+                {
+                    "key \\"name\\"": "quote \\" backslash \\\\ slash / newline \\n return \\r tab \\t control \\u0001\\u001f separators \\u2028\\u2029 umlaut ü"
+                }
+                """, out.toString());
+        assertEquals(Map.of("key \"name\"", value), Json.parse(out.toString()));
+    }
+
+    @Test
+    void writesNestedStructures() throws IOException
+    {
+        StringWriter out = new StringWriter();
+        new JsonWriter(out).beginObject()
+                           .name("empty").beginObject().endObject()
+                           .name("list").beginArray().value(1).value(true).value("a").beginArray().endArray().endArray()
+                           .endObject();
+
+        assertEquals("""
+                {
+                    "empty": {},
+                    "list": [
+                        1,
+                        true,
+                        "a",
+                        []
+                    ]
+                }
+                """, out.toString());
+        assertEquals(Map.of("empty", Map.of(), "list", List.of(1L, true, "a", List.of())), Json.parse(out.toString()));
+    }
+
+    @Test
+    void writesDeepNesting() throws IOException
+    {
+        StringWriter out = new StringWriter();
+        JsonWriter json = new JsonWriter(out);
+        for (int i = 0; i < 100; i++)
+        {
+            json.beginArray();
+        }
+        for (int i = 0; i < 100; i++)
+        {
+            json.endArray();
+        }
+        Object value = Json.parse(out.toString());
+        for (int i = 0; i < 99; i++)
+        {
+            value = ((List<?>) value).get(0);
+        }
+        assertEquals(List.of(), value);
+    }
+
+    @Test
+    void rejectsInvalidNesting() throws IOException
+    {
+        assertThrows(IllegalStateException.class, () -> new JsonWriter(new StringWriter()).beginObject().value("missing name"));
+        assertThrows(IllegalStateException.class, () -> new JsonWriter(new StringWriter()).beginArray().name("name"));
+        assertThrows(IllegalStateException.class, () -> new JsonWriter(new StringWriter()).beginArray().endObject());
+        JsonWriter closed = new JsonWriter(new StringWriter()).beginObject().endObject();
+        assertThrows(IllegalStateException.class, closed::endObject);
+    }
+}
@@ -0,0 +1,69 @@
+/*
+ * CubeEngine Plugin Generator - Generates necessary plugin glue code for CubeEngine modules.
+ * Copyright © 2018 CubeEngine (development@cubeengine.org)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.cubeengine.processor;
+
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LazyPluginTest
+{
+    @Test
+    void replaysDeferredLifecycleEvents(@TempDir Path directory)
+    {
+        TestCompiler.Compilation compilation = new TestCompiler(directory).compile(IncrementalProcessingTest.CORE,
+                TestCompiler.source("mod.sleepy.Sleepy", """
+                        package mod.sleepy;
+
+                        import org.cubeengine.libcube.service.command.annotation.ModuleCommand;
+                        import org.cubeengine.processor.Module;
+
+                        @Module(lazy = true)
+                        public class Sleepy
+                        {
+                            @ModuleCommand SleepyCommands commands;
+                        }
+                        """),
+                TestCompiler.source("mod.sleepy.SleepyCommands", """
+                        package mod.sleepy;
+
+                        import org.cubeengine.libcube.service.command.annotation.Command;
+                        import org.spongepowered.api.command.CommandCause;
+
+                        @Command(name = "nap", desc = "Naps")
+                        public class SleepyCommands
+                        {
+                            @Command(desc = "Naps now")
+                            public void now(CommandCause cause)
+                            {
+                            }
+                        }
+                        """));
+
+        assertTrue(compilation.success(), () -> compilation.errors().toString());
+        String plugin = compilation.generatedSource("mod.sleepy.PluginSleepy");
+        assertTrue(plugin.contains("lazyModule.construct(event.plugin(), () -> super.onConstruction(lazyModule.replay(event)));"), plugin);
+        assertTrue(plugin.contains("lazyModule.defer(() -> super.onInit(lazyModule.replay(event)));"), plugin);
+        assertTrue(plugin.contains("List.of(\"nap\")"), plugin);
+        assertTrue(plugin.contains("\"cubeengine.sleepy.command.nap\""), plugin);
+        assertTrue(plugin.contains("Map.entry(\"now\", \"cubeengine.sleepy.command.nap.now\")"), plugin);
+    }
+}
@@ -0,0 +1,167 @@
+/*
+ * CubeEngine Plugin Generator - Generates necessary plugin glue code for CubeEngine modules.
+ * Copyright © 2018 CubeEngine (development@cubeengine.org)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.cubeengine.processor;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Path;
+import java.util.List;
+
+import javax.tools.Diagnostic;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.spongepowered.api.Sponge;
+import org.spongepowered.api.event.Event;
+import org.spongepowered.api.event.EventListenerRegistration;
+import org.spongepowered.api.event.Order;
+import org.spongepowered.api.event.network.ServerSideConnectionEvent;
+import org.spongepowered.plugin.PluginContainer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ListenerClassTest
+{
+    private static TestCompiler.Compilation compile(Path directory)
+    {
+        return new TestCompiler(directory).compile(IncrementalProcessingTest.CORE,
+                TestCompiler.source("mod.listen.Listen", """
+                        package mod.listen;
+
+                        @org.cubeengine.processor.Module
+                        public class Listen
+                        {
+                        }
+                        """),
+                TestCompiler.source("mod.listen.JoinListener", """
+                        package mod.listen;
+
+                        import java.util.ArrayList;
+                        import java.util.List;
+                        import org.spongepowered.api.Server;
+                        import org.spongepowered.api.event.Listener;
+                        import org.spongepowered.api.event.Order;
+                        import org.spongepowered.api.event.lifecycle.StartedEngineEvent;
+                        import org.spongepowered.api.event.network.ServerSideConnectionEvent;
+
+                        public class JoinListener
+                        {
+                            public final List<String> events = new ArrayList<>();
+
+                            @Listener(order = Order.LATE, beforeModifications = true)
+                            public void onDisconnect(ServerSideConnectionEvent.Disconnect event)
+                            {
+                                events.add("disconnect");
+                            }
+
+                            @Listener
+                            public void onStarted(StartedEngineEvent<Server> event)
+                            {
+                                events.add("started");
+                            }
+                        }
+                        """),
+                TestCompiler.source("mod.listen.CauseListener", """
+                        package mod.listen;
+
+                        import org.spongepowered.api.event.Listener;
+                        import org.spongepowered.api.event.network.ServerSideConnectionEvent;
+
+                        public class CauseListener
+                        {
+                            @Listener
+                            public void onDisconnect(ServerSideConnectionEvent.Disconnect event, Object cause)
+                            {
+                            }
+                        }
+                        """));
+    }
+
+    @Test
+    void dispatchesThePluginAndItsListenerClassesDirectly(@TempDir Path directory)
+    {
+        TestCompiler.Compilation compilation = compile(directory);
+        assertTrue(compilation.success(), () -> compilation.errors().toString());
+
+        String plugin = compilation.generatedSource("mod.listen.PluginListen");
+        assertTrue(plugin.contains("PluginListenListeners.register(container, this);"), plugin);
+        assertFalse(plugin.contains("@Listener"), plugin);
+
+        String listeners = compilation.generatedSource("mod.listen.PluginListenListeners");
+        assertTrue(listeners.contains("LISTENER_CLASSES = List.of(mod.listen.PluginListen.class, mod.listen.JoinListener.class);"), listeners);
+        assertTrue(listeners.contains("if (listener.getClass() == mod.listen.PluginListen.class)"), listeners);
+        assertTrue(listeners.contains("register(plugin, new TypeToken<org.spongepowered.api.event.lifecycle.StartingEngineEvent<org.spongepowered.api.Server>>() {}, "
+                                      + "Order.EARLY, false, new Dispatcher(1, listener));"), listeners);
+        assertTrue(listeners.contains("case 0 -> ((mod.listen.PluginListen) listener).onConstruction((org.spongepowered.api.event.lifecycle.ConstructPluginEvent) event);"), listeners);
+
+        assertTrue(listeners.contains("if (listener.getClass() == mod.listen.JoinListener.class)"), listeners);
+        assertTrue(listeners.contains("register(plugin, TypeToken.get(org.spongepowered.api.event.network.ServerSideConnectionEvent.Disconnect.class), "
+                                      + "Order.LATE, true, new Dispatcher(4, listener));"), listeners);
+        assertTrue(listeners.contains("register(plugin, new TypeToken<org.spongepowered.api.event.lifecycle.StartedEngineEvent<org.spongepowered.api.Server>>() {}, "
+                                      + "Order.DEFAULT, false, new Dispatcher(5, listener));"), listeners);
+        assertTrue(listeners.contains("case 4 -> ((mod.listen.JoinListener) listener).onDisconnect((org.spongepowered.api.event.network.ServerSideConnectionEvent.Disconnect) event);"), listeners);
+        assertTrue(listeners.contains("case 5 -> ((mod.listen.JoinListener) listener).onStarted((org.spongepowered.api.event.lifecycle.StartedEngineEvent<org.spongepowered.api.Server>) event);"), listeners);
+
+        assertFalse(listeners.contains("CauseListener"), listeners);
+        assertTrue(compilation.messages(Diagnostic.Kind.NOTE).contains("mod.listen.CauseListener is registered reflectively, onDisconnect takes more than the event"),
+                   () -> compilation.messages(Diagnostic.Kind.NOTE).toString());
+    }
+
+    @Test
+    void registersDispatchersForSupportedListeners(@TempDir Path directory) throws Exception
+    {
+        TestCompiler.Compilation compilation = compile(directory);
+        assertTrue(compilation.success(), () -> compilation.errors().toString());
+
+        try (URLClassLoader loader = new URLClassLoader(new URL[]{compilation.classes().toUri().toURL()}, ListenerClassTest.class.getClassLoader()))
+        {
+            Method register = loader.loadClass("mod.listen.PluginListenListeners").getMethod("register", PluginContainer.class, Object.class);
+            Field field = Sponge.class.getDeclaredField("REGISTRATIONS");
+            field.setAccessible(true);
+            @SuppressWarnings("unchecked")
+            List<EventListenerRegistration<?>> registrations = (List<EventListenerRegistration<?>>) field.get(null);
+            registrations.clear();
+
+            assertFalse((Boolean) register.invoke(null, null, new Object()));
+            assertTrue(registrations.isEmpty());
+
+            Object listener = loader.loadClass("mod.listen.JoinListener").getConstructor().newInstance();
+            assertTrue((Boolean) register.invoke(null, null, listener));
+            assertEquals(2, registrations.size());
+            assertEquals(Order.LATE, registrations.get(0).order());
+            assertTrue(registrations.get(0).beforeModifications());
+            assertEquals(Order.DEFAULT, registrations.get(1).order());
+
+            Event disconnect = (Event) Proxy.newProxyInstance(loader, new Class<?>[]{ServerSideConnectionEvent.Disconnect.class}, (proxy, method, arguments) -> null);
+            handle(registrations.get(0), disconnect);
+            assertEquals(List.of("disconnect"), listener.getClass().getField("events").get(listener));
+            registrations.clear();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void handle(EventListenerRegistration<?> registration, Event event) throws Exception
+    {
+        ((EventListenerRegistration<Event>) registration).listener().handle(event);
+    }
+}
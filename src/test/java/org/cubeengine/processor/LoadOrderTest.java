@@ -0,0 +1,93 @@
+/*
+ * CubeEngine Plugin Generator - Generates necessary plugin glue code for CubeEngine modules.
+ * Copyright © 2018 CubeEngine (development@cubeengine.org)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.cubeengine.processor;
+
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import javax.tools.JavaFileObject;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LoadOrderTest
+{
+    private static final List<List<String>> LEVELS = List.of(List.of("cubeengine-core"),
+                                                             List.of("cubeengine-alpha", "cubeengine-delta"),
+                                                             List.of("cubeengine-beta"),
+                                                             List.of("cubeengine-gamma"));
+
+    private static JavaFileObject module(String name, String... dependencies)
+    {
+        String pkg = "mod." + name.toLowerCase();
+        StringBuilder annotations = new StringBuilder();
+        for (String dependency : dependencies)
+        {
+            annotations.append(annotations.isEmpty() ? "" : ", ").append("@Dependency(\"cubeengine-").append(dependency).append("\")");
+        }
+        return TestCompiler.source(pkg + "." + name, """
+                package %s;
+
+                import org.cubeengine.processor.Dependency;
+                import org.cubeengine.processor.Module;
+
+                @Module(dependencies = {%s})
+                public class %s
+                {
+                }
+                """.formatted(pkg, annotations, name));
+    }
+
+    private static TestCompiler.Compilation compile(Path directory)
+    {
+        TestCompiler.Compilation compilation = new TestCompiler(directory).compile(IncrementalProcessingTest.CORE,
+                                                                                   module("Gamma", "alpha", "beta"),
+                                                                                   module("Beta", "alpha"),
+                                                                                   module("Delta"),
+                                                                                   module("Alpha"));
+        assertTrue(compilation.success(), () -> compilation.errors().toString());
+        return compilation;
+    }
+
+    @Test
+    void writesTheLevelsToTheLoadOrderFile(@TempDir Path directory)
+    {
+        TestCompiler.Compilation compilation = compile(directory);
+
+        assertEquals(Map.of("levels", LEVELS), Json.parse(compilation.resource("META-INF/cubeengine/load-order.json")));
+    }
+
+    @Test
+    void compilesTheLevelsIntoTheCorePlugin(@TempDir Path directory) throws Exception
+    {
+        TestCompiler.Compilation compilation = compile(directory);
+
+        try (URLClassLoader loader = new URLClassLoader(new URL[]{compilation.classes().toUri().toURL()}, LoadOrderTest.class.getClassLoader()))
+        {
+            Class<?> core = loader.loadClass("org.cubeengine.libcube.core.PluginLibCubeCore");
+            String[][] loadOrder = (String[][]) core.getField("MODULE_LOAD_ORDER").get(null);
+            assertEquals(LEVELS, Arrays.stream(loadOrder).map(List::of).toList());
+        }
+    }
+}
@@ -0,0 +1,79 @@
+/*
+ * CubeEngine Plugin Generator - Generates necessary plugin glue code for CubeEngine modules.
+ * Copyright © 2018 CubeEngine (development@cubeengine.org)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.cubeengine.processor;
+
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.ServiceLoader;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import org.cubeengine.libcube.ModuleDescriptor;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ModuleDescriptorTest
+{
+    private static final String SERVICE = "META-INF/services/org.cubeengine.libcube.ModuleDescriptor";
+
+    @Test
+    void listsTheDescriptorOfEveryPlugin(@TempDir Path directory)
+    {
+        TestCompiler.Compilation compilation = new TestCompiler(directory).compile(IncrementalProcessingTest.CORE, IncrementalProcessingTest.ALPHA);
+        assertTrue(compilation.success(), () -> compilation.errors().toString());
+
+        assertEquals(List.of("mod.alpha.PluginAlphaDescriptor", "org.cubeengine.libcube.core.PluginLibCubeCoreDescriptor"),
+                     compilation.resource(SERVICE).lines().sorted().toList());
+    }
+
+    @Test
+    void serviceLoaderFindsTheDescriptors(@TempDir Path directory) throws Exception
+    {
+        TestCompiler.Compilation compilation = new TestCompiler(directory).compile(IncrementalProcessingTest.CORE, IncrementalProcessingTest.ALPHA);
+        assertTrue(compilation.success(), () -> compilation.errors().toString());
+
+        try (URLClassLoader loader = new URLClassLoader(new URL[]{compilation.classes().toUri().toURL()}, ModuleDescriptorTest.class.getClassLoader()))
+        {
+            Map<String, ModuleDescriptor> descriptors = ServiceLoader.load(ModuleDescriptor.class, loader).stream().map(ServiceLoader.Provider::get)
+                                                                     .collect(Collectors.toMap(ModuleDescriptor::id, Function.identity()));
+            assertEquals(List.of("cubeengine-alpha", "cubeengine-core"), descriptors.keySet().stream().sorted().toList());
+
+            ModuleDescriptor alpha = descriptors.get("cubeengine-alpha");
+            assertEquals("mod.alpha.PluginAlpha", alpha.pluginClass());
+            assertEquals("mod.alpha.PluginAlphaBindings", alpha.bindingsClass());
+            assertNull(alpha.componentClass());
+            assertEquals("mod.alpha.PluginAlphaListeners", alpha.listenersClass());
+            assertFalse(alpha.core());
+            assertFalse(alpha.lazy());
+            assertTrue(alpha.dependencies().stream().anyMatch(dependency -> dependency.id().equals("cubeengine-core")), alpha.dependencies()::toString);
+            assertEquals(alpha.pluginClass(), loader.loadClass(alpha.pluginClass()).getName());
+
+            ModuleDescriptor core = descriptors.get("cubeengine-core");
+            assertTrue(core.core());
+            assertNull(core.bindingsClass());
+        }
+    }
+}
@@ -0,0 +1,242 @@
+/*
+ * CubeEngine Plugin Generator - Generates necessary plugin glue code for CubeEngine modules.
+ * Copyright © 2018 CubeEngine (development@cubeengine.org)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.cubeengine.processor;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import javax.annotation.processing.Messager;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.AnnotationValue;
+import javax.lang.model.element.Element;
+import javax.tools.Diagnostic;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ModuleIndexTest
+{
+    /** A module record read back from the index, edges as id to version with a trailing ? for optional ones */
+    private record Module(String id, String entrypoint, String version, boolean core, Map<String, String> edges)
+    {
+    }
+
+    private static PluginModel plugin(String id, boolean core, DependencyModel... dependencies)
+    {
+        return new PluginModel(null, core, false, "mod." + id, "Plugin" + id, id, id, "1.0." + id.length(), "", "", "", "", List.of(dependencies), null);
+    }
+
+    private static byte[] write(List<PluginModel> plugins) throws IOException
+    {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ModuleIndex.write(plugins, out);
+        return out.toByteArray();
+    }
+
+    private static List<Module> read(byte[] index)
+    {
+        ByteBuffer buffer = ByteBuffer.wrap(index);
+        assertEquals(ModuleIndex.MAGIC, buffer.getInt());
+        assertEquals(ModuleIndex.FORMAT_VERSION, buffer.getShort());
+        assertEquals(0, buffer.getShort());
+        int moduleCount = buffer.getInt();
+        int edgeCount = buffer.getInt();
+        int stringOffset = buffer.getInt();
+        int stringLength = buffer.getInt();
+        assertEquals(ModuleIndex.HEADER_SIZE + moduleCount * ModuleIndex.MODULE_RECORD_SIZE + edgeCount * ModuleIndex.EDGE_RECORD_SIZE, stringOffset);
+        assertEquals(index.length, stringOffset + stringLength);
+        assertEquals(0, stringLength % 4);
+
+        List<Module> modules = new ArrayList<>();
+        int edgeTotal = 0;
+        for (int i = 0; i < moduleCount; i++)
+        {
+            int record = ModuleIndex.HEADER_SIZE + i * ModuleIndex.MODULE_RECORD_SIZE;
+            int firstEdge = buffer.getInt(record + 12);
+            int edges = Short.toUnsignedInt(buffer.getShort(record + 16));
+            assertEquals(edgeTotal, firstEdge);
+            edgeTotal += edges;
+            Map<String, String> dependencies = new LinkedHashMap<>();
+            for (int edge = firstEdge; edge < firstEdge + edges; edge++)
+            {
+                int edgeRecord = ModuleIndex.HEADER_SIZE + moduleCount * ModuleIndex.MODULE_RECORD_SIZE + edge * ModuleIndex.EDGE_RECORD_SIZE;
+                boolean optional = (buffer.getInt(edgeRecord + 8) & ModuleIndex.OPTIONAL) != 0;
+                dependencies.put(string(buffer, stringOffset, buffer.getInt(edgeRecord)),
+                        string(buffer, stringOffset, buffer.getInt(edgeRecord + 4)) + (optional ? "?" : ""));
+            }
+            modules.add(new Module(string(buffer, stringOffset, buffer.getInt(record)), string(buffer, stringOffset, buffer.getInt(record + 4)),
+                    string(buffer, stringOffset, buffer.getInt(record + 8)), (buffer.getShort(record + 18) & ModuleIndex.CORE) != 0, dependencies));
+        }
+        assertEquals(edgeCount, edgeTotal);
+        return modules;
+    }
+
+    private static String string(ByteBuffer buffer, int stringOffset, int offset)
+    {
+        int start = stringOffset + offset;
+        int length = Short.toUnsignedInt(buffer.getShort(start));
+        return new String(buffer.array(), start + 2, length, StandardCharsets.UTF_8);
+    }
+
+    @Test
+    void roundTripsModulesSortedById() throws IOException
+    {
+        List<Module> modules = read(write(List.of(
+                plugin("worlds", false, new DependencyModel("core", "1.0.4", false), new DependencyModel("portals", "", true)),
+                plugin("core", true, new DependencyModel("spongeapi", "8.0.0", false)),
+                plugin("portals", false))));
+
+        assertEquals(List.of(
+                new Module("core", "mod.core.Plugincore", "1.0.4", true, Map.of("spongeapi", "8.0.0")),
+                new Module("portals", "mod.portals.Pluginportals", "1.0.7", false, Map.of()),
+                new Module("worlds", "mod.worlds.Pluginworlds", "1.0.6", false, Map.of("core", "1.0.4", "portals", "?"))), modules);
+    }
+
+    @Test
+    void storesEveryStringOnce() throws IOException
+    {
+        byte[] index = write(List.of(plugin("a", false, new DependencyModel("spongeapi", "8.0.0", false)),
+                plugin("b", false, new DependencyModel("spongeapi", "8.0.0", false))));
+        String strings = new String(index, StandardCharsets.UTF_8);
+
+        assertEquals(strings.indexOf("spongeapi"), strings.lastIndexOf("spongeapi"));
+        assertEquals(strings.indexOf("8.0.0"), strings.lastIndexOf("8.0.0"));
+        assertEquals(2, read(index).size());
+    }
+
+    @Test
+    void roundTripsNonAsciiStrings() throws IOException
+    {
+        List<Module> modules = read(write(List.of(plugin("wörlds", false, new DependencyModel("übercore", "1.0-ß", false)))));
+
+        assertEquals(Map.of("übercore", "1.0-ß"), modules.get(0).edges());
+        assertEquals("wörlds", modules.get(0).id());
+    }
+
+    @Test
+    void roundTripsEmptyIndex() throws IOException
+    {
+        byte[] index = write(List.of());
+
+        assertEquals(ModuleIndex.HEADER_SIZE, index.length);
+        assertTrue(read(index).isEmpty());
+    }
+
+    @Test
+    void rejectsTooManyDependencies()
+    {
+        DependencyModel[] dependencies = new DependencyModel[0x10000];
+        for (int i = 0; i < dependencies.length; i++)
+        {
+            dependencies[i] = new DependencyModel("dep" + i, "", false);
+        }
+
+        assertThrows(IllegalStateException.class, () -> write(List.of(plugin("wide", false, dependencies))));
+    }
+
+    @Test
+    void reportsTooManyDependencies()
+    {
+        DependencyModel[] dependencies = new DependencyModel[0x10000];
+        for (int i = 0; i < dependencies.length; i++)
+        {
+            dependencies[i] = new DependencyModel("dep" + i, "", false);
+        }
+        List<String> errors = new ArrayList<>();
+
+        assertFalse(ModuleIndex.validate(List.of(plugin("wide", false, dependencies), plugin("narrow", false)), new RecordingMessager(errors)));
+        assertEquals(List.of("wide has 65536 dependencies, META-INF/cubeengine/modules.idx supports at most 65535"), errors);
+        assertTrue(ModuleIndex.validate(List.of(plugin("narrow", false)), new RecordingMessager(errors)));
+    }
+
+    @Test
+    void reportsTooLongStringsOnTheModule(@TempDir Path directory)
+    {
+        TestCompiler.Compilation compilation = new TestCompiler(directory).option("-proc:only")
+                .compile(IncrementalProcessingTest.CORE, TestCompiler.source("mod.alpha.Alpha", """
+                        package mod.alpha;
+
+                        import org.cubeengine.processor.Dependency;
+                        import org.cubeengine.processor.Module;
+
+                        @Module(dependencies = @Dependency(value = "cubeengine-other", version = "%s"))
+                        public class Alpha
+                        {
+                        }
+                        """.formatted("1".repeat(0x10000))));
+
+        assertFalse(compilation.success());
+        assertEquals(List.of("/mod/alpha/Alpha.java:7: The string " + "1".repeat(32) + "... of cubeengine-alpha is 65536 bytes long, "
+                             + "META-INF/cubeengine/modules.idx supports at most 65535"), compilation.errors());
+        assertFalse(compilation.hasResource(ModuleIndex.FILE));
+    }
+
+    @Test
+    void writtenForTheCompilation(@TempDir Path directory) throws IOException
+    {
+        TestCompiler.Compilation compilation = new TestCompiler(directory).option("-proc:only")
+                .compile(IncrementalProcessingTest.CORE, IncrementalProcessingTest.ALPHA);
+
+        assertTrue(compilation.success(), () -> compilation.errors().toString());
+        List<Module> modules = read(Files.readAllBytes(compilation.classes().resolve(ModuleIndex.FILE)));
+        assertEquals(2, modules.size());
+        assertEquals("cubeengine-alpha", modules.get(0).id());
+        assertEquals("mod.alpha.PluginAlpha", modules.get(0).entrypoint());
+        assertTrue(modules.get(0).edges().containsKey("cubeengine-core"), modules.get(0).edges()::toString);
+        assertTrue(modules.get(1).core());
+    }
+
+    private record RecordingMessager(List<String> errors) implements Messager
+    {
+        @Override
+        public void printMessage(Diagnostic.Kind kind, CharSequence msg)
+        {
+            errors.add(msg.toString());
+        }
+
+        @Override
+        public void printMessage(Diagnostic.Kind kind, CharSequence msg, Element e)
+        {
+            printMessage(kind, msg);
+        }
+
+        @Override
+        public void printMessage(Diagnostic.Kind kind, CharSequence msg, Element e, AnnotationMirror a)
+        {
+            printMessage(kind, msg);
+        }
+
+        @Override
+        public void printMessage(Diagnostic.Kind kind, CharSequence msg, Element e, AnnotationMirror a, AnnotationValue v)
+        {
+            printMessage(kind, msg);
+        }
+    }
+}
@@ -0,0 +1,76 @@
+/*
+ * CubeEngine Plugin Generator - Generates necessary plugin glue code for CubeEngine modules.
+ * Copyright © 2018 CubeEngine (development@cubeengine.org)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.cubeengine.processor;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PluginMetadataTest
+{
+    private static final int DEPENDENCIES = 2000;
+
+    @Test
+    void writesModuleWithThousandsOfDependencies(@TempDir Path directory)
+    {
+        StringBuilder dependencies = new StringBuilder();
+        for (int i = 0; i < DEPENDENCIES; i++)
+        {
+            dependencies.append(i == 0 ? "" : ",\n").append("        @Dependency(value = \"dep-%d\", version = \"[%d.0,)\", optional = %b)".formatted(i, i, i % 2 == 0));
+        }
+        TestCompiler.Compilation compilation = new TestCompiler(directory)
+                .option("-Acubeengine.module.description=Says \"hi\" \\ twice\ttabbed")
+                .option("-Acubeengine.module.libcube.version=1.2.3")
+                .compile(IncrementalProcessingTest.CORE, TestCompiler.source("mod.wide.Wide", """
+                        package mod.wide;
+
+                        import org.cubeengine.processor.Dependency;
+                        import org.cubeengine.processor.Module;
+
+                        @Module(dependencies = {
+                        %s
+                        })
+                        public class Wide
+                        {
+                        }
+                        """.formatted(dependencies)));
+        assertTrue(compilation.success(), () -> String.join("\n", compilation.errors()));
+
+        Map<?, ?> metadata = (Map<?, ?>) Json.parse(compilation.resource("META-INF/sponge_plugins.json"));
+        Map<?, ?> plugin = ((List<?>) metadata.get("plugins")).stream().map(Map.class::cast)
+                                                                .filter(candidate -> "cubeengine-wide".equals(candidate.get("id")))
+                                                                .findFirst().orElseThrow();
+        assertEquals("mod.wide.PluginWide", plugin.get("entrypoint"));
+        assertEquals("Says \"hi\" \\ twice\ttabbed", plugin.get("description"));
+
+        List<?> written = (List<?>) plugin.get("dependencies");
+        assertEquals(DEPENDENCIES + 2, written.size());
+        for (int i = 0; i < DEPENDENCIES; i++)
+        {
+            assertEquals(Map.of("id", "dep-" + i, "version", "[" + i + ".0,)", "optional", i % 2 == 0), written.get(i));
+        }
+        assertEquals(Map.of("id", "cubeengine-core", "version", "1.2.3", "optional", false), written.get(DEPENDENCIES));
+        assertEquals("spongeapi", ((Map<?, ?>) written.get(DEPENDENCIES + 1)).get("id"));
+    }
+}
@@ -0,0 +1,144 @@
+/*
+ * CubeEngine Plugin Generator - Generates necessary plugin glue code for CubeEngine modules.
+ * Copyright © 2018 CubeEngine (development@cubeengine.org)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.cubeengine.processor;
+
+import java.io.IOException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.TreeSet;
+
+import org.cubeengine.libcube.CompletionTrie;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PrefixTrieTest
+{
+    private static final List<String> COMMANDS = List.of("help", "hello", "heal", "World", "w", "h", "set-home", "sethome", "über");
+
+    /**
+     * Compiles the expressions built by {@link PrefixTrie} and creates the tries.
+     */
+    private static List<CompletionTrie> compile(Path directory, List<List<String>> wordLists) throws ReflectiveOperationException, IOException
+    {
+        StringBuilder source = new StringBuilder("package tries;\n\nimport org.cubeengine.libcube.CompletionTrie;\n\npublic class Tries\n{\n    public static final CompletionTrie[] TRIES = {\n");
+        for (List<String> words : wordLists)
+        {
+            source.append("        ").append(PrefixTrie.expression(words)).append(",\n");
+        }
+        source.append("    };\n}\n");
+        TestCompiler.Compilation compilation = new TestCompiler(directory).compile(TestCompiler.source("tries.Tries", source.toString()));
+        assertTrue(compilation.success(), () -> compilation.errors().toString());
+        try (URLClassLoader loader = new URLClassLoader(new URL[] {compilation.classes().toUri().toURL()}, PrefixTrieTest.class.getClassLoader()))
+        {
+            return List.of((CompletionTrie[]) loader.loadClass("tries.Tries").getField("TRIES").get(null));
+        }
+    }
+
+    private static List<String> naive(List<String> words, String prefix)
+    {
+        return words.stream().filter(word -> word.startsWith(prefix.toLowerCase(Locale.ROOT))).toList();
+    }
+
+    @Test
+    void completesPrefixes(@TempDir Path directory) throws Exception
+    {
+        CompletionTrie trie = compile(directory, List.of(COMMANDS)).get(0);
+        List<String> words = trie.words();
+
+        assertEquals(List.of("h", "heal", "hello", "help", "set-home", "sethome", "w", "world", "über"), words);
+        assertEquals(words, trie.complete(words, ""));
+        assertEquals(List.of("hello", "help"), trie.complete(words, "hel"));
+        assertEquals(List.of("hello", "help"), trie.complete(words, "HeL"));
+        assertEquals(List.of("h", "heal", "hello", "help"), trie.complete(words, "h"));
+        assertEquals(List.of("help"), trie.complete(words, "help"));
+        assertEquals(List.of(), trie.complete(words, "helpme"));
+        assertEquals(List.of(), trie.complete(words, "x"));
+        assertEquals(List.of("set-home", "sethome"), trie.complete(words, "set"));
+        assertEquals(List.of("set-home"), trie.complete(words, "set-"));
+        assertEquals(List.of("über"), trie.complete(words, "Ü"));
+    }
+
+    @Test
+    void completesParallelCompletions(@TempDir Path directory) throws Exception
+    {
+        CompletionTrie trie = compile(directory, List.of(List.of("b", "a", "c"))).get(0);
+        List<Integer> completions = List.of(1, 2, 3);
+
+        assertEquals(List.of(2), trie.complete(completions, "b"));
+    }
+
+    @Test
+    void emptyTries(@TempDir Path directory) throws Exception
+    {
+        CompletionTrie trie = compile(directory, List.of(List.of())).get(0);
+
+        assertTrue(trie.isEmpty());
+        assertEquals(List.of(), trie.complete(List.of(), ""));
+        assertEquals(List.of(), trie.complete(List.of(), "a"));
+        assertTrue(CompletionTrie.EMPTY.isEmpty());
+        assertEquals(List.of(), CompletionTrie.EMPTY.complete(List.of(), ""));
+        assertEquals(List.of(), CompletionTrie.EMPTY.complete(List.of(), "a"));
+    }
+
+    @Test
+    void matchesNaivePrefixSearch(@TempDir Path directory) throws Exception
+    {
+        Random random = new Random(42);
+        List<List<String>> wordLists = new ArrayList<>();
+        for (int list = 0; list < 20; list++)
+        {
+            TreeSet<String> words = new TreeSet<>();
+            int count = random.nextInt(1, 60);
+            while (words.size() < count)
+            {
+                StringBuilder word = new StringBuilder();
+                int length = random.nextInt(1, 7);
+                for (int i = 0; i < length; i++)
+                {
+                    word.append((char) ('a' + random.nextInt(4)));
+                }
+                words.add(word.toString());
+            }
+            wordLists.add(List.copyOf(words));
+        }
+
+        List<CompletionTrie> tries = compile(directory, wordLists);
+        for (int list = 0; list < wordLists.size(); list++)
+        {
+            List<String> words = wordLists.get(list);
+            CompletionTrie trie = tries.get(list);
+            assertEquals(words, trie.words());
+            for (String word : words)
+            {
+                for (int length = 0; length <= word.length() + 1; length++)
+                {
+                    String prefix = length > word.length() ? word + "a" : word.substring(0, length);
+                    assertEquals(naive(words, prefix), trie.complete(words, prefix), prefix);
+                }
+            }
+        }
+    }
+}
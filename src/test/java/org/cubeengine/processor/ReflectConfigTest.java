@@ -0,0 +1,168 @@
+/*
+ * CubeEngine Plugin Generator - Generates necessary plugin glue code for CubeEngine modules.
+ * Copyright © 2018 CubeEngine (development@cubeengine.org)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.cubeengine.processor;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ReflectConfigTest
+{
+    private static final String IMAGE_DIR = "META-INF/native-image/org.cubeengine/cubeengine-image/";
+    private static final String IDLE_DIR = "META-INF/native-image/org.cubeengine/cubeengine-idle/";
+
+    private static TestCompiler.Compilation compile(Path directory)
+    {
+        return new TestCompiler(directory).compile(IncrementalProcessingTest.CORE,
+                TestCompiler.source("mod.image.Image", """
+                        package mod.image;
+
+                        import com.google.inject.Inject;
+                        import com.google.inject.Injector;
+                        import org.cubeengine.processor.Module;
+
+                        @Module
+                        public class Image
+                        {
+                            @Inject Injector injector;
+
+                            @Inject
+                            public Image(Helper helper)
+                            {
+                            }
+                        }
+                        """),
+                TestCompiler.source("mod.image.Helper", """
+                        package mod.image;
+
+                        public class Helper
+                        {
+                        }
+                        """),
+                TestCompiler.source("mod.image.DirectListener", """
+                        package mod.image;
+
+                        import org.spongepowered.api.event.Listener;
+                        import org.spongepowered.api.event.network.ServerSideConnectionEvent;
+
+                        public class DirectListener
+                        {
+                            @Listener
+                            public void onDisconnect(ServerSideConnectionEvent.Disconnect event)
+                            {
+                            }
+                        }
+                        """),
+                TestCompiler.source("mod.image.ReflectiveListener", """
+                        package mod.image;
+
+                        import org.spongepowered.api.event.Listener;
+                        import org.spongepowered.api.event.network.ServerSideConnectionEvent;
+
+                        public class ReflectiveListener
+                        {
+                            @Listener
+                            private void onDisconnect(ServerSideConnectionEvent.Disconnect event)
+                            {
+                            }
+                        }
+                        """),
+                TestCompiler.source("mod.idle.Idle", """
+                        package mod.idle;
+
+                        @org.cubeengine.processor.Module(lazy = true)
+                        public class Idle
+                        {
+                        }
+                        """));
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object> entry(List<Object> config, String name)
+    {
+        return (Map<String, Object>) config.stream().filter(entry -> name.equals(((Map<String, Object>) entry).get("name"))).findFirst()
+                                           .orElseThrow(() -> new AssertionError(name + " is missing in " + config));
+    }
+
+    private static Map<String, Object> method(String name, String... parameterTypes)
+    {
+        return Map.of("name", name, "parameterTypes", List.of(parameterTypes));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void listsTheReflectivelyAccessedMembers(@TempDir Path directory)
+    {
+        TestCompiler.Compilation compilation = compile(directory);
+        assertTrue(compilation.success(), () -> compilation.errors().toString());
+
+        List<Object> config = (List<Object>) Json.parse(compilation.resource(IMAGE_DIR + "reflect-config.json"));
+        // the lifecycle listeners of the plugin are dispatched directly
+        assertEquals(List.of(method("<init>", "org.spongepowered.plugin.PluginContainer")), entry(config, "mod.image.PluginImage").get("methods"));
+        assertEquals(List.of(method("<init>")), entry(config, "mod.image.PluginImageDescriptor").get("methods"));
+        assertEquals(List.of(method("<init>")), entry(config, "mod.image.PluginImageBindings").get("methods"));
+        assertEquals(List.of(method("<init>", "com.google.inject.Provider", "com.google.inject.Provider")),
+                     entry(config, "mod.image.PluginImageBindings$ModuleProvider").get("methods"));
+        // bound by the bindings, created by Guice
+        assertEquals(List.of(method("<init>")), entry(config, "mod.image.Helper").get("methods"));
+
+        assertEquals(List.of(method("<init>")), entry(config, "mod.image.DirectListener").get("methods"));
+        assertEquals(List.of(method("<init>"), method("onDisconnect", "org.spongepowered.api.event.network.ServerSideConnectionEvent$Disconnect")),
+                     entry(config, "mod.image.ReflectiveListener").get("methods"));
+        assertTrue(config.stream().noneMatch(entry -> ((Map<String, Object>) entry).get("name").equals("mod.image.Image")), config::toString);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void includesTheResourcesOfThePlugin(@TempDir Path directory)
+    {
+        TestCompiler.Compilation compilation = compile(directory);
+        assertTrue(compilation.success(), () -> compilation.errors().toString());
+
+        Map<String, Object> config = (Map<String, Object>) Json.parse(compilation.resource(IMAGE_DIR + "resource-config.json"));
+        List<Object> includes = (List<Object>) ((Map<String, Object>) config.get("resources")).get("includes");
+        assertEquals(List.of(Map.of("pattern", "\\Qassets/cubeengine-image/lang/\\E.*"),
+                             Map.of("pattern", "\\QMETA-INF/sponge_plugins.json\\E"),
+                             Map.of("pattern", "\\Q" + ModuleIndex.FILE + "\\E"),
+                             Map.of("pattern", "\\QMETA-INF/cubeengine/load-order.json\\E"),
+                             Map.of("pattern", "\\QMETA-INF/cubeengine/dependencies/cubeengine-image\\E")), includes);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void proxiesTheCommandEventOfLazyModules(@TempDir Path directory)
+    {
+        TestCompiler.Compilation compilation = compile(directory);
+        assertTrue(compilation.success(), () -> compilation.errors().toString());
+
+        assertFalse(compilation.hasResource(IMAGE_DIR + "proxy-config.json"));
+        List<Object> proxies = (List<Object>) Json.parse(compilation.resource(IDLE_DIR + "proxy-config.json"));
+        assertEquals(List.of(Map.of("interfaces", List.of("org.spongepowered.api.event.lifecycle.RegisterCommandEvent"))), proxies);
+
+        List<Object> config = (List<Object>) Json.parse(compilation.resource(IDLE_DIR + "reflect-config.json"));
+        assertEquals(List.of(method("<init>")), entry(config, "mod.idle.PluginIdleBindings$ModuleProvider").get("methods"));
+        assertEquals(List.of(method("<init>", "org.spongepowered.plugin.PluginContainer")), entry(config, "mod.idle.PluginIdle").get("methods"));
+    }
+}
@@ -0,0 +1,53 @@
+/*
+ * CubeEngine Plugin Generator - Generates necessary plugin glue code for CubeEngine modules.
+ * Copyright © 2018 CubeEngine (development@cubeengine.org)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.cubeengine.processor;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SupportSourcesTest
+{
+    private static final Path RUNTIME = Path.of("src/main/runtime/org/cubeengine/libcube");
+
+    @Test
+    void copiedFromTheRuntimeSources(@TempDir Path directory) throws IOException
+    {
+        TestCompiler.Compilation compilation = new TestCompiler(directory).option("-proc:only").compile(IncrementalProcessingTest.CORE);
+
+        assertTrue(compilation.success(), () -> compilation.errors().toString());
+        List<Path> sources;
+        try (var files = Files.list(RUNTIME))
+        {
+            sources = files.toList();
+        }
+        assertEquals(8, sources.size());
+        for (Path source : sources)
+        {
+            String className = "org.cubeengine.libcube." + source.getFileName().toString().replace(".java", "");
+            assertEquals(Files.readString(source), compilation.generatedSource(className), className);
+        }
+    }
+}
@@ -0,0 +1,107 @@
+/*
+ * CubeEngine Plugin Generator - Generates necessary plugin glue code for CubeEngine modules.
+ * Copyright © 2018 CubeEngine (development@cubeengine.org)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.cubeengine.processor;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.tools.JavaFileObject;
+
+import org.cubeengine.processor.corpus.SyntheticCorpus;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SyntheticCorpusTest
+{
+    private static final int MODULES = 300;
+
+    private static List<String> contents(SyntheticCorpus corpus) throws IOException
+    {
+        List<String> contents = new ArrayList<>();
+        for (JavaFileObject source : corpus.sources())
+        {
+            contents.add(source.getCharContent(true).toString());
+        }
+        return contents;
+    }
+
+    @Test
+    void sameSeedGeneratesTheSameSources(@TempDir Path directory) throws IOException
+    {
+        SyntheticCorpus corpus = new SyntheticCorpus(42, 50, 5, 4, 0.25, true);
+        List<String> contents = contents(corpus);
+        assertEquals(contents, contents(new SyntheticCorpus(42, 50, 5, 4, 0.25, true)));
+
+        corpus.writeTo(directory);
+        List<String> written = new ArrayList<>();
+        for (int i = 0; i < 50; i++)
+        {
+            written.add(Files.readString(directory.resolve("corpus/p" + (i % 5) + "/Module" + i + ".java")));
+        }
+        assertEquals(contents, written);
+    }
+
+    /**
+     * Every module of a large corpus is generated and loaded after all of its dependencies.
+     */
+    @Test
+    void loadsEveryModuleAfterItsDependencies(@TempDir Path directory) throws IOException
+    {
+        List<JavaFileObject> sources = new ArrayList<>(new SyntheticCorpus(42, MODULES, MODULES / 10, 4, 0.25, true).sources());
+        sources.add(IncrementalProcessingTest.CORE);
+        TestCompiler.Compilation compilation = new TestCompiler(directory).option("-Acubeengine.module.version=1.0.0")
+                                                                          .option("-Acubeengine.module.libcube.version=1.0.0")
+                                                                          .compile(sources.toArray(JavaFileObject[]::new));
+        assertTrue(compilation.success(), () -> String.join("\n", compilation.errors()));
+
+        @SuppressWarnings("unchecked")
+        List<List<String>> levels = (List<List<String>>) ((Map<String, Object>) Json.parse(compilation.resource("META-INF/cubeengine/load-order.json"))).get("levels");
+        Map<String, Integer> level = new HashMap<>();
+        for (int i = 0; i < levels.size(); i++)
+        {
+            for (String id : levels.get(i))
+            {
+                assertEquals(null, level.put(id, i), id + " is loaded twice");
+            }
+        }
+        assertEquals(MODULES + 1, level.size(), level.keySet()::toString);
+        int checked = 0;
+        for (int i = 0; i < MODULES; i++)
+        {
+            String id = "cubeengine-module" + i;
+            assertTrue(compilation.generated("corpus.p" + (i % (MODULES / 10)) + ".PluginModule" + i), id);
+            for (String dependency : compilation.resource("META-INF/cubeengine/dependencies/" + id).lines().toList())
+            {
+                if (level.containsKey(dependency))
+                {
+                    assertTrue(level.get(dependency) < level.get(id), id + " is loaded before " + dependency);
+                    checked++;
+                }
+            }
+        }
+        assertTrue(checked > MODULES, "only " + checked + " dependencies");
+    }
+}
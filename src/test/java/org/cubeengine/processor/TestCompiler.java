@@ -0,0 +1,250 @@
+/*
+ * CubeEngine Plugin Generator - Generates necessary plugin glue code for CubeEngine modules.
+ * Copyright © 2018 CubeEngine (development@cubeengine.org)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.cubeengine.processor;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.FileObject;
+import javax.tools.ForwardingFileObject;
+import javax.tools.ForwardingJavaFileManager;
+import javax.tools.ForwardingJavaFileObject;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+
+/**
+ * Compiles sources with the {@link PluginGenerator} into a directory, against the processor and the API stubs of
+ * {@code src/test/stubs}.
+ */
+final class TestCompiler
+{
+    private final Path directory;
+    private final List<String> options = new ArrayList<>();
+
+    TestCompiler(Path directory)
+    {
+        this.directory = directory;
+    }
+
+    /**
+     * Adds a javac option, e.g. a processor option {@code -Akey=value}.
+     */
+    TestCompiler option(String option)
+    {
+        options.add(option);
+        return this;
+    }
+
+    static JavaFileObject source(String className, String content)
+    {
+        return new SimpleJavaFileObject(URI.create("string:///" + className.replace('.', '/') + ".java"), JavaFileObject.Kind.SOURCE)
+        {
+            @Override
+            public CharSequence getCharContent(boolean ignoreEncodingErrors)
+            {
+                return content;
+            }
+        };
+    }
+
+    /**
+     * Compiles the sources, classes and resources of previous compilations in the same directory are on the class path.
+     */
+    Compilation compile(JavaFileObject... sources)
+    {
+        Path classes = directory.resolve("classes");
+        Path generated = directory.resolve("generated");
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+        try (StandardJavaFileManager standard = compiler.getStandardFileManager(diagnostics, Locale.ROOT, null))
+        {
+            Files.createDirectories(classes);
+            Files.createDirectories(generated);
+            RecordingFileManager fileManager = new RecordingFileManager(standard);
+            List<String> arguments = new ArrayList<>(List.of(
+                    "-d", classes.toString(),
+                    "-s", generated.toString(),
+                    "-classpath", String.join(File.pathSeparator, location(PluginGenerator.class), location(TestCompiler.class), classes.toString()),
+                    "-proc:full"));
+            arguments.addAll(options);
+            JavaCompiler.CompilationTask task = compiler.getTask(null, fileManager, diagnostics, arguments, null, Arrays.asList(sources));
+            task.setProcessors(List.of(new PluginGenerator()));
+            boolean success = task.call();
+            return new Compilation(success, diagnostics.getDiagnostics(), fileManager.originatingFiles, classes, generated);
+        }
+        catch (IOException e)
+        {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static String location(Class<?> type)
+    {
+        try
+        {
+            return Path.of(type.getProtectionDomain().getCodeSource().getLocation().toURI()).toString();
+        }
+        catch (URISyntaxException e)
+        {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * @param originatingFiles the source paths of the originating elements of every written file by its output path
+     */
+    record Compilation(boolean success, List<Diagnostic<? extends JavaFileObject>> diagnostics,
+                       Map<String, List<String>> originatingFiles, Path classes, Path generated)
+    {
+        /**
+         * @return the errors prefixed with their source file and line
+         */
+        List<String> errors()
+        {
+            return diagnostics.stream().filter(diagnostic -> diagnostic.getKind() == Diagnostic.Kind.ERROR)
+                              .map(diagnostic -> (diagnostic.getSource() == null ? "" : diagnostic.getSource().getName() + ":" + diagnostic.getLineNumber() + ": ")
+                                                 + diagnostic.getMessage(Locale.ROOT)).toList();
+        }
+
+        List<String> messages(Diagnostic.Kind kind)
+        {
+            return diagnostics.stream().filter(diagnostic -> diagnostic.getKind() == kind)
+                              .map(diagnostic -> diagnostic.getMessage(Locale.ROOT)).toList();
+        }
+
+        boolean generated(String className)
+        {
+            return Files.exists(generated.resolve(className.replace('.', '/') + ".java"));
+        }
+
+        String generatedSource(String className)
+        {
+            return read(generated.resolve(className.replace('.', '/') + ".java"));
+        }
+
+        boolean hasResource(String path)
+        {
+            return Files.exists(classes.resolve(path));
+        }
+
+        String resource(String path)
+        {
+            return read(classes.resolve(path));
+        }
+
+        private static String read(Path path)
+        {
+            try
+            {
+                return Files.readString(path);
+            }
+            catch (IOException e)
+            {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    /**
+     * Records the originating files javac derives from the originating elements passed to the
+     * {@link javax.annotation.processing.Filer}, like Gradle does for incremental processing.
+     */
+    private static final class RecordingFileManager extends ForwardingJavaFileManager<StandardJavaFileManager>
+    {
+        private final Map<String, List<String>> originatingFiles = new TreeMap<>();
+
+        private RecordingFileManager(StandardJavaFileManager fileManager)
+        {
+            super(fileManager);
+        }
+
+        @Override
+        public JavaFileObject getJavaFileForOutputForOriginatingFiles(Location location, String className, JavaFileObject.Kind kind,
+                                                                     FileObject... originatingFiles) throws IOException
+        {
+            String path = className.replace('.', '/') + kind.extension;
+            JavaFileObject file = super.getJavaFileForOutputForOriginatingFiles(location, className, kind, originatingFiles);
+            return new ForwardingJavaFileObject<>(file)
+            {
+                @Override
+                public OutputStream openOutputStream() throws IOException
+                {
+                    record(path, originatingFiles);
+                    return super.openOutputStream();
+                }
+
+                @Override
+                public Writer openWriter() throws IOException
+                {
+                    record(path, originatingFiles);
+                    return super.openWriter();
+                }
+            };
+        }
+
+        /**
+         * Resources the processor only reads, like its cache, are not recorded.
+         */
+        @Override
+        public FileObject getFileForOutputForOriginatingFiles(Location location, String packageName, String relativeName,
+                                                              FileObject... originatingFiles) throws IOException
+        {
+            String path = packageName.isEmpty() ? relativeName : packageName.replace('.', '/') + "/" + relativeName;
+            FileObject file = super.getFileForOutputForOriginatingFiles(location, packageName, relativeName, originatingFiles);
+            return new ForwardingFileObject<>(file)
+            {
+                @Override
+                public OutputStream openOutputStream() throws IOException
+                {
+                    record(path, originatingFiles);
+                    return super.openOutputStream();
+                }
+
+                @Override
+                public Writer openWriter() throws IOException
+                {
+                    record(path, originatingFiles);
+                    return super.openWriter();
+                }
+            };
+        }
+
+        private void record(String path, FileObject[] files)
+        {
+            originatingFiles.put(path, Arrays.stream(files).map(file -> file.toUri().getPath()).sorted().toList());
+        }
+    }
+}
@@ -0,0 +1,25 @@
+/*
+ * CubeEngine Plugin Generator - Generates necessary plugin glue code for CubeEngine modules.
+ * Copyright © 2018 CubeEngine (development@cubeengine.org)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.google.inject;
+
+public abstract class AbstractModule implements Module {
+ protected abstract void configure();
+ /** the classes bound by configure(), Guice records them as elements of the module */
+ final java.util.List<Class<?>> bound = new java.util.ArrayList<>();
+ protected <T> com.google.inject.binder.LinkedBindingBuilder<T> bind(Class<T> c) { bound.add(c); return provider -> scope -> {}; }
+}
@@ -0,0 +1,32 @@
+/*
+ * CubeEngine Plugin Generator - Generates necessary plugin glue code for CubeEngine modules.
+ * Copyright © 2018 CubeEngine (development@cubeengine.org)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.cubeengine.libcube;
+
+import org.spongepowered.api.Server;
+import org.spongepowered.api.command.Command;
+import org.spongepowered.api.event.lifecycle.*;
+
+public abstract class CubeEnginePlugin {
+ public CubeEnginePlugin(Class<?> module) {}
+ public <T> CubeEnginePlugin(Class<T> module, ModuleComponent<T> component) {}
+ public CubeEnginePlugin(Class<?> module, com.google.inject.Module bindings) {}
+ public void onConstruction(ConstructPluginEvent event) {}
+ public void onInit(StartingEngineEvent<Server> event) {}
+ public void onStarted(StartedEngineEvent<Server> event) {}
+ public void onRegisterCommand(RegisterCommandEvent<Command.Parameterized> event) {}
+}
@@ -0,0 +1,33 @@
+/*
+ * CubeEngine Plugin Generator - Generates necessary plugin glue code for CubeEngine modules.
+ * Copyright © 2018 CubeEngine (development@cubeengine.org)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.spongepowered.api;
+
+public final class Sponge
+{
+    /** the registered listeners, the event manager of Sponge posts events to them */
+    static final java.util.List<org.spongepowered.api.event.EventListenerRegistration<?>> REGISTRATIONS = new java.util.concurrent.CopyOnWriteArrayList<>();
+    private static final org.spongepowered.api.event.EventManager EVENTS = new org.spongepowered.api.event.EventManager()
+    {
+        public <E extends org.spongepowered.api.event.Event> org.spongepowered.api.event.EventManager registerListener(org.spongepowered.api.event.EventListenerRegistration<E> registration) { REGISTRATIONS.add(registration); return this; }
+        public org.spongepowered.api.event.EventManager unregisterListeners(Object listener) { return this; }
+    };
+    public static boolean isServerAvailable() { return false; }
+    public static Server server() { return null; }
+    public static org.spongepowered.api.event.EventManager eventManager() { return EVENTS; }
+    public static org.spongepowered.plugin.PluginManager pluginManager() { return null; }
+}
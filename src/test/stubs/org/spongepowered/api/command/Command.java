@@ -0,0 +1,34 @@
+/*
+ * CubeEngine Plugin Generator - Generates necessary plugin glue code for CubeEngine modules.
+ * Copyright © 2018 CubeEngine (development@cubeengine.org)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.spongepowered.api.command;
+
+import java.util.*;
+import net.kyori.adventure.text.Component;
+import org.spongepowered.api.command.parameter.*;
+import org.spongepowered.api.command.exception.CommandException;
+
+public interface Command {
+ CommandResult process(CommandCause cause, ArgumentReader.Mutable arguments) throws CommandException;
+ List<CommandCompletion> complete(CommandCause cause, ArgumentReader.Mutable arguments) throws CommandException;
+ boolean canExecute(CommandCause cause);
+ Optional<Component> shortDescription(CommandCause cause);
+ Optional<Component> extendedDescription(CommandCause cause);
+ Component usage(CommandCause cause);
+ static Builder builder() { return null; }
+ interface Builder { Builder addChild(Parameterized child, String... aliases); Builder addParameter(Parameter parameter); Builder executor(CommandExecutor executor); Builder permission(String permission); Builder executionRequirements(java.util.function.Predicate<CommandCause> requirements); Builder shortDescription(Component description); Parameterized build(); }
+ interface Parameterized extends Command {} interface Raw extends Command {} }
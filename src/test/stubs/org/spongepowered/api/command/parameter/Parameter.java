@@ -0,0 +1,30 @@
+/*
+ * CubeEngine Plugin Generator - Generates necessary plugin glue code for CubeEngine modules.
+ * Copyright © 2018 CubeEngine (development@cubeengine.org)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.spongepowered.api.command.parameter;
+
+public interface Parameter {
+ static Value.Builder<String> string() { return null; }
+ static Value.Builder<Integer> integerNumber() { return null; }
+ static Value.Builder<Long> longNumber() { return null; }
+ static Value.Builder<Double> doubleNumber() { return null; }
+ static Value.Builder<Boolean> bool() { return null; }
+ static Value.Builder<org.spongepowered.api.entity.living.player.server.ServerPlayer> player() { return null; }
+ static Value.Builder<org.spongepowered.api.world.server.ServerWorld> world() { return null; }
+ static <T extends Enum<T>> Value.Builder<T> enumValue(Class<T> type) { return null; }
+ interface Value<T> extends Parameter { interface Builder<T> { Builder<T> completer(org.spongepowered.api.command.parameter.managed.ValueCompleter completer); Builder<T> key(String key); Builder<T> optional(); Value<T> build(); } }
+}
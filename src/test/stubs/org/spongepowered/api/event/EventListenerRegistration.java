@@ -0,0 +1,39 @@
+/*
+ * CubeEngine Plugin Generator - Generates necessary plugin glue code for CubeEngine modules.
+ * Copyright © 2018 CubeEngine (development@cubeengine.org)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.spongepowered.api.event;
+
+public interface EventListenerRegistration<T extends Event> {
+ Order order(); boolean beforeModifications(); EventListener<? super T> listener();
+ static <T extends Event> Builder<T> builder(io.leangen.geantyref.TypeToken<T> type) {
+  return new Builder<T>() {
+   private Order order = Order.DEFAULT; private boolean beforeModifications; private EventListener<? super T> listener;
+   public Builder<T> plugin(org.spongepowered.plugin.PluginContainer p) { return this; }
+   public Builder<T> order(Order o) { order = o; return this; }
+   public Builder<T> beforeModifications(boolean b) { beforeModifications = b; return this; }
+   public Builder<T> listener(EventListener<? super T> l) { listener = l; return this; }
+   public EventListenerRegistration<T> build() {
+    Order o = order; boolean b = beforeModifications; EventListener<? super T> l = listener;
+    return new EventListenerRegistration<T>() {
+     public Order order() { return o; } public boolean beforeModifications() { return b; } public EventListener<? super T> listener() { return l; } };
+   }
+  };
+ }
+ interface Builder<T extends Event> {
+  Builder<T> plugin(org.spongepowered.plugin.PluginContainer p); Builder<T> order(Order o); Builder<T> beforeModifications(boolean b);
+  Builder<T> listener(EventListener<? super T> l); EventListenerRegistration<T> build(); }
+}